@@ -0,0 +1,21 @@
+package com.akoolla.commons.config.benchmarks;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * BenchmarkLogging.
+ *
+ * <p> Keeps the configuration classes' INFO logging out of the measurements. </p>
+ */
+final class BenchmarkLogging {
+
+    private static final Logger CONFIG_LOGGER = Logger.getLogger("com.akoolla.commons.config");
+
+    private BenchmarkLogging() {
+    }
+
+    static void quiet() {
+        CONFIG_LOGGER.setLevel(Level.WARNING);
+    }
+}
@@ -0,0 +1,92 @@
+package com.akoolla.commons.config.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.akoolla.commons.config.ConfigSnapshot;
+import com.akoolla.commons.config.PropertiesMuncher;
+import com.akoolla.commons.config.PropertiesMuncherCache;
+
+/**
+ * ClasspathCopyBenchmark.
+ *
+ * <p> Cost of loading the generated trees from the file system when each file also has a copy of the same name on the
+ * classpath, as {@link PropertiesMuncher#munchFromFile(File, String)} and the file system munches read them. The
+ * trees are written below a temporary directory under the names of the classpath trees, so every key of each file is
+ * in its copy too. Run with <code>-prof gc</code> to see the bytes allocated per load, which should stay close to the
+ * size of what is loaded: the copy's values for keys the file has are never read into a table only to be
+ * replaced. </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClasspathCopyBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private String classpathParent;
+
+    private File fileSystemRoot;
+
+    private String fileSystemParent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkLogging.quiet();
+        PropertiesMuncher.setParallelLoad(false);
+        classpathParent = FixtureGenerator.classpathPackage(size);
+        fileSystemRoot = Files.createTempDirectory("classpath-copy-benchmark").toFile();
+        FixtureGenerator.write(new File(fileSystemRoot, classpathParent), size);
+        fileSystemParent = fileSystemRoot.getAbsolutePath() + "/";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        delete(fileSystemRoot);
+        PropertiesMuncherCache.invalidate();
+    }
+
+    @Benchmark
+    public Properties munchFromFile() {
+        return PropertiesMuncher.munchFromFile(fileSystemRoot, classpathParent + FixtureGenerator.GLOBAL_PROPERTIES);
+    }
+
+    @Benchmark
+    public ConfigSnapshot coldFileSystem() {
+        PropertiesMuncherCache.invalidate();
+        return PropertiesMuncher.munchSnapshot(fileSystemParent, false,
+                classpathParent + FixtureGenerator.GLOBAL_PROPERTIES,
+                classpathParent + FixtureGenerator.ENVIRONMENTS_DIR);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
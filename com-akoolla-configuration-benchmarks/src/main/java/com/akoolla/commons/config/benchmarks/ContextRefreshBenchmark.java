@@ -0,0 +1,82 @@
+package com.akoolla.commons.config.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import com.akoolla.commons.config.PropertiesMuncher;
+import com.akoolla.commons.config.PropertiesMuncherPlaceholderConfigurer;
+
+/**
+ * ContextRefreshBenchmark.
+ *
+ * <p> Cost of the placeholder pass of a context refresh: a {@link PropertiesMuncherPlaceholderConfigurer} processing
+ * a bean factory of 2,000 bean definitions with ten placeholders each over the 10k key tree, with placeholders
+ * resolved as they are met and {@link PropertiesMuncherPlaceholderConfigurer#setPrecompile(boolean) precompiled}. The
+ * munch itself comes from the cache, so what is measured is the configurer's own work. </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextRefreshBenchmark {
+
+    private static final int SIZE = 10000;
+
+    private static final int BEANS = 2000;
+
+    private static final int PLACEHOLDERS_PER_BEAN = 10;
+
+    @Param({"false", "true"})
+    public boolean precompile;
+
+    private PropertiesMuncher muncher;
+
+    private DefaultListableBeanFactory beanFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkLogging.quiet();
+        muncher = new PropertiesMuncher();
+        muncher.setParentPackage(FixtureGenerator.classpathPackage(SIZE));
+        muncher.munchClassPathBasedSnapshot();
+    }
+
+    @Setup(Level.Invocation)
+    public void newBeanFactory() {
+        beanFactory = new DefaultListableBeanFactory();
+        for (int bean = 0; bean < BEANS; bean++) {
+            BeanDefinitionBuilder definition = BeanDefinitionBuilder.genericBeanDefinition(Object.class);
+            for (int i = 0; i < PLACEHOLDERS_PER_BEAN; i++) {
+                int key = (bean * PLACEHOLDERS_PER_BEAN + i) * 13 % SIZE;
+                definition.addPropertyValue("property" + i, "${" + FixtureGenerator.key(key) + "}");
+            }
+            beanFactory.registerBeanDefinition("bean" + bean, definition.getBeanDefinition());
+        }
+    }
+
+    @Benchmark
+    public DefaultListableBeanFactory refresh() {
+        PropertiesMuncherPlaceholderConfigurer configurer = new PropertiesMuncherPlaceholderConfigurer();
+        configurer.setPropertiesMuncher(muncher);
+        configurer.setTrim(true);
+        configurer.setPrecompile(precompile);
+        configurer.postProcessBeanFactory(beanFactory);
+        return beanFactory;
+    }
+}
@@ -0,0 +1,119 @@
+package com.akoolla.commons.config.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * FixtureGenerator.
+ *
+ * <p> Generates the property trees the benchmarks load. Every tree is derived from a fixed seed so runs are reproducible
+ * and need nothing but the benchmarks jar. A tree of <code>n</code> keys holds <code>n</code> keys in
+ * config/environment.properties and overrides every tenth of them in config/environments/dev.properties, the file
+ * munched when SERVER_ENV is not set. </p>
+ *
+ * <p> Run by the build to write the classpath trees to <code>fixtures/k&lt;n&gt;/</code> in the benchmarks jar; the file
+ * system trees are written to a temporary directory by the benchmarks themselves. </p>
+ */
+public final class FixtureGenerator {
+
+    /** The number of keys in each generated tree. */
+    public static final int[] SIZES = {100, 10000, 100000};
+
+    public static final String GLOBAL_PROPERTIES = "config/environment.properties";
+
+    public static final String ENVIRONMENTS_DIR = "config/environments/";
+
+    private static final long SEED = 0x5eedL;
+
+    private FixtureGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File outputDirectory = new File(args[0]);
+        for (int size : SIZES) {
+            write(new File(outputDirectory, classpathPackage(size)), size);
+        }
+    }
+
+    /**
+     * @return The package, relative to the root of the classpath, holding the tree of the given size
+     */
+    public static String classpathPackage(int size) {
+        return "fixtures/k" + size + "/";
+    }
+
+    /**
+     * @return The name of the i'th key of every tree
+     */
+    public static String key(int i) {
+        return "service" + (i % 50) + ".component" + (i % 7) + ".setting" + i;
+    }
+
+    /**
+     * Writes a tree of the given size below the given directory.
+     */
+    public static void write(File root, int size) throws IOException {
+        new File(root, ENVIRONMENTS_DIR).mkdirs();
+        store(global(size), new File(root, GLOBAL_PROPERTIES));
+        store(environment(size), new File(root, ENVIRONMENTS_DIR + "dev.properties"));
+    }
+
+    /**
+     * @return The global properties of the tree of the given size
+     */
+    public static Properties global(int size) {
+        Random random = new Random(SEED + size);
+        Properties properties = new Properties();
+        for (int i = 0; i < size; i++) {
+            properties.setProperty(key(i), value(random, i));
+        }
+        return properties;
+    }
+
+    /**
+     * @return The environment properties of the tree of the given size, overriding every tenth global key
+     */
+    public static Properties environment(int size) {
+        Random random = new Random(-SEED - size);
+        Properties properties = new Properties();
+        for (int i = 0; i < size; i += 10) {
+            properties.setProperty(key(i), value(random, i));
+        }
+        return properties;
+    }
+
+    /**
+     * Values are a mix of the shapes found in real files: numbers, sizes, urls, lists and text needing escapes.
+     */
+    private static String value(Random random, int i) {
+        switch (i % 5) {
+            case 0:
+                return Integer.toString(random.nextInt(10000));
+            case 1:
+                return (1 + random.nextInt(512)) + "MB";
+            case 2:
+                return "jdbc:mysql://db" + random.nextInt(16) + ".example.com:3306/schema_" + i;
+            case 3:
+                return "alpha, beta, gamma, " + Long.toHexString(random.nextLong());
+            default:
+                return "caf\u00e9 = " + random.nextInt() + " \\ tab\there";
+        }
+    }
+
+    private static void store(Properties properties, File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            Writer writer = new OutputStreamWriter(out, "ISO-8859-1");
+            properties.store(writer, "Generated by " + FixtureGenerator.class.getName());
+            writer.flush();
+        } finally {
+            out.close();
+        }
+    }
+}
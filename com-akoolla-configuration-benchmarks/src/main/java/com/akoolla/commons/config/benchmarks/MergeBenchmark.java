@@ -0,0 +1,57 @@
+package com.akoolla.commons.config.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.akoolla.commons.config.PropertiesMuncher;
+
+/**
+ * MergeBenchmark.
+ *
+ * <p> Cost of merging an environment layer, overriding every tenth key, into a global layer of the given size. </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private Properties global;
+
+    private Properties environment;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkLogging.quiet();
+        global = FixtureGenerator.global(size);
+        environment = FixtureGenerator.environment(size);
+    }
+
+    @Benchmark
+    public Properties mergeProperties() {
+        return PropertiesMuncher.mergeProperties(environment, global);
+    }
+
+    @Benchmark
+    public Properties strictMergeProperties() {
+        return PropertiesMuncher.strictMergeProperties(environment, global);
+    }
+}
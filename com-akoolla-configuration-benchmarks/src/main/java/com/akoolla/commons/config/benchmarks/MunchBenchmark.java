@@ -0,0 +1,99 @@
+package com.akoolla.commons.config.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.akoolla.commons.config.ConfigSnapshot;
+import com.akoolla.commons.config.PropertiesMuncher;
+import com.akoolla.commons.config.PropertiesMuncherCache;
+
+/**
+ * MunchBenchmark.
+ *
+ * <p> Cost of a full munch of the generated trees, read from the classpath or the file system. The cold benchmarks
+ * invalidate {@link PropertiesMuncherCache} first so every invocation reads, parses and merges the files; the cached
+ * benchmark shows what callers after the first one pay. Each is run with the files read one after another and in
+ * parallel. </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MunchBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private String classpathParent;
+
+    private File fileSystemRoot;
+
+    private String fileSystemParent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkLogging.quiet();
+        PropertiesMuncher.setParallelLoad(parallel);
+        classpathParent = FixtureGenerator.classpathPackage(size);
+        fileSystemRoot = Files.createTempDirectory("munch-benchmark").toFile();
+        FixtureGenerator.write(fileSystemRoot, size);
+        fileSystemParent = fileSystemRoot.getAbsolutePath() + "/";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        delete(fileSystemRoot);
+        PropertiesMuncherCache.invalidate();
+    }
+
+    @Benchmark
+    public ConfigSnapshot coldClasspath() {
+        PropertiesMuncherCache.invalidate();
+        return PropertiesMuncher.munchSnapshot(classpathParent, true, FixtureGenerator.GLOBAL_PROPERTIES,
+                FixtureGenerator.ENVIRONMENTS_DIR);
+    }
+
+    @Benchmark
+    public ConfigSnapshot coldFileSystem() {
+        PropertiesMuncherCache.invalidate();
+        return PropertiesMuncher.munchSnapshot(fileSystemParent, false, FixtureGenerator.GLOBAL_PROPERTIES,
+                FixtureGenerator.ENVIRONMENTS_DIR);
+    }
+
+    @Benchmark
+    public ConfigSnapshot cachedClasspath() {
+        return PropertiesMuncher.munchSnapshot(classpathParent, true, FixtureGenerator.GLOBAL_PROPERTIES,
+                FixtureGenerator.ENVIRONMENTS_DIR);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
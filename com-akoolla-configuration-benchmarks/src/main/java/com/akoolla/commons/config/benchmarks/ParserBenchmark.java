@@ -0,0 +1,98 @@
+package com.akoolla.commons.config.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.akoolla.commons.config.ConfigSnapshot;
+import com.akoolla.commons.config.PropertiesParser;
+
+/**
+ * ParserBenchmark.
+ *
+ * <p> Cost of reading the global file of the generated trees with {@link Properties#load(InputStream)} and with
+ * {@link PropertiesParser}. Before measuring, the setup checks the two agree on the file, failing the trial if they
+ * don't; how the parser handles awkward inputs is covered by PropertiesParserConformanceTest. </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private File root;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkLogging.quiet();
+        root = Files.createTempDirectory("parser-benchmark").toFile();
+        FixtureGenerator.write(root, size);
+        file = new File(root, FixtureGenerator.GLOBAL_PROPERTIES);
+
+        verify(file.getPath(), loadProperties(), parseSnapshot());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        delete(root);
+    }
+
+    @Benchmark
+    public Properties loadProperties() throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            Properties properties = new Properties();
+            properties.load(in);
+            return properties;
+        } finally {
+            in.close();
+        }
+    }
+
+    @Benchmark
+    public ConfigSnapshot parseSnapshot() throws IOException {
+        return PropertiesParser.parse(file);
+    }
+
+    private static void verify(String input, Properties expected, ConfigSnapshot parsed) {
+        if (!ConfigSnapshot.diff(ConfigSnapshot.of(expected), parsed).isEmpty()) {
+            throw new IllegalStateException("PropertiesParser disagrees with Properties.load on " + input + " : "
+                    + expected + " parsed as " + parsed);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,125 @@
+package com.akoolla.commons.config.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.akoolla.commons.config.PropertiesMuncher;
+import com.akoolla.commons.config.PropertiesMuncherPlaceholderConfigurer;
+
+/**
+ * PlaceholderBenchmark.
+ *
+ * <p> Throughput of {@link PropertiesMuncherPlaceholderConfigurer#resolvePlaceholder(String, Properties)} over the 10k
+ * key tree from 1 to 64 threads, against a plain {@link Properties#getProperty(String)} as the baseline. Run with
+ * <code>-prof gc</code> to see the allocation per lookup. </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaceholderBenchmark {
+
+    private static final int SIZE = 10000;
+
+    private BenchmarkConfigurer configurer;
+
+    private Properties properties;
+
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkLogging.quiet();
+
+        PropertiesMuncher muncher = new PropertiesMuncher();
+        muncher.setParentPackage(FixtureGenerator.classpathPackage(SIZE));
+        configurer = new BenchmarkConfigurer();
+        configurer.setPropertiesMuncher(muncher);
+        configurer.setTrim(true);
+        configurer.init();
+
+        properties = (Properties) configurer.getResolvedProperties().clone();
+
+        // every seventh key, so lookups spread over the whole table
+        keys = new String[SIZE / 7];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = FixtureGenerator.key(i * 7);
+        }
+    }
+
+    /**
+     * Walks the keys, each benchmark thread from its own position.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next(int length) {
+            int i = next;
+            next = (i + 1 == length) ? 0 : i + 1;
+            return i;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String resolve1Thread(Cursor cursor) {
+        return configurer.resolve(keys[cursor.next(keys.length)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String resolve4Threads(Cursor cursor) {
+        return configurer.resolve(keys[cursor.next(keys.length)]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String resolve16Threads(Cursor cursor) {
+        return configurer.resolve(keys[cursor.next(keys.length)]);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String resolve64Threads(Cursor cursor) {
+        return configurer.resolve(keys[cursor.next(keys.length)]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String getProperty1Thread(Cursor cursor) {
+        return properties.getProperty(keys[cursor.next(keys.length)]);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String getProperty64Threads(Cursor cursor) {
+        return properties.getProperty(keys[cursor.next(keys.length)]);
+    }
+
+    /**
+     * Exposes the protected placeholder resolution.
+     */
+    static class BenchmarkConfigurer extends PropertiesMuncherPlaceholderConfigurer {
+
+        String resolve(String placeholder) {
+            return resolvePlaceholder(placeholder, null);
+        }
+    }
+}
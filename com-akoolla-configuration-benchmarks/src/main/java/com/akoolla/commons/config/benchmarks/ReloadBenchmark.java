@@ -0,0 +1,150 @@
+package com.akoolla.commons.config.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.akoolla.commons.config.ConfigSnapshot;
+import com.akoolla.commons.config.EnvironmentMuncher;
+import com.akoolla.commons.config.EnvironmentSettings;
+import com.akoolla.commons.config.EnvironmentSettings.Platform;
+import com.akoolla.commons.config.EnvironmentSettings.Profile;
+import com.akoolla.commons.config.LayerCache;
+
+/**
+ * ReloadBenchmark.
+ *
+ * <p> Cost of {@link EnvironmentMuncher#reload()} of the tree of the given size, written to the file system, after
+ * three values of its environment file have changed, and when nothing has. Only the environment file is parsed again,
+ * the global one comes from the {@link LayerCache}, and only the changed keys are merged again. Run with
+ * <code>-prof gc</code> to see the bytes allocated per reload, which grow with the size of the changed file and the
+ * number of changed keys rather than with the size of the merged table. </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReloadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Tree {
+
+        @Param({"100", "10000", "100000"})
+        public int size;
+
+        private File root;
+
+        private File environmentFile;
+
+        /** The environment file as written and with three values changed. */
+        private byte[][] versions;
+
+        private int version;
+
+        private long modified;
+
+        EnvironmentMuncher muncher;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            BenchmarkLogging.quiet();
+            root = Files.createTempDirectory("reload-benchmark").toFile();
+            FixtureGenerator.write(root, size);
+            environmentFile = new File(root, FixtureGenerator.ENVIRONMENTS_DIR + "dev.properties");
+
+            // stored from the same properties so the keys stay on the same lines
+            Properties environment = FixtureGenerator.environment(size);
+            versions = new byte[2][];
+            versions[0] = store(environment);
+            for (int i = 0; i < 30 && i < size; i += 10) {
+                environment.setProperty(FixtureGenerator.key(i), "changed " + i);
+            }
+            versions[1] = store(environment);
+            write(versions[0]);
+            modified = environmentFile.lastModified();
+
+            EnvironmentSettings settings = new EnvironmentSettings(Platform.DEV, Profile.SMALL, "dev");
+            muncher = new EnvironmentMuncher(settings, root.getAbsolutePath(), false, null, new LayerCache());
+            muncher.munch();
+        }
+
+        /**
+         * Switches the environment file to its other version, moving its modification time on so it is seen to change.
+         */
+        public void change() throws IOException {
+            version ^= 1;
+            write(versions[version]);
+            modified += 1000;
+            environmentFile.setLastModified(modified);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            delete(root);
+        }
+
+        private void write(byte[] content) throws IOException {
+            OutputStream out = new FileOutputStream(environmentFile);
+            try {
+                out.write(content);
+            } finally {
+                out.close();
+            }
+        }
+
+        private static byte[] store(Properties properties) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            properties.store(out, null);
+            return out.toByteArray();
+        }
+
+        private static void delete(File file) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    delete(child);
+                }
+            }
+            file.delete();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ChangedTree extends Tree {
+
+        @Setup(Level.Invocation)
+        public void changeFile() throws IOException {
+            change();
+        }
+    }
+
+    @Benchmark
+    public ConfigSnapshot threeKeysChanged(ChangedTree tree) {
+        return tree.muncher.reload();
+    }
+
+    @Benchmark
+    public ConfigSnapshot unchanged(Tree tree) {
+        return tree.muncher.reload();
+    }
+}
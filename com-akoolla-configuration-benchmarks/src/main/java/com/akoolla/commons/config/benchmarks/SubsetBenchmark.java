@@ -0,0 +1,70 @@
+package com.akoolla.commons.config.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.akoolla.commons.config.ConfigSnapshot;
+import com.akoolla.commons.config.PropertiesMuncher;
+
+/**
+ * SubsetBenchmark.
+ *
+ * <p> Cost of collecting the keys under one prefix of the 10k key tree, about 30 of them, with
+ * {@link ConfigSnapshot#subset(String)} against the usual scan of every key of the munched {@link Properties}. </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubsetBenchmark {
+
+    private static final int SIZE = 10000;
+
+    private static final String PREFIX = "service7.component3.";
+
+    private ConfigSnapshot snapshot;
+
+    private Properties properties;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkLogging.quiet();
+        PropertiesMuncher muncher = new PropertiesMuncher();
+        muncher.setParentPackage(FixtureGenerator.classpathPackage(SIZE));
+        snapshot = muncher.munchClassPathBasedSnapshot();
+        properties = snapshot.toProperties();
+        snapshot.subset(PREFIX);
+    }
+
+    @Benchmark
+    public Map<String, String> scanProperties() {
+        Map<String, String> group = new HashMap<String, String>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(PREFIX)) {
+                group.put(key.substring(PREFIX.length()), properties.getProperty(key));
+            }
+        }
+        return group;
+    }
+
+    @Benchmark
+    public Map<String, String> subset() {
+        return snapshot.subset(PREFIX).toMap();
+    }
+}
@@ -0,0 +1,397 @@
+package com.akoolla.commons.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BoundInterfaces.
+ *
+ * <p> Makes the classes {@link ConfigBinder} binds interfaces to. The class made for an interface has a final field
+ * for each getter, of the getter's own type so primitives aren't boxed, a getter returning it, and a constructor
+ * taking the description {@link Object#toString()} returns and the values of the getters in order, which it casts and
+ * unboxes into the fields once. Equality is identity, as for any object. </p>
+ *
+ * <p> The class is defined in the interface's own package with {@link MethodHandles.Lookup}, so package-private
+ * interfaces bind too. Java 8 has no way to do that, there it is defined by a class loader of its own beneath the
+ * interface's, which can only implement public interfaces whose getters return public types. </p>
+ */
+final class BoundInterfaces {
+
+    private static final int VERSION = 52;
+
+    private static final int ACC_PUBLIC = 0x0001;
+
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private static final int ACC_FINAL = 0x0010;
+
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final String CONSTRUCTOR = "(Ljava/lang/String;[Ljava/lang/Object;)V";
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    /** MethodHandles.privateLookupIn(Class, Lookup), or null before Java 9. */
+    private static final Method PRIVATE_LOOKUP_IN;
+
+    /** MethodHandles.Lookup.defineClass(byte[]), or null before Java 9. */
+    private static final Method DEFINE_CLASS;
+
+    static {
+        Method privateLookupIn;
+        Method defineClass;
+        try {
+            privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class,
+                    MethodHandles.Lookup.class);
+            defineClass = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+        } catch (NoSuchMethodException e) {
+            privateLookupIn = null;
+            defineClass = null;
+        }
+        PRIVATE_LOOKUP_IN = privateLookupIn;
+        DEFINE_CLASS = defineClass;
+    }
+
+    private BoundInterfaces() {
+    }
+
+    /**
+     * @param type The interface to implement
+     * @param getters Its getters, in the order the constructor is given their values
+     * @return The constructor of a new class implementing the interface, as (String, Object[])Object
+     * @throws IllegalArgumentException if the class can't be defined
+     */
+    static MethodHandle constructor(Class<?> type, Method[] getters) {
+        String name = type.getName() + "$$Bound" + COUNT.incrementAndGet();
+        byte[] bytes = generate(name.replace('.', '/'), type, getters);
+        MethodType constructorType = MethodType.methodType(void.class, String.class, Object[].class);
+        try {
+            MethodHandle constructor;
+            if (DEFINE_CLASS != null) {
+                MethodHandles.Lookup lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, type,
+                        MethodHandles.lookup());
+                Class<?> bound = (Class<?>) DEFINE_CLASS.invoke(lookup, (Object) bytes);
+                constructor = lookup.findConstructor(bound, constructorType);
+            } else {
+                checkPublic(type, getters);
+                Class<?> bound = new DefiningLoader(type.getClassLoader()).define(name, bytes);
+                constructor = MethodHandles.publicLookup().findConstructor(bound, constructorType);
+            }
+            return constructor.asType(MethodType.methodType(Object.class, String.class, Object[].class));
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName() + ", " + e.getCause(), e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName() + ", " + e.getMessage(), e);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Generated " + name + " has no constructor", e);
+        }
+    }
+
+    /**
+     * Checks a class loader of its own could implement the interface.
+     */
+    private static void checkPublic(Class<?> type, Method[] getters) {
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        types.add(type);
+        for (Method getter : getters) {
+            types.add(getter.getReturnType());
+        }
+        for (Class<?> each : types) {
+            if (!each.isPrimitive() && !Modifier.isPublic(each.getModifiers())) {
+                throw new IllegalArgumentException("Cannot bind " + type.getName() + " before Java 9, "
+                        + each.getName() + " isn't public");
+            }
+        }
+    }
+
+    private static byte[] generate(String name, Class<?> type, Method[] getters) {
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.type(name);
+        int superClass = pool.type("java/lang/Object");
+        int implemented = pool.type(type.getName().replace('.', '/'));
+        int code = pool.utf8("Code");
+        int description = pool.field(name, "description", "Ljava/lang/String;");
+        int[] fields = new int[getters.length];
+        for (int i = 0; i < getters.length; i++) {
+            fields[i] = pool.field(name, "p" + i, descriptor(getters[i].getReturnType()));
+        }
+
+        ByteArrayOutputStream methods = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(methods);
+            int count = 0;
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            body.write(0x2a); // aload_0
+            body.write(0xb7); // invokespecial Object.<init>
+            writeShort(body, pool.method("java/lang/Object", "<init>", "()V"));
+            body.write(0x2a); // aload_0
+            body.write(0x2b); // aload_1
+            body.write(0xb5); // putfield description
+            writeShort(body, description);
+            for (int i = 0; i < getters.length; i++) {
+                Class<?> returned = getters[i].getReturnType();
+                body.write(0x2a); // aload_0
+                body.write(0x2c); // aload_2
+                pushInt(body, i);
+                body.write(0x32); // aaload
+                body.write(0xc0); // checkcast
+                writeShort(body, pool.type(internalName(returned.isPrimitive() ? box(returned) : returned)));
+                if (returned.isPrimitive()) {
+                    body.write(0xb6); // invokevirtual, e.g. Integer.intValue()
+                    writeShort(body, pool.method(internalName(box(returned)), returned.getName() + "Value",
+                            "()" + descriptor(returned)));
+                }
+                body.write(0xb5); // putfield
+                writeShort(body, fields[i]);
+            }
+            body.write(0xb1); // return
+            writeMethod(out, pool, ACC_PUBLIC, "<init>", CONSTRUCTOR, code, 3, 3, body.toByteArray());
+            count++;
+
+            boolean toString = true;
+            for (int i = 0; i < getters.length; i++) {
+                Class<?> returned = getters[i].getReturnType();
+                body = new ByteArrayOutputStream();
+                body.write(0x2a); // aload_0
+                body.write(0xb4); // getfield
+                writeShort(body, fields[i]);
+                body.write(returnOpcode(returned));
+                writeMethod(out, pool, ACC_PUBLIC, getters[i].getName(), "()" + descriptor(returned), code, 2, 1,
+                        body.toByteArray());
+                count++;
+                toString &= !getters[i].getName().equals("toString");
+            }
+
+            if (toString) {
+                body = new ByteArrayOutputStream();
+                body.write(0x2a); // aload_0
+                body.write(0xb4); // getfield description
+                writeShort(body, description);
+                body.write(0xb0); // areturn
+                writeMethod(out, pool, ACC_PUBLIC, "toString", "()Ljava/lang/String;", code, 1, 1,
+                        body.toByteArray());
+                count++;
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            pool.write(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(implemented);
+            out.writeShort(getters.length + 1);
+            writeField(out, pool, "description", "Ljava/lang/String;");
+            for (int i = 0; i < getters.length; i++) {
+                writeField(out, pool, "p" + i, descriptor(getters[i].getReturnType()));
+            }
+            out.writeShort(count);
+            methods.writeTo(out);
+            out.writeShort(0);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't write " + name, e);
+        }
+    }
+
+    private static void writeField(DataOutputStream out, ConstantPool pool, String name, String descriptor)
+            throws IOException {
+        out.writeShort(ACC_PRIVATE | ACC_FINAL);
+        out.writeShort(pool.utf8(name));
+        out.writeShort(pool.utf8(descriptor));
+        out.writeShort(0);
+    }
+
+    /**
+     * Writes a method whose code has no branches, so needs no stack map.
+     */
+    private static void writeMethod(DataOutputStream out, ConstantPool pool, int access, String name,
+                                    String descriptor, int code, int maxStack, int maxLocals, byte[] body)
+            throws IOException {
+        out.writeShort(access);
+        out.writeShort(pool.utf8(name));
+        out.writeShort(pool.utf8(descriptor));
+        out.writeShort(1);
+        out.writeShort(code);
+        out.writeInt(12 + body.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(body.length);
+        out.write(body);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static void pushInt(ByteArrayOutputStream body, int value) {
+        if (value <= 5) {
+            body.write(0x03 + value); // iconst_n
+        } else if (value <= Byte.MAX_VALUE) {
+            body.write(0x10); // bipush
+            body.write(value);
+        } else {
+            body.write(0x11); // sipush
+            writeShort(body, value);
+        }
+    }
+
+    private static void writeShort(ByteArrayOutputStream body, int value) {
+        body.write(value >>> 8);
+        body.write(value);
+    }
+
+    private static int returnOpcode(Class<?> type) {
+        if (type == long.class) {
+            return 0xad; // lreturn
+        }
+        if (type == double.class) {
+            return 0xaf; // dreturn
+        }
+        if (type == int.class || type == boolean.class) {
+            return 0xac; // ireturn
+        }
+        return 0xb0; // areturn
+    }
+
+    /**
+     * @return The box of one of the primitives {@link ConfigBinder} binds
+     */
+    private static Class<?> box(Class<?> type) {
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        return Double.class;
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type == int.class) {
+            return "I";
+        }
+        if (type == long.class) {
+            return "J";
+        }
+        if (type == boolean.class) {
+            return "Z";
+        }
+        if (type == double.class) {
+            return "D";
+        }
+        return "L" + internalName(type) + ";";
+    }
+
+    /**
+     * The constant pool of a class being written, each constant added once.
+     */
+    private static final class ConstantPool {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+        private int next = 1;
+
+        int utf8(String value) {
+            Integer index = indexes.get("U" + value);
+            if (index == null) {
+                index = add("U" + value);
+                try {
+                    out.writeByte(1);
+                    out.writeUTF(value);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return index;
+        }
+
+        int type(String internalName) {
+            return reference("C" + internalName, 7, utf8(internalName), -1);
+        }
+
+        int field(String owner, String name, String descriptor) {
+            return reference("F" + owner + "." + name, 9, type(owner), nameAndType(name, descriptor));
+        }
+
+        int method(String owner, String name, String descriptor) {
+            return reference("M" + owner + "." + name + descriptor, 10, type(owner), nameAndType(name, descriptor));
+        }
+
+        private int nameAndType(String name, String descriptor) {
+            return reference("N" + name + ":" + descriptor, 12, utf8(name), utf8(descriptor));
+        }
+
+        /**
+         * @param second The second index of the constant, or -1 if it has one
+         */
+        private int reference(String key, int tag, int first, int second) {
+            Integer index = indexes.get(key);
+            if (index == null) {
+                index = add(key);
+                try {
+                    out.writeByte(tag);
+                    out.writeShort(first);
+                    if (second >= 0) {
+                        out.writeShort(second);
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return index;
+        }
+
+        private Integer add(String key) {
+            Integer index = Integer.valueOf(next++);
+            indexes.put(key, index);
+            return index;
+        }
+
+        void write(DataOutputStream to) throws IOException {
+            to.writeShort(next);
+            bytes.writeTo(to);
+        }
+    }
+
+    /**
+     * Defines a bound class beneath the class loader of its interface, before Java 9.
+     */
+    private static final class DefiningLoader extends ClassLoader {
+
+        DefiningLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
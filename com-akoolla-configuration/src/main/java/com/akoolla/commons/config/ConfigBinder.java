@@ -0,0 +1,452 @@
+package com.akoolla.commons.config;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ConfigBinder.
+ *
+ * <p> Binds the keys under a prefix onto an interface or a class, e.g. db.primary.url and db.primary.maxPoolSize onto
+ * an interface with <code>getUrl()</code> and <code>getMaxPoolSize()</code>, or a class with
+ * <code>setUrl(String)</code> and <code>setMaxPoolSize(int)</code>. Properties may be strings, ints, longs, booleans,
+ * doubles, their boxes, durations, enums, or interfaces and classes that are bound in turn to the keys under
+ * "<i>name</i>.". Each key is the property name unless a {@link ConfigKey} names another. </p>
+ *
+ * <p> Binding is strict: a key under the prefix that no property is bound to, or a property of an interface with
+ * neither a key nor a default, fails the bind with a {@link ConfigBindingException} listing every such key. A property
+ * of a class with no key keeps the value the class gave it. Values that don't parse fail with an
+ * {@link InvalidPropertyValueException}. </p>
+ *
+ * <p> How to bind a type is worked out once, the first time it is bound: its properties, their keys and parsers, a
+ * {@link MethodHandle} for each setter and one for the constructor, or for an interface the constructor of a class
+ * made to implement it, see {@link BoundInterfaces}. A bind then just parses the values and makes the object, without
+ * looking the type over again. The class made for an interface keeps each value in a final field of the getter's
+ * type, so a getter reads a field like any hand written one, with no lookup or boxing. The object bound for a
+ * snapshot, prefix and type is kept by the snapshot and given to every later bind of them, so rebinding the current
+ * snapshot is a lookup and objects bound from a new one are made once when it replaces it. Bound objects are shared
+ * in this way and shouldn't be changed. </p>
+ */
+public final class ConfigBinder {
+
+    /** How to bind each type, worked out the first time it is bound. */
+    private static final ClassValue<BindingPlan> PLANS = new ClassValue<BindingPlan>() {
+        @Override
+        protected BindingPlan computeValue(Class<?> type) {
+            return new BindingPlan(type);
+        }
+    };
+
+    private ConfigBinder() {
+    }
+
+    /**
+     * @param snapshot The snapshot to bind from
+     * @param prefix The start of the keys to bind, e.g. "db.primary."
+     * @param type The interface or class to bind them to
+     * @return The bound object, the same one for every bind of this snapshot, prefix and type
+     * @throws ConfigBindingException if there are keys under the prefix that no property is bound to, or an interface
+     *         property has no key and no default
+     * @throws InvalidPropertyValueException if a value doesn't parse as its property's type
+     * @throws IllegalArgumentException if the type can't be bound
+     */
+    public static <T> T bind(ConfigSnapshot snapshot, String prefix, Class<T> type) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : snapshot");
+        }
+        if (prefix == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : prefix");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : type");
+        }
+
+        ConcurrentMap<Object, Object> bound = snapshot.bindings();
+        BindingKey key = new BindingKey(type, prefix);
+        Object value = bound.get(key);
+        if (value == null) {
+            value = bindUncached(snapshot, prefix, type);
+            Object raced = bound.putIfAbsent(key, value);
+            if (raced != null) {
+                value = raced;
+            }
+        }
+        return type.cast(value);
+    }
+
+    private static Object bindUncached(ConfigSnapshot snapshot, String prefix, Class<?> type) {
+        List<String> unknown = new ArrayList<String>();
+        List<String> missing = new ArrayList<String>();
+        Object value = PLANS.get(type).bind(snapshot, prefix, unknown, missing);
+        if (!unknown.isEmpty() || !missing.isEmpty()) {
+            StringBuilder message = new StringBuilder("Couldn't bind ").append(prefix).append("* to ")
+                    .append(type.getName());
+            if (!unknown.isEmpty()) {
+                message.append(", no property for keys ").append(unknown);
+            }
+            if (!missing.isEmpty()) {
+                message.append(", no value or default for keys ").append(missing);
+            }
+            throw new ConfigBindingException(message.toString(), unknown, missing);
+        }
+        return value;
+    }
+
+    /**
+     * The snapshot's key for the object bound to a prefix and type.
+     */
+    private static final class BindingKey {
+
+        private final Class<?> type;
+
+        private final String prefix;
+
+        BindingKey(Class<?> type, String prefix) {
+            this.type = type;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof BindingKey)) {
+                return false;
+            }
+            BindingKey that = (BindingKey) other;
+            return type == that.type && prefix.equals(that.prefix);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + prefix.hashCode();
+        }
+    }
+
+    /**
+     * The kinds of value a property can hold.
+     */
+    private enum Kind {
+        STRING("a string"),
+        INT("an int"),
+        LONG("a long"),
+        BOOLEAN("a boolean"),
+        DOUBLE("a double"),
+        DURATION("a duration such as 250ms or 5s"),
+        ENUM("one of "),
+        NESTED(null);
+
+        private final String expected;
+
+        Kind(String expected) {
+            this.expected = expected;
+        }
+
+        static Kind of(Class<?> type) {
+            if (type == String.class || type == CharSequence.class) {
+                return STRING;
+            }
+            if (type == int.class || type == Integer.class) {
+                return INT;
+            }
+            if (type == long.class || type == Long.class) {
+                return LONG;
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            }
+            if (type == double.class || type == Double.class) {
+                return DOUBLE;
+            }
+            if (type == Duration.class) {
+                return DURATION;
+            }
+            if (type.isEnum()) {
+                return ENUM;
+            }
+            if (type.isPrimitive() || type.isArray() || type.getName().startsWith("java.")) {
+                return null;
+            }
+            return NESTED;
+        }
+    }
+
+    /**
+     * A property of a bound type: its key, how to parse its value and, for a class, how to set it.
+     */
+    private static final class Property {
+
+        private final String key;
+
+        private final Class<?> type;
+
+        private final Kind kind;
+
+        /** The value to parse when there is no key, or null if there is no default. */
+        private final String defaultValue;
+
+        /** The getter of an interface, null for a class. */
+        private final Method getter;
+
+        /** The setter of a class as (Object, Object)void, null for an interface. */
+        private final MethodHandle setter;
+
+        Property(String key, Class<?> type, ConfigKey annotation, Method getter, MethodHandle setter) {
+            this.kind = Kind.of(type);
+            if (kind == null) {
+                throw new IllegalArgumentException("Cannot bind " + key + " to " + type.getName() + " of "
+                        + (getter != null ? getter : setter));
+            }
+            this.key = key;
+            this.type = type;
+            this.defaultValue = (annotation == null || ConfigKey.NO_DEFAULT.equals(annotation.defaultValue()))
+                    ? null : annotation.defaultValue();
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        /**
+         * @return The parsed value, boxed
+         */
+        Object parse(ConfigSnapshot snapshot, String fullKey, String raw) {
+            if (kind == Kind.STRING) {
+                return raw;
+            }
+            String value = raw.trim();
+            try {
+                switch (kind) {
+                    case INT:
+                        return Integer.valueOf(value);
+                    case LONG:
+                        return Long.valueOf(value);
+                    case BOOLEAN:
+                        return Boolean.valueOf(TypedConfig.parseBoolean(value));
+                    case DOUBLE:
+                        return Double.valueOf(value);
+                    case DURATION:
+                        return Duration.ofNanos(TypedConfig.parseDurationNanos(value));
+                    default:
+                        return enumValue(value);
+                }
+            } catch (IllegalArgumentException e) {
+                throw invalid(snapshot, fullKey, raw, e);
+            } catch (ArithmeticException e) {
+                throw invalid(snapshot, fullKey, raw, e);
+            }
+        }
+
+        private Object enumValue(String value) {
+            for (Object constant : type.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equalsIgnoreCase(value)) {
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException("No " + type.getName() + " constant : " + value);
+        }
+
+        private InvalidPropertyValueException invalid(ConfigSnapshot snapshot, String fullKey, String raw,
+                                                      Throwable cause) {
+            String expected = (kind == Kind.ENUM) ? kind.expected + Arrays.toString(type.getEnumConstants())
+                    : kind.expected;
+            return new InvalidPropertyValueException(fullKey, raw, expected, snapshot.getSource(fullKey), cause);
+        }
+    }
+
+    /**
+     * How to bind a type, worked out once.
+     */
+    private static final class BindingPlan {
+
+        private final Class<?> type;
+
+        private final Property[] properties;
+
+        /** The properties by key. */
+        private final Map<String, Property> byKey;
+
+        /** Makes the object: ()Object for a class, (String, Object[])Object for an interface. */
+        private final MethodHandle constructor;
+
+        BindingPlan(Class<?> type) {
+            this.type = type;
+            if (Kind.of(type) != Kind.NESTED) {
+                throw new IllegalArgumentException("Cannot bind " + type.getName()
+                        + ", it isn't an interface or a class with setters");
+            }
+            Map<String, Property> found = new TreeMap<String, Property>();
+            try {
+                if (type.isInterface()) {
+                    for (Method method : type.getMethods()) {
+                        if (Modifier.isStatic(method.getModifiers()) || method.isDefault()) {
+                            continue;
+                        }
+                        if (method.getParameterTypes().length != 0 || method.getReturnType() == void.class) {
+                            throw new IllegalArgumentException("Cannot bind " + type.getName() + ", " + method
+                                    + " isn't a getter");
+                        }
+                        add(found, propertyName(method.getName(), false), method.getReturnType(), method, null);
+                    }
+                    Collection<Property> getters = found.values();
+                    Method[] methods = new Method[getters.size()];
+                    int i = 0;
+                    for (Property property : getters) {
+                        methods[i++] = property.getter;
+                    }
+                    constructor = BoundInterfaces.constructor(type, methods);
+                } else {
+                    if (type.isPrimitive() || type.isArray() || Modifier.isAbstract(type.getModifiers())) {
+                        throw new IllegalArgumentException("Cannot bind " + type.getName()
+                                + ", it's not an interface or a concrete class");
+                    }
+                    for (Method method : type.getMethods()) {
+                        String name = method.getName();
+                        if (Modifier.isStatic(method.getModifiers()) || !name.startsWith("set")
+                                || name.length() == 3 || method.getParameterTypes().length != 1) {
+                            continue;
+                        }
+                        MethodHandle setter = unreflect(method)
+                                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                        add(found, propertyName(name, true), method.getParameterTypes()[0], method, setter);
+                    }
+                    constructor = unreflect(type.getConstructor()).asType(MethodType.methodType(Object.class));
+                }
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("Cannot bind " + type.getName() + ", it has no public no-arg "
+                        + "constructor", e);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot bind " + type.getName() + ", " + e.getMessage(), e);
+            }
+            this.byKey = Collections.unmodifiableMap(new HashMap<String, Property>(found));
+            this.properties = found.values().toArray(new Property[found.size()]);
+        }
+
+        private void add(Map<String, Property> found, String name, Class<?> valueType, Method method,
+                         MethodHandle setter) {
+            ConfigKey annotation = method.getAnnotation(ConfigKey.class);
+            String key = (annotation == null || annotation.value().length() == 0) ? name : annotation.value();
+            if (found.containsKey(key)) {
+                throw new IllegalArgumentException("Cannot bind " + type.getName() + ", more than one property has "
+                        + "the key " + key);
+            }
+            found.put(key, new Property(key, valueType, annotation, (setter == null) ? method : null, setter));
+        }
+
+        /**
+         * @param unknown Collects the keys under the prefix no property is bound to
+         * @param missing Collects the keys of interface properties with no value and no default
+         * @return The bound object, or null if a key was added to either list
+         */
+        Object bind(ConfigSnapshot snapshot, String prefix, List<String> unknown, List<String> missing) {
+            for (String key : snapshot.subset(prefix).keys()) {
+                if (!byKey.containsKey(key) && !isNestedKey(key)) {
+                    unknown.add(prefix + key);
+                }
+            }
+
+            int problems = unknown.size() + missing.size();
+            Object[] values = new Object[properties.length];
+            for (int i = 0; i < properties.length; i++) {
+                Property property = properties[i];
+                String fullKey = prefix + property.key;
+                if (property.kind == Kind.NESTED) {
+                    values[i] = PLANS.get(property.type).bind(snapshot, fullKey + ".", unknown, missing);
+                    continue;
+                }
+                String raw = snapshot.get(fullKey);
+                if (raw == null) {
+                    raw = property.defaultValue;
+                }
+                if (raw != null) {
+                    values[i] = property.parse(snapshot, fullKey, raw);
+                } else if (property.getter != null) {
+                    missing.add(fullKey);
+                }
+            }
+            if (unknown.size() + missing.size() > problems) {
+                return null;
+            }
+
+            try {
+                if (type.isInterface()) {
+                    return (Object) constructor.invokeExact(type.getSimpleName() + "[" + prefix + "*]", values);
+                }
+                Object bound = (Object) constructor.invokeExact();
+                for (int i = 0; i < properties.length; i++) {
+                    if (values[i] != null) {
+                        properties[i].setter.invokeExact(bound, values[i]);
+                    }
+                }
+                return bound;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException("Couldn't bind " + prefix + "* to " + type.getName(), e);
+            }
+        }
+
+        /**
+         * @return Whether the key is under the keys of a nested property, e.g. "pool.max" for a property "pool"
+         */
+        private boolean isNestedKey(String key) {
+            for (int dot = key.indexOf('.'); dot > 0; dot = key.indexOf('.', dot + 1)) {
+                Property property = byKey.get(key.substring(0, dot));
+                if (property != null && property.kind == Kind.NESTED) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return The property named by a getter or setter, e.g. "maxPoolSize" for getMaxPoolSize, isEnabled and
+         *         setMaxPoolSize, or the name of a getter without a prefix, e.g. "url" for url()
+         */
+        private static String propertyName(String methodName, boolean setter) {
+            int start = 0;
+            if (setter) {
+                start = 3;
+            } else if (methodName.startsWith("get") && methodName.length() > 3
+                    && Character.isUpperCase(methodName.charAt(3))) {
+                start = 3;
+            } else if (methodName.startsWith("is") && methodName.length() > 2
+                    && Character.isUpperCase(methodName.charAt(2))) {
+                start = 2;
+            }
+            if (start == 0) {
+                return methodName;
+            }
+            return Character.toLowerCase(methodName.charAt(start)) + methodName.substring(start + 1);
+        }
+
+        /**
+         * Method handles of public members of non-public types, such as setters of package-private classes, need
+         * the members made accessible first.
+         */
+        private static MethodHandle unreflect(Method method) throws IllegalAccessException {
+            if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                method.setAccessible(true);
+            }
+            return MethodHandles.lookup().unreflect(method);
+        }
+
+        private static MethodHandle unreflect(Constructor<?> constructor) throws IllegalAccessException {
+            if (!Modifier.isPublic(constructor.getDeclaringClass().getModifiers())) {
+                constructor.setAccessible(true);
+            }
+            return MethodHandles.lookup().unreflectConstructor(constructor);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.akoolla.commons.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ConfigBindingException.
+ *
+ * <p> Thrown by {@link ConfigBinder} when the keys under a prefix don't match the type being bound: keys that no
+ * property is bound to, which are usually misspelt, and properties with no key and no default. Every such key is
+ * reported at once. </p>
+ */
+public class ConfigBindingException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> unknownKeys;
+
+    private final List<String> missingKeys;
+
+    public ConfigBindingException(String message, List<String> unknownKeys, List<String> missingKeys) {
+        super(message);
+        this.unknownKeys = Collections.unmodifiableList(new ArrayList<String>(unknownKeys));
+        this.missingKeys = Collections.unmodifiableList(new ArrayList<String>(missingKeys));
+    }
+
+    /**
+     * @return The keys under the prefix that no property is bound to
+     */
+    public List<String> getUnknownKeys() {
+        return unknownKeys;
+    }
+
+    /**
+     * @return The keys of properties that have neither a value nor a default
+     */
+    public List<String> getMissingKeys() {
+        return missingKeys;
+    }
+}
@@ -0,0 +1,57 @@
+package com.akoolla.commons.config;
+
+/**
+ * ConfigChange.
+ *
+ * <p> How a key's value changed between the snapshot a {@link ConfigKeyListener} was last told about and the one now
+ * being served. When several snapshots are published before the listener is called the change is from the value
+ * before the first to the value after the last. </p>
+ */
+public final class ConfigChange {
+
+    private final String key;
+
+    private final String oldValue;
+
+    private final String newValue;
+
+    public ConfigChange(String key, String oldValue, String newValue) {
+        if (key == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : key");
+        }
+        this.key = key;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The value before, or <code>null</code> if the key was added
+     */
+    public String getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * @return The value now, or <code>null</code> if the key was removed
+     */
+    public String getNewValue() {
+        return newValue;
+    }
+
+    public boolean isAdded() {
+        return oldValue == null;
+    }
+
+    public boolean isRemoved() {
+        return newValue == null;
+    }
+
+    @Override
+    public String toString() {
+        return key + ": " + oldValue + " -> " + newValue;
+    }
+}
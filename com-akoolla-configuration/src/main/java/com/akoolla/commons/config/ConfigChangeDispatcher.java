@@ -0,0 +1,152 @@
+package com.akoolla.commons.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * ConfigChangeDispatcher.
+ *
+ * <p> Tells the {@link ConfigKeyListener}s subscribed to a {@link ConfigSnapshotHolder} about the keys that change,
+ * on a thread of its own so publishing a snapshot never waits for a listener. Publishing only records the old and new
+ * value of each changed key and schedules a dispatch if none is pending; the dispatch finds the subscribers to each
+ * recorded key in a {@link SubscriptionTrie} and calls each listener once with all of its changes. Snapshots published
+ * while a dispatch is pending are coalesced into it, a key changed back to its old value in between is not reported,
+ * so a listener slower than the reloads sees fewer, larger batches rather than falling behind. </p>
+ *
+ * <p> The dispatcher thread is a daemon and dies once idle, so a holder nobody subscribes to costs nothing. </p>
+ */
+final class ConfigChangeDispatcher implements Runnable {
+
+    /** The logger for this class. **/
+    private static Log log = LogFactory.getLog(ConfigChangeDispatcher.class);
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    private final SubscriptionTrie subscriptions = new SubscriptionTrie();
+
+    private final Executor executor;
+
+    private final Object lock = new Object();
+
+    /** The value before the first and after the last of the changes to each key not yet dispatched. */
+    private Map<String, String[]> pending = new LinkedHashMap<String, String[]>();
+
+    /** Whether a dispatch has been handed to the executor and not yet taken the pending changes. */
+    private boolean scheduled;
+
+    ConfigChangeDispatcher() {
+        this(newDefaultExecutor());
+    }
+
+    /**
+     * @param executor The executor to dispatch on, which must run one dispatch at a time
+     */
+    ConfigChangeDispatcher(Executor executor) {
+        this.executor = executor;
+    }
+
+    ConfigSubscription subscribe(String key, boolean prefix, ConfigKeyListener listener) {
+        if (key == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : key");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : listener");
+        }
+        ConfigSubscription subscription = new ConfigSubscription(key, prefix, listener, this);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    void unsubscribe(ConfigSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * @return The number of subscriptions not cancelled
+     */
+    int size() {
+        return subscriptions.size();
+    }
+
+    SubscriptionTrie getSubscriptions() {
+        return subscriptions;
+    }
+
+    /**
+     * Records the changed keys' values and schedules a dispatch of them, unless nobody is subscribed.
+     */
+    void published(ConfigSnapshot previous, ConfigSnapshot current, Set<String> changedKeys) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        boolean schedule;
+        synchronized (lock) {
+            for (String key : changedKeys) {
+                String[] values = pending.get(key);
+                if (values == null) {
+                    pending.put(key, new String[] {previous.get(key), current.get(key)});
+                } else {
+                    values[1] = current.get(key);
+                }
+            }
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            executor.execute(this);
+        }
+    }
+
+    /**
+     * Dispatches the pending changes.
+     */
+    public void run() {
+        Map<String, String[]> changes;
+        synchronized (lock) {
+            changes = pending;
+            pending = new LinkedHashMap<String, String[]>();
+            scheduled = false;
+        }
+
+        Map<ConfigKeyListener, List<ConfigChange>> byListener = SubscriptionTrie.newChanges();
+        for (Map.Entry<String, String[]> entry : changes.entrySet()) {
+            String[] values = entry.getValue();
+            if ((values[0] == null) ? (values[1] != null) : !values[0].equals(values[1])) {
+                subscriptions.collect(new ConfigChange(entry.getKey(), values[0], values[1]), byListener);
+            }
+        }
+
+        for (Map.Entry<ConfigKeyListener, List<ConfigChange>> entry : byListener.entrySet()) {
+            try {
+                entry.getKey().keysChanged(entry.getValue());
+            } catch (RuntimeException e) {
+                log.error("Config key listener " + entry.getKey() + " failed", e);
+            }
+        }
+    }
+
+    private static Executor newDefaultExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "ConfigSnapshotHolder-dispatcher-" + COUNT.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
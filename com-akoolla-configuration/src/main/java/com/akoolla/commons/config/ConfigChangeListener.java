@@ -0,0 +1,18 @@
+package com.akoolla.commons.config;
+
+import java.util.Set;
+
+/**
+ * ConfigChangeListener.
+ *
+ * <p> Notified by a {@link ConfigSnapshotHolder} after it has published a new {@link ConfigSnapshot}. </p>
+ */
+public interface ConfigChangeListener {
+
+    /**
+     * @param previous The snapshot that was replaced
+     * @param current The snapshot now being served
+     * @param changedKeys The keys that were added, removed or given a different value, never empty
+     */
+    void configChanged(ConfigSnapshot previous, ConfigSnapshot current, Set<String> changedKeys);
+}
@@ -0,0 +1,34 @@
+package com.akoolla.commons.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * ConfigKey.
+ *
+ * <p> Names the key a getter of an interface, or a setter of a class, is bound to by {@link ConfigBinder}, relative to
+ * the prefix being bound, and optionally the value to use when there is no such key. Without it the key is the
+ * property name, e.g. "maxPoolSize" for <code>getMaxPoolSize()</code>, <code>maxPoolSize()</code> or
+ * <code>setMaxPoolSize(int)</code>. </p>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ConfigKey {
+
+    /** Marks that there is no default value. */
+    String NO_DEFAULT = "\u0000";
+
+    /**
+     * @return The key relative to the prefix being bound, the property name if empty
+     */
+    String value() default "";
+
+    /**
+     * @return The value to bind when there is no key
+     */
+    String defaultValue() default NO_DEFAULT;
+}
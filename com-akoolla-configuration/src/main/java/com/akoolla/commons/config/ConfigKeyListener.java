@@ -0,0 +1,18 @@
+package com.akoolla.commons.config;
+
+import java.util.List;
+
+/**
+ * ConfigKeyListener.
+ *
+ * <p> Told about changes to the keys it was subscribed to with {@link ConfigSnapshotHolder#subscribe(String,
+ * ConfigKeyListener)} or {@link ConfigSnapshotHolder#subscribePrefix(String, ConfigKeyListener)}. Called on the
+ * holder's dispatcher thread, never on the thread that published the snapshot, and never by two threads at once. </p>
+ */
+public interface ConfigKeyListener {
+
+    /**
+     * @param changes The keys subscribed to that changed since the listener was last called, each once, never empty
+     */
+    void keysChanged(List<ConfigChange> changes);
+}
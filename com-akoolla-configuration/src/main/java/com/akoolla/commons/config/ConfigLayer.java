@@ -0,0 +1,34 @@
+package com.akoolla.commons.config;
+
+/**
+ * ConfigLayer.
+ *
+ * <p> The properties files that make up a munched configuration, from the lowest precedence to the highest. </p>
+ */
+public enum ConfigLayer {
+
+    /** config/environment.properties. */
+    GLOBAL("global"),
+
+    /** config/profiles/&lt;SERVER_PROFILE&gt;.properties. */
+    PROFILE("profile"),
+
+    /** config/environments/&lt;SERVER_ENV&gt;.properties. */
+    ENVIRONMENT("environment"),
+
+    /** config/environment.properties in the app.datadir directory. */
+    DATA_DIR_GLOBAL("data-dir global override"),
+
+    /** config/environments/&lt;SERVER_ENV&gt;.properties in the app.datadir directory. */
+    DATA_DIR_ENVIRONMENT("data-dir environment override");
+
+    private final String description;
+
+    private ConfigLayer(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
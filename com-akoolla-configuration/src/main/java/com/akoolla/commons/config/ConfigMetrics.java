@@ -0,0 +1,333 @@
+package com.akoolla.commons.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * ConfigMetrics.
+ *
+ * <p> Records how long each properties file took to find and parse, its size and number of keys, how long the layers
+ * took to merge, and which keys are looked up and missed. Lookups through {@link ConfigSnapshot#get(String)} and
+ * {@link TypedConfig} are sampled, one in every {@link #getSampleRate() sample rate} is counted. </p>
+ *
+ * <p> Nothing is recorded until metrics are enabled, by {@link #setEnabled(boolean)} or by setting the CONFIG_METRICS
+ * system property or environment variable to true, and while disabled the cost to a lookup is reading one volatile
+ * field. Enabling metrics registers a {@link ConfigMetricsMBean} with the platform MBean server, and
+ * {@link ConfigMetricsListener}s are told of everything recorded. </p>
+ */
+public final class ConfigMetrics {
+
+    /** The logger for this class. **/
+    private static Log log = LogFactory.getLog(ConfigMetrics.class);
+
+    public static final String OBJECT_NAME = "com.akoolla.commons.config:type=ConfigMetrics";
+
+    static String CONFIG_METRICS = "CONFIG_METRICS";
+
+    /** Keys beyond this many are counted in the totals only, so unknown keys can't grow the counts without bound. */
+    private static final int MAX_TRACKED_KEYS = 4096;
+
+    /** Checked before recording anything, read directly by the classes that record. */
+    static volatile boolean enabled;
+
+    private static volatile int sampleRate = 64;
+
+    private static volatile boolean registered;
+
+    private static final List<ConfigMetricsListener> listeners = new CopyOnWriteArrayList<ConfigMetricsListener>();
+
+    /** The last read of each layer, by {@link ConfigLayer} ordinal. */
+    private static final AtomicReferenceArray<String> layerStats =
+            new AtomicReferenceArray<String>(ConfigLayer.values().length);
+
+    private static final AtomicLong mergeCount = new AtomicLong();
+
+    private static final AtomicLong totalMergeNanos = new AtomicLong();
+
+    private static volatile long lastMergeNanos;
+
+    private static final AtomicLong sampledLookups = new AtomicLong();
+
+    private static final AtomicLong sampledMisses = new AtomicLong();
+
+    /** The sampled lookups and misses of each key. */
+    private static final ConcurrentHashMap<String, AtomicLongArray> keyCounts =
+            new ConcurrentHashMap<String, AtomicLongArray>();
+
+    static {
+        if ("true".equalsIgnoreCase(Environment.getSystemProperty(CONFIG_METRICS, false))) {
+            setEnabled(true);
+        }
+    }
+
+    private ConfigMetrics() {
+    }
+
+    /**
+     * Turns recording on or off, registering the MBean the first time it is turned on.
+     */
+    public static void setEnabled(boolean enabled) {
+        ConfigMetrics.enabled = enabled;
+        if (enabled) {
+            register();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param sampleRate Count one in this many lookups, 1 to count every lookup
+     */
+    public static void setSampleRate(int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be at least 1 : " + sampleRate);
+        }
+        ConfigMetrics.sampleRate = sampleRate;
+    }
+
+    public static int getSampleRate() {
+        return sampleRate;
+    }
+
+    public static void addListener(ConfigMetricsListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : listener");
+        }
+        listeners.add(listener);
+    }
+
+    public static void removeListener(ConfigMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public static void reset() {
+        for (int i = 0; i < layerStats.length(); i++) {
+            layerStats.set(i, null);
+        }
+        mergeCount.set(0);
+        totalMergeNanos.set(0);
+        lastMergeNanos = 0;
+        sampledLookups.set(0);
+        sampledMisses.set(0);
+        keyCounts.clear();
+    }
+
+    /**
+     * @return The MBean's view of the metrics
+     */
+    public static ConfigMetricsMBean getMBean() {
+        return Bean.INSTANCE;
+    }
+
+    /**
+     * Collects the timings of a single file read, passed down to the parsing while metrics are enabled.
+     */
+    static final class LayerRead {
+
+        long resolveNanos;
+
+        long parseNanos;
+
+        long bytes;
+    }
+
+    static void layerLoaded(ConfigLayer layer, String source, LayerRead read, int keys) {
+        layerStats.set(layer.ordinal(), layer + " " + source + " resolve=" + micros(read.resolveNanos) + "us parse="
+                + micros(read.parseNanos) + "us bytes=" + read.bytes + " keys=" + keys);
+
+        for (ConfigMetricsListener listener : listeners) {
+            try {
+                listener.layerLoaded(layer, source, read.resolveNanos, read.parseNanos, read.bytes, keys);
+            } catch (RuntimeException e) {
+                log.error("Config metrics listener " + listener + " failed", e);
+            }
+        }
+    }
+
+    static void merged(int layers, int keys, long nanos) {
+        mergeCount.incrementAndGet();
+        totalMergeNanos.addAndGet(nanos);
+        lastMergeNanos = nanos;
+
+        for (ConfigMetricsListener listener : listeners) {
+            try {
+                listener.merged(layers, keys, nanos);
+            } catch (RuntimeException e) {
+                log.error("Config metrics listener " + listener + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * Counts the lookup if it is sampled.
+     */
+    static void lookup(String key, boolean found) {
+        int rate = sampleRate;
+        if ((rate > 1) && (ThreadLocalRandom.current().nextInt(rate) != 0)) {
+            return;
+        }
+
+        sampledLookups.incrementAndGet();
+        if (!found) {
+            sampledMisses.incrementAndGet();
+        }
+
+        AtomicLongArray counts = keyCounts.get(key);
+        if ((counts == null) && (keyCounts.size() < MAX_TRACKED_KEYS)) {
+            AtomicLongArray created = new AtomicLongArray(2);
+            counts = keyCounts.putIfAbsent(key, created);
+            if (counts == null) {
+                counts = created;
+            }
+        }
+        if (counts != null) {
+            counts.incrementAndGet(0);
+            if (!found) {
+                counts.incrementAndGet(1);
+            }
+        }
+
+        for (ConfigMetricsListener listener : listeners) {
+            try {
+                listener.lookupSampled(key, found);
+            } catch (RuntimeException e) {
+                log.error("Config metrics listener " + listener + " failed", e);
+            }
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * @param column 0 to order by lookups, 1 by misses
+     */
+    private static String[] top(int count, final int column) {
+        List<Map.Entry<String, AtomicLongArray>> entries =
+                new ArrayList<Map.Entry<String, AtomicLongArray>>(keyCounts.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, AtomicLongArray>>() {
+
+            public int compare(Map.Entry<String, AtomicLongArray> a, Map.Entry<String, AtomicLongArray> b) {
+                return Long.compare(b.getValue().get(column), a.getValue().get(column));
+            }
+        });
+
+        List<String> result = new ArrayList<String>(Math.min(count, entries.size()));
+        for (Map.Entry<String, AtomicLongArray> entry : entries) {
+            if (result.size() >= count || entry.getValue().get(column) == 0) {
+                break;
+            }
+            long lookups = entry.getValue().get(0) * sampleRate;
+            long misses = entry.getValue().get(1) * sampleRate;
+            result.add(entry.getKey() + ((column == 0) ? " lookups=" + lookups + " misses=" + misses
+                    : " misses=" + misses));
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    private static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new StandardMBean(Bean.INSTANCE, ConfigMetricsMBean.class), name);
+            }
+        } catch (Exception e) {
+            log.warn("Couldn't register the config metrics MBean", e);
+        }
+    }
+
+    /**
+     * Exposes the static metrics as an MBean.
+     */
+    private static final class Bean implements ConfigMetricsMBean {
+
+        static final Bean INSTANCE = new Bean();
+
+        public boolean isEnabled() {
+            return ConfigMetrics.isEnabled();
+        }
+
+        public void setEnabled(boolean enabled) {
+            ConfigMetrics.setEnabled(enabled);
+        }
+
+        public int getSampleRate() {
+            return ConfigMetrics.getSampleRate();
+        }
+
+        public void setSampleRate(int sampleRate) {
+            ConfigMetrics.setSampleRate(sampleRate);
+        }
+
+        public String[] getLayerStats() {
+            List<String> stats = new ArrayList<String>(layerStats.length());
+            for (int i = 0; i < layerStats.length(); i++) {
+                if (layerStats.get(i) != null) {
+                    stats.add(layerStats.get(i));
+                }
+            }
+            return stats.toArray(new String[stats.size()]);
+        }
+
+        public long getMergeCount() {
+            return mergeCount.get();
+        }
+
+        public long getLastMergeNanos() {
+            return lastMergeNanos;
+        }
+
+        public long getTotalMergeNanos() {
+            return totalMergeNanos.get();
+        }
+
+        public long getEstimatedLookups() {
+            return sampledLookups.get() * sampleRate;
+        }
+
+        public long getEstimatedMisses() {
+            return sampledMisses.get() * sampleRate;
+        }
+
+        public String[] topLookups(int count) {
+            return top(count, 0);
+        }
+
+        public String[] topMisses(int count) {
+            return top(count, 1);
+        }
+
+        public void reset() {
+            ConfigMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.akoolla.commons.config;
+
+/**
+ * ConfigMetricsListener.
+ *
+ * <p> Notified of what {@link ConfigMetrics} records, while it is enabled. Called on the thread doing the work, so
+ * should return quickly. </p>
+ */
+public interface ConfigMetricsListener {
+
+    /**
+     * @param layer The layer the file was read for
+     * @param source The file or classpath resource read
+     * @param resolveNanos The time spent finding the file
+     * @param parseNanos The time spent reading and parsing it
+     * @param bytes The size of the file, or files when a classpath copy is read too
+     * @param keys The number of properties it holds
+     */
+    void layerLoaded(ConfigLayer layer, String source, long resolveNanos, long parseNanos, long bytes, int keys);
+
+    /**
+     * @param layers The number of layers merged
+     * @param keys The number of properties in the merged configuration
+     * @param nanos The time taken to merge
+     */
+    void merged(int layers, int keys, long nanos);
+
+    /**
+     * Called for one in every {@link ConfigMetrics#getSampleRate() sample rate} lookups.
+     *
+     * @param key The key looked up
+     * @param found Whether the configuration has it
+     */
+    void lookupSampled(String key, boolean found);
+}
@@ -0,0 +1,45 @@
+package com.akoolla.commons.config;
+
+/**
+ * ConfigMetricsMBean.
+ *
+ * <p> The JMX view of {@link ConfigMetrics}, registered as {@value ConfigMetrics#OBJECT_NAME} once metrics are first
+ * enabled. Lookup counts are estimates, the sampled counts scaled up by the sample rate. </p>
+ */
+public interface ConfigMetricsMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    int getSampleRate();
+
+    void setSampleRate(int sampleRate);
+
+    /**
+     * @return One line per layer, describing the last time its file was read
+     */
+    String[] getLayerStats();
+
+    long getMergeCount();
+
+    long getLastMergeNanos();
+
+    long getTotalMergeNanos();
+
+    long getEstimatedLookups();
+
+    long getEstimatedMisses();
+
+    /**
+     * @return The most looked up keys, with their estimated lookup and miss counts
+     */
+    String[] topLookups(int count);
+
+    /**
+     * @return The keys most often looked up and not found, with their estimated miss counts
+     */
+    String[] topMisses(int count);
+
+    void reset();
+}
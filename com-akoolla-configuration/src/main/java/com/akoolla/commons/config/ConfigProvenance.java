@@ -0,0 +1,127 @@
+package com.akoolla.commons.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * ConfigProvenance.
+ *
+ * <p> Says which file, and which line of it, supplied each value of a munched configuration, using the layer and line
+ * a {@link ConfigSnapshot} keeps for each of its slots. Values are attributed to the layer that won, so a value
+ * overridden by the app.datadir files is reported as coming from there. </p>
+ *
+ * <p> {@link #dump(ConfigSnapshot)} lists the whole configuration with each value's origin, masking the values of keys
+ * that look secret, those whose name contains password, passwd, secret, token, credential or apikey, ignoring case
+ * and dots. Register an instance with {@link #register(String)}, or set
+ * {@link PropertiesMuncherPlaceholderConfigurer#setProvenanceObjectName(String)}, to ask the same questions over JMX
+ * of the configuration a {@link ConfigSnapshotHolder} is serving. </p>
+ */
+public class ConfigProvenance implements ConfigProvenanceMBean {
+
+    static final String MASK = "******";
+
+    private static final String[] SECRET_WORDS = { "password", "passwd", "secret", "token", "credential", "apikey" };
+
+    private final ConfigSnapshotHolder holder;
+
+    private ObjectName registeredName;
+
+    public ConfigProvenance(ConfigSnapshotHolder holder) {
+        if (holder == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : holder");
+        }
+        this.holder = holder;
+    }
+
+    public String origin(String key) {
+        return origin(holder.get(), key);
+    }
+
+    public String[] dump() {
+        return dump(holder.get());
+    }
+
+    /**
+     * @return Where the key's value in the given snapshot came from, "unknown" if the snapshot wasn't munched from
+     *         files, or <code>null</code> if there is no such key
+     */
+    public static String origin(ConfigSnapshot snapshot, String key) {
+        int slot = snapshot.indexOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        return describe(snapshot, slot);
+    }
+
+    /**
+     * @return Every key of the given snapshot in order, as <code>key=value</code> with the value masked if the key
+     *         looks secret, followed by where the value came from
+     */
+    public static String[] dump(ConfigSnapshot snapshot) {
+        String[] names = snapshot.keys();
+        Arrays.sort(names);
+        String[] lines = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            int slot = snapshot.indexOf(names[i]);
+            lines[i] = names[i] + "=" + (isSecret(names[i]) ? MASK : snapshot.valueAt(slot)) + "    # "
+                    + describe(snapshot, slot);
+        }
+        return lines;
+    }
+
+    /**
+     * @return Whether the key's value should not be shown
+     */
+    public static boolean isSecret(String key) {
+        String name = key.toLowerCase().replace(".", "").replace("_", "").replace("-", "");
+        for (String word : SECRET_WORDS) {
+            if (name.contains(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String describe(ConfigSnapshot snapshot, int slot) {
+        PropertyLayer layer = snapshot.layerAt(slot);
+        if (layer == null) {
+            return "unknown";
+        }
+        int line = snapshot.lineAt(slot);
+        return (line == 0) ? layer.toString() : layer + " line " + line;
+    }
+
+    /**
+     * Registers this with the platform MBean server under the given name.
+     */
+    public synchronized void register(String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new StandardMBean(this, ConfigProvenanceMBean.class), name);
+            registeredName = name;
+        } catch (Exception e) {
+            throw new RuntimeException("Couldn't register config provenance as " + objectName, e);
+        }
+    }
+
+    /**
+     * Removes this from the platform MBean server, if it was registered.
+     */
+    public synchronized void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (Exception e) {
+            throw new RuntimeException("Couldn't unregister config provenance " + registeredName, e);
+        } finally {
+            registeredName = null;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.akoolla.commons.config;
+
+/**
+ * ConfigProvenanceMBean.
+ *
+ * <p> The JMX view of a {@link ConfigProvenance}, answering for the configuration currently being served. </p>
+ */
+public interface ConfigProvenanceMBean {
+
+    /**
+     * @return Where the key's value came from, e.g. "environment file config/environments/prod.properties line 12",
+     *         or <code>null</code> if there is no such key
+     */
+    String origin(String key);
+
+    /**
+     * @return Every key in order with its value, masked if secret, and where it came from
+     */
+    String[] dump();
+}
@@ -0,0 +1,750 @@
+package com.akoolla.commons.config;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ConfigSnapshot.
+ *
+ * <p> An immutable String to String map holding the merged configuration. It is built once from the munched properties
+ * into an open-addressed table (linear probing, load factor of at most one half) so that lookups take no locks and
+ * allocate nothing, unlike {@link Properties#getProperty(String)} which synchronizes on every call. </p>
+ *
+ * <p> Legacy code that needs a {@link Properties} can use {@link #toProperties()}, which returns a read-only view built
+ * once per snapshot. {@link #typed()} gives int, long, boolean, duration and size accessors that parse each value once
+ * per snapshot. {@link #subset(String)} gives a {@link ConfigView} of the keys under a prefix, found with a sorted
+ * index of the keys built on first use. </p>
+ *
+ * <p> Snapshots munched by {@link PropertiesMuncher} also remember which {@link ConfigLayer} supplied each value and
+ * the line it was on, see {@link #getLayer(String)}, {@link #getSource(String)}, {@link #getLine(String)} and
+ * {@link ConfigProvenance}. Like the values, these are held in arrays alongside the table rather than as an object per
+ * key. </p>
+ *
+ * <p> The table is split into pages of {@value #PAGE_SIZE} slots, which snapshots share rather than copy: a snapshot
+ * merged strictly over a base layer starts from the pages of the table the base file was parsed into, and a snapshot
+ * re-merged after a change starts from the pages of the one it replaces. Either copies only the pages it writes, so
+ * overriding or changing a handful of keys allocates a handful of pages plus the short page directories, whatever the
+ * size of the table. </p>
+ */
+public final class ConfigSnapshot {
+
+    /** The number of slots in each page of the table, or in the only page of a smaller table. */
+    static final int PAGE_SIZE = 256;
+
+    private static final int PAGE_SHIFT = 8;
+
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** The layers of the slots of a table built over a base layer, which are all the base's, never written. */
+    private static final byte[] BASE_LAYER_PAGE = new byte[PAGE_SIZE];
+
+    /** The lines of the slots of a table whose lines are not known, never written. */
+    private static final int[] NO_LINES_PAGE = new int[PAGE_SIZE];
+
+    private static final PropertyLayer[] NO_LAYERS = new PropertyLayer[0];
+
+    private static final ConfigSnapshot EMPTY = new Builder(0, null).build();
+
+    /** The pages of the table, slot <code>s</code> being <code>keys[s / PAGE_SIZE][s % PAGE_SIZE]</code>. */
+    private final String[][] keys;
+
+    private final String[][] values;
+
+    /** Index into {@link #layers} of the layer that supplied each slot's value, null if not known. */
+    private final byte[][] slotLayers;
+
+    private final PropertyLayer[] layers;
+
+    /** The line of its file each slot's value was read from, null if not known. */
+    private final int[][] slotLines;
+
+    private final int capacity;
+
+    private final int mask;
+
+    private final int size;
+
+    private volatile Properties properties;
+
+    private volatile TypedConfig typed;
+
+    /** The slots in order of their keys, built on first use. */
+    private volatile int[] sorted;
+
+    /** The objects {@link ConfigBinder} has bound from this snapshot, made on first use. */
+    private volatile ConcurrentMap<Object, Object> bindings;
+
+    private ConfigSnapshot(String[][] keys, String[][] values, byte[][] slotLayers, PropertyLayer[] layers,
+                           int[][] slotLines, int capacity, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.slotLayers = slotLayers;
+        this.layers = (layers == null) ? NO_LAYERS : layers;
+        this.slotLines = slotLines;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.size = size;
+    }
+
+    /**
+     * Builds a snapshot from the given properties, including any values only found in their defaults. Entries whose
+     * key or value is not a String are ignored, as they would be by {@link Properties#getProperty(String)}.
+     *
+     * @param properties The properties to copy, may be <code>null</code>
+     * @return The snapshot, at the very least an empty one
+     */
+    public static ConfigSnapshot of(Properties properties) {
+        if (properties == null) {
+            return EMPTY;
+        }
+        if (properties instanceof ReadOnlyProperties) {
+            ConfigSnapshot snapshot = ((ReadOnlyProperties) properties).getSnapshot();
+            if (snapshot != null) {
+                return snapshot;
+            }
+        }
+
+        Set<String> names = properties.stringPropertyNames();
+        Builder builder = new Builder(names.size(), null);
+        for (String name : names) {
+            builder.put(name, properties.getProperty(name), 0);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builds a snapshot from the given map, ignoring <code>null</code> keys and values.
+     *
+     * @param map The entries to copy, may be <code>null</code>
+     * @return The snapshot, at the very least an empty one
+     */
+    public static ConfigSnapshot of(Map<String, String> map) {
+        if (map == null || map.isEmpty()) {
+            return EMPTY;
+        }
+
+        Builder builder = new Builder(map.size(), null);
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                builder.put(entry.getKey(), entry.getValue(), 0);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return A snapshot with no entries
+     */
+    public static ConfigSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param key The property name
+     * @return The property value, or <code>null</code> if there isn't one
+     */
+    public String get(String key) {
+        int slot = lookup(key);
+        return (slot < 0) ? null : valueAt(slot);
+    }
+
+    /**
+     * @param key The property name
+     * @param defaultValue The value to return if there is no property called <code>key</code>
+     * @return The property value, or <code>defaultValue</code> if there isn't one
+     */
+    public String get(String key, String defaultValue) {
+        int slot = lookup(key);
+        return (slot < 0) ? defaultValue : valueAt(slot);
+    }
+
+    /**
+     * @param key The property name
+     * @return The layer that supplied the property's value, or <code>null</code> if there is no such property or the
+     *         snapshot was not munched from layers
+     */
+    public ConfigLayer getLayer(String key) {
+        PropertyLayer layer = layerAt(indexOf(key));
+        return (layer == null) ? null : layer.getLayer();
+    }
+
+    /**
+     * @param key The property name
+     * @return A description of the file that supplied the property's value, e.g. "environment file
+     *         config/environments/prod.properties", or <code>null</code> if it is not known
+     */
+    public String getSource(String key) {
+        PropertyLayer layer = layerAt(indexOf(key));
+        return (layer == null) ? null : layer.toString();
+    }
+
+    /**
+     * @param key The property name
+     * @return The line, counting from 1, of the file that supplied the property's value, or 0 if it is not known
+     */
+    public int getLine(String key) {
+        return lineAt(indexOf(key));
+    }
+
+    /**
+     * @return The typed view of this snapshot, built on first use and shared afterwards
+     */
+    public TypedConfig typed() {
+        TypedConfig view = typed;
+        if (view == null) {
+            view = new TypedConfig(this);
+            typed = view;
+        }
+        return view;
+    }
+
+    public boolean containsKey(String key) {
+        return lookup(key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The property names, in no particular order
+     */
+    public String[] keys() {
+        String[] names = new String[size];
+        int count = 0;
+        for (int i = 0; i < capacity; i++) {
+            String key = keyAt(i);
+            if (key != null) {
+                names[count++] = key;
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Works out which keys differ between two snapshots.
+     *
+     * @param previous The older snapshot, may be <code>null</code>
+     * @param current The newer snapshot, may be <code>null</code>
+     * @return The keys that were added, removed or given a different value
+     */
+    public static Set<String> diff(ConfigSnapshot previous, ConfigSnapshot current) {
+        ConfigSnapshot before = (previous == null) ? EMPTY : previous;
+        ConfigSnapshot after = (current == null) ? EMPTY : current;
+        Set<String> changed = new HashSet<String>();
+        if (before == after) {
+            return changed;
+        }
+
+        for (int i = 0; i < after.capacity; i++) {
+            String key = after.keyAt(i);
+            if (key != null && !after.valueAt(i).equals(before.get(key))) {
+                changed.add(key);
+            }
+        }
+        for (int i = 0; i < before.capacity; i++) {
+            String key = before.keyAt(i);
+            if (key != null && !after.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Calls the visitor once for every entry, in no particular order.
+     */
+    public void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < capacity; i++) {
+            String key = keyAt(i);
+            if (key != null) {
+                visitor.visit(key, valueAt(i));
+            }
+        }
+    }
+
+    /**
+     * Adapter for callers that still expect a {@link Properties}.
+     *
+     * @return A read-only {@link Properties} holding the same entries as this snapshot, built on first use and shared
+     *         afterwards
+     */
+    public Properties toProperties() {
+        Properties view = properties;
+        if (view == null) {
+            view = new ReadOnlyProperties(this);
+            properties = view;
+        }
+        return view;
+    }
+
+    /**
+     * @param prefix The start of the keys wanted, e.g. "db.primary."
+     * @return A view of the keys starting with the prefix, with the prefix stripped from them
+     */
+    public ConfigView subset(String prefix) {
+        return subset(prefix, true);
+    }
+
+    /**
+     * Finds the keys starting with the prefix with a binary search of the sorted keys, so takes O(log n) time and
+     * copies nothing whatever the number of keys found.
+     *
+     * @param prefix The start of the keys wanted, e.g. "db.primary."
+     * @param stripPrefix Whether the view's keys have the prefix removed, e.g. "url" rather than "db.primary.url"
+     * @return A view of the keys starting with the prefix
+     */
+    public ConfigView subset(String prefix, boolean stripPrefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : prefix");
+        }
+        int[] slots = sortedSlots();
+        return new ConfigView(this, slots, prefix, stripPrefix, 0, slots.length);
+    }
+
+    /**
+     * @return The slots holding keys, in order of their keys
+     */
+    int[] sortedSlots() {
+        int[] slots = sorted;
+        if (slots == null) {
+            String[] names = keys();
+            Arrays.sort(names);
+            slots = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                slots[i] = indexOf(names[i]);
+            }
+            sorted = slots;
+        }
+        return slots;
+    }
+
+    /**
+     * @return The objects bound from this snapshot by {@link ConfigBinder}, keyed by their prefix and type
+     */
+    ConcurrentMap<Object, Object> bindings() {
+        ConcurrentMap<Object, Object> bound = bindings;
+        if (bound == null) {
+            synchronized (this) {
+                bound = bindings;
+                if (bound == null) {
+                    bound = new ConcurrentHashMap<Object, Object>(8);
+                    bindings = bound;
+                }
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * As {@link #indexOf(String)}, counting the lookup in the {@link ConfigMetrics} when they are enabled.
+     */
+    int lookup(String key) {
+        int slot = indexOf(key);
+        if (ConfigMetrics.enabled) {
+            ConfigMetrics.lookup(key, slot >= 0);
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the slot holding the given key, or -1 if there isn't one.
+     */
+    int indexOf(String key) {
+        if (key == null) {
+            return -1;
+        }
+        final String[][] table = keys;
+        int slot = spread(key.hashCode()) & mask;
+        String candidate;
+        while ((candidate = table[slot >>> PAGE_SHIFT][slot & PAGE_MASK]) != null) {
+            if (candidate == key || candidate.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return The number of slots in the table, an upper bound of every slot index
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The key held in the given slot, or <code>null</code> if the slot is empty
+     */
+    String keyAt(int slot) {
+        return keys[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /**
+     * @return The value held in the given slot, or <code>null</code> if the slot is empty
+     */
+    String valueAt(int slot) {
+        return values[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /**
+     * @return The layer that supplied the value in the given slot, or <code>null</code> if it is not known
+     */
+    PropertyLayer layerAt(int slot) {
+        if (slot < 0 || slotLayers == null) {
+            return null;
+        }
+        return layers[slotLayers[slot >>> PAGE_SHIFT][slot & PAGE_MASK]];
+    }
+
+    /**
+     * @return The line the value in the given slot was read from, or 0 if it is not known
+     */
+    int lineAt(int slot) {
+        if (slot < 0 || slotLines == null) {
+            return 0;
+        }
+        return slotLines[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    /**
+     * @return A builder starting from this snapshot's table, whose values come from the given layers, sharing its pages
+     *         until it writes to them
+     */
+    Builder toBuilder(PropertyLayer[] layers) {
+        return new Builder(keys.clone(), values.clone(), (slotLayers == null) ? null : slotLayers.clone(), layers,
+                (slotLines == null) ? null : slotLines.clone(), capacity, size);
+    }
+
+    /**
+     * @param layers The layers the values come from, the first being the layer this snapshot's entries were read into
+     * @return A builder starting from this snapshot's table with every value from the first of the layers, sharing its
+     *         pages until it writes to them
+     */
+    Builder toLayerBuilder(PropertyLayer[] layers) {
+        int pages = keys.length;
+        byte[][] baseLayers = new byte[pages][];
+        Arrays.fill(baseLayers, BASE_LAYER_PAGE);
+        int[][] lines;
+        if (slotLines != null) {
+            lines = slotLines.clone();
+        } else {
+            lines = new int[pages][];
+            Arrays.fill(lines, NO_LINES_PAGE);
+        }
+        return new Builder(keys.clone(), values.clone(), baseLayers, layers, lines, capacity, size);
+    }
+
+    /**
+     * @return The layers the values came from, lowest precedence first, empty if they are not known
+     */
+    PropertyLayer[] layers() {
+        return layers;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int entries) {
+        int capacity = 2;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < capacity; i++) {
+            String key = keyAt(i);
+            if (key != null) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(key).append('=').append(valueAt(i));
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Fills the open-addressed table of a new snapshot. A builder grows as needed but is sized up front by its callers,
+     * so building a snapshot normally allocates its final table and nothing else. A builder started from an existing
+     * table shares its pages, copying each the first time it writes to it. Not reusable once built.
+     */
+    static final class Builder {
+
+        private final PropertyLayer[] layers;
+
+        private String[][] keys;
+
+        private String[][] values;
+
+        private byte[][] slotLayers;
+
+        private int[][] slotLines;
+
+        /** Whether each page is this builder's own to write, rather than shared with a snapshot. */
+        private boolean[] owned;
+
+        private int capacity;
+
+        private int size;
+
+        /**
+         * As {@link #Builder(int, PropertyLayer[], boolean)}, keeping line numbers when the layers are known.
+         */
+        Builder(int expectedSize, PropertyLayer[] layers) {
+            this(expectedSize, layers, layers != null);
+        }
+
+        /**
+         * @param expectedSize The number of keys the snapshot is expected to hold
+         * @param layers The layers the values come from, or <code>null</code> if they are not known
+         * @param lines Whether to keep the line each value was read from
+         */
+        Builder(int expectedSize, PropertyLayer[] layers, boolean lines) {
+            this.layers = layers;
+            allocate(tableSizeFor(expectedSize), layers != null, lines);
+        }
+
+        private Builder(String[][] keys, String[][] values, byte[][] slotLayers, PropertyLayer[] layers,
+                        int[][] slotLines, int capacity, int size) {
+            this.layers = layers;
+            this.keys = keys;
+            this.values = values;
+            this.slotLayers = slotLayers;
+            this.slotLines = slotLines;
+            this.owned = new boolean[keys.length];
+            this.capacity = capacity;
+            this.size = size;
+        }
+
+        boolean put(String key, String value, int layer) {
+            return put(key, value, layer, 0);
+        }
+
+        /**
+         * Adds the key or replaces its value.
+         *
+         * @param layer Index of the layer supplying the value, ignored if the layers are not known
+         * @param line The line the value was read from, 0 if not known, ignored if lines are not kept
+         * @return <code>true</code> if the key was not in the table before
+         */
+        boolean put(String key, String value, int layer, int line) {
+            if ((size + 1) * 2 > capacity) {
+                resize(capacity << 1);
+            }
+            int slot = slotFor(key);
+            boolean added = keyAt(slot) == null;
+            if (added) {
+                size++;
+            }
+            set(slot, key, value, (byte) layer, line);
+            return added;
+        }
+
+        /**
+         * Replaces the value of a key already in the table.
+         *
+         * @param layer Index of the layer supplying the value, ignored if the layers are not known
+         * @param line The line the value was read from, 0 if not known, ignored if lines are not kept
+         * @return <code>false</code>, changing nothing, if the key is not in the table
+         */
+        boolean replace(String key, String value, int layer, int line) {
+            int slot = slotFor(key);
+            String existing = keyAt(slot);
+            if (existing == null) {
+                return false;
+            }
+            set(slot, existing, value, (byte) layer, line);
+            return true;
+        }
+
+        /**
+         * Removes the key, moving back any keys that probed past it so no lookup finds a gap before its key.
+         *
+         * @return <code>false</code>, changing nothing, if the key is not in the table
+         */
+        boolean remove(String key) {
+            int hole = slotFor(key);
+            if (keyAt(hole) == null) {
+                return false;
+            }
+
+            int mask = capacity - 1;
+            int slot = (hole + 1) & mask;
+            String moving;
+            while ((moving = keyAt(slot)) != null) {
+                int home = spread(moving.hashCode()) & mask;
+                // the key can fill the hole if the hole lies between its home slot and where it is now
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    int page = slot >>> PAGE_SHIFT;
+                    int offset = slot & PAGE_MASK;
+                    set(hole, moving, values[page][offset], (slotLayers == null) ? 0 : slotLayers[page][offset],
+                            (slotLines == null) ? 0 : slotLines[page][offset]);
+                    hole = slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            set(hole, null, null, (byte) 0, 0);
+            size--;
+            return true;
+        }
+
+        /**
+         * @return The line the key's value was read from, 0 if not known or lines are not kept, or -1 if the key is not
+         *         in the table
+         */
+        int lineOf(String key) {
+            int slot = slotFor(key);
+            if (keyAt(slot) == null) {
+                return -1;
+            }
+            return (slotLines == null) ? 0 : slotLines[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+        }
+
+        /**
+         * @return The key's value, or <code>null</code> if the key is not in the table
+         */
+        String get(String key) {
+            int slot = slotFor(key);
+            return (keyAt(slot) == null) ? null : values[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+        }
+
+        /**
+         * @return Index of the layer that supplied the key's value, 0 if the layers are not known, or -1 if the key is
+         *         not in the table
+         */
+        int layerOf(String key) {
+            int slot = slotFor(key);
+            if (keyAt(slot) == null) {
+                return -1;
+            }
+            return (slotLayers == null) ? 0 : slotLayers[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+        }
+
+        int size() {
+            return size;
+        }
+
+        ConfigSnapshot build() {
+            return build(layers);
+        }
+
+        /**
+         * As {@link #build()}, with the given layers in place of those the builder was given, for a builder filled
+         * before all its layers were known.
+         */
+        ConfigSnapshot build(PropertyLayer[] layers) {
+            ConfigSnapshot snapshot = new ConfigSnapshot(keys, values, slotLayers, layers, slotLines, capacity, size);
+            keys = null;
+            values = null;
+            slotLayers = null;
+            slotLines = null;
+            owned = null;
+            return snapshot;
+        }
+
+        private String keyAt(int slot) {
+            return keys[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+        }
+
+        private void set(int slot, String key, String value, byte layer, int line) {
+            int page = slot >>> PAGE_SHIFT;
+            if (!owned[page]) {
+                own(page);
+            }
+            int offset = slot & PAGE_MASK;
+            keys[page][offset] = key;
+            values[page][offset] = value;
+            if (slotLayers != null) {
+                slotLayers[page][offset] = layer;
+            }
+            if (slotLines != null) {
+                slotLines[page][offset] = line;
+            }
+        }
+
+        /**
+         * Copies a shared page so it can be written.
+         */
+        private void own(int page) {
+            int length = Math.min(capacity, PAGE_SIZE);
+            keys[page] = Arrays.copyOf(keys[page], length);
+            values[page] = Arrays.copyOf(values[page], length);
+            if (slotLayers != null) {
+                slotLayers[page] = Arrays.copyOf(slotLayers[page], length);
+            }
+            if (slotLines != null) {
+                slotLines[page] = Arrays.copyOf(slotLines[page], length);
+            }
+            owned[page] = true;
+        }
+
+        private int slotFor(String key) {
+            int mask = capacity - 1;
+            int slot = spread(key.hashCode()) & mask;
+            String candidate;
+            while ((candidate = keyAt(slot)) != null && !candidate.equals(key)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Gives the builder a new empty table of its own.
+         */
+        private void allocate(int newCapacity, boolean withLayers, boolean withLines) {
+            int pages = Math.max(1, newCapacity >>> PAGE_SHIFT);
+            int length = Math.min(newCapacity, PAGE_SIZE);
+            keys = new String[pages][length];
+            values = new String[pages][length];
+            slotLayers = withLayers ? new byte[pages][length] : null;
+            slotLines = withLines ? new int[pages][length] : null;
+            owned = new boolean[pages];
+            Arrays.fill(owned, true);
+            capacity = newCapacity;
+        }
+
+        private void resize(int newCapacity) {
+            String[][] oldKeys = keys;
+            String[][] oldValues = values;
+            byte[][] oldLayers = slotLayers;
+            int[][] oldLines = slotLines;
+            int oldCapacity = capacity;
+            allocate(newCapacity, oldLayers != null, oldLines != null);
+
+            for (int i = 0; i < oldCapacity; i++) {
+                int page = i >>> PAGE_SHIFT;
+                int offset = i & PAGE_MASK;
+                String key = oldKeys[page][offset];
+                if (key != null) {
+                    set(slotFor(key), key, oldValues[page][offset],
+                            (oldLayers == null) ? 0 : oldLayers[page][offset],
+                            (oldLines == null) ? 0 : oldLines[page][offset]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives the entries of a snapshot, see {@link ConfigSnapshot#forEach(EntryVisitor)}.
+     */
+    public interface EntryVisitor {
+
+        void visit(String key, String value);
+    }
+}
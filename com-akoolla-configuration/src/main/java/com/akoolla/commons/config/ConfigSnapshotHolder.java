@@ -0,0 +1,139 @@
+package com.akoolla.commons.config;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * ConfigSnapshotHolder.
+ *
+ * <p> Holds the {@link ConfigSnapshot} currently being served. Readers call {@link #get()}, which is a single volatile
+ * read; a reload publishes its result with {@link #publish(ConfigSnapshot)}, which swaps the reference atomically and
+ * then tells the registered {@link ConfigChangeListener}s which keys changed. </p>
+ *
+ * <p> Components that keep state derived from a few keys, such as a pool sized by one, can instead
+ * {@link #subscribe(String, ConfigKeyListener) subscribe} to those keys, or to every key under a prefix, and be told
+ * the old and new values of the ones that change on a dispatcher thread, see {@link ConfigChangeDispatcher}, rather
+ * than polling for them. </p>
+ */
+public class ConfigSnapshotHolder {
+
+    /** The logger for this class. **/
+    private static Log log = LogFactory.getLog(ConfigSnapshotHolder.class);
+
+    private final AtomicReference<ConfigSnapshot> current;
+
+    private final List<ConfigChangeListener> listeners = new CopyOnWriteArrayList<ConfigChangeListener>();
+
+    /** Created by the first subscription. */
+    private volatile ConfigChangeDispatcher dispatcher;
+
+    public ConfigSnapshotHolder(ConfigSnapshot initial) {
+        if (initial == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : initial");
+        }
+        this.current = new AtomicReference<ConfigSnapshot>(initial);
+    }
+
+    /**
+     * @return The snapshot currently being served, never <code>null</code>
+     */
+    public ConfigSnapshot get() {
+        return current.get();
+    }
+
+    /**
+     * Replaces the current snapshot and notifies the listeners of the keys that changed. Listeners are not called if
+     * nothing changed.
+     *
+     * @param snapshot The new snapshot
+     * @return The keys that changed
+     */
+    public Set<String> publish(ConfigSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : snapshot");
+        }
+
+        ConfigSnapshot previous = current.getAndSet(snapshot);
+        Set<String> changed = ConfigSnapshot.diff(previous, snapshot);
+        notifyListeners(previous, snapshot, changed);
+        return changed;
+    }
+
+    /**
+     * As {@link #publish(ConfigSnapshot)}, for a snapshot merged from the current one whose changed keys are already
+     * known, e.g. by an {@link IncrementalMerge}.
+     *
+     * @return <code>false</code>, publishing nothing, if the current snapshot is no longer <code>expected</code>
+     */
+    boolean publish(ConfigSnapshot expected, ConfigSnapshot snapshot, Set<String> changed) {
+        if (!current.compareAndSet(expected, snapshot)) {
+            return false;
+        }
+        notifyListeners(expected, snapshot, changed);
+        return true;
+    }
+
+    private void notifyListeners(ConfigSnapshot previous, ConfigSnapshot snapshot, Set<String> changed) {
+        if (!changed.isEmpty()) {
+            ConfigChangeDispatcher current = dispatcher;
+            if (current != null) {
+                current.published(previous, snapshot, changed);
+            }
+            for (ConfigChangeListener listener : listeners) {
+                try {
+                    listener.configChanged(previous, snapshot, changed);
+                } catch (RuntimeException e) {
+                    log.error("Config change listener " + listener + " failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Subscribes the listener to changes to the given key.
+     *
+     * @return The subscription, to cancel when no longer interested
+     */
+    public ConfigSubscription subscribe(String key, ConfigKeyListener listener) {
+        return dispatcher().subscribe(key, false, listener);
+    }
+
+    /**
+     * Subscribes the listener to changes to every key starting with the given prefix, e.g. "db.primary.".
+     *
+     * @return The subscription, to cancel when no longer interested
+     */
+    public ConfigSubscription subscribePrefix(String prefix, ConfigKeyListener listener) {
+        return dispatcher().subscribe(prefix, true, listener);
+    }
+
+    private ConfigChangeDispatcher dispatcher() {
+        ConfigChangeDispatcher current = dispatcher;
+        if (current == null) {
+            synchronized (this) {
+                current = dispatcher;
+                if (current == null) {
+                    current = new ConfigChangeDispatcher();
+                    dispatcher = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public void addListener(ConfigChangeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : listener");
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(ConfigChangeListener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,56 @@
+package com.akoolla.commons.config;
+
+import org.springframework.core.env.EnumerablePropertySource;
+
+/**
+ * ConfigSnapshotPropertySource.
+ *
+ * <p> Serves the {@link ConfigSnapshot} a {@link ConfigSnapshotHolder} holds to Spring's
+ * {@link org.springframework.core.env.Environment}, so <code>@Value</code> and <code>Environment.getProperty</code>
+ * lookups read the same munched configuration as {@link PropertiesMuncherPlaceholderConfigurer} rather than loading the
+ * files again. Each lookup reads the holder's current snapshot and looks the key up in it, with no locking, so reloads
+ * are seen as soon as they are published. Values are trimmed if the configurer trims them. </p>
+ *
+ * <p> Register one with {@link ConfigSnapshotPropertySourceRegistrar}. Needs Spring 3.1 or later, unlike the
+ * configurer. </p>
+ */
+public class ConfigSnapshotPropertySource extends EnumerablePropertySource<ConfigSnapshotHolder> {
+
+    /** The name the source is registered under unless given another. */
+    public static final String DEFAULT_NAME = "propertiesMuncher";
+
+    private final boolean trim;
+
+    /**
+     * @param name The name of the source in the environment
+     * @param holder The holder of the configuration to serve
+     * @param trim Whether values are trimmed
+     */
+    public ConfigSnapshotPropertySource(String name, ConfigSnapshotHolder holder, boolean trim) {
+        super(name, holder);
+        if (holder == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : holder");
+        }
+        this.trim = trim;
+    }
+
+    @Override
+    public String getProperty(String name) {
+        String value = getSource().get().get(name);
+        return (trim && (value != null)) ? value.trim() : value;
+    }
+
+    @Override
+    public boolean containsProperty(String name) {
+        return getSource().get().containsKey(name);
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return getSource().get().keys();
+    }
+
+    public boolean isTrim() {
+        return trim;
+    }
+}
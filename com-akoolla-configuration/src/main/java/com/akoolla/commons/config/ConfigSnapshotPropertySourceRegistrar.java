@@ -0,0 +1,142 @@
+package com.akoolla.commons.config;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+
+/**
+ * ConfigSnapshotPropertySourceRegistrar.
+ *
+ * <p> Adds a {@link ConfigSnapshotPropertySource} serving the configuration of a
+ * {@link PropertiesMuncherPlaceholderConfigurer} to the application context's environment, before any other bean
+ * factory post processor runs, e.g. </p>
+ *
+ * <pre>
+ * &lt;bean id="placeholderConfigurer" class="com.akoolla.commons.config.PropertiesMuncherPlaceholderConfigurer"&gt;
+ *     &lt;property name="reload" value="true"/&gt;
+ * &lt;/bean&gt;
+ * &lt;bean class="com.akoolla.commons.config.ConfigSnapshotPropertySourceRegistrar"&gt;
+ *     &lt;property name="configurer" ref="placeholderConfigurer"/&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ *
+ * <p> The properties are loaded once, by whichever of the two needs them first, and the source follows the configurer's
+ * reloads and its {@link PropertiesMuncherPlaceholderConfigurer#setTrim(boolean) trim} option. By default the source is
+ * added after the environment's own, so system properties and environment variables take precedence as they do for
+ * {@link org.springframework.core.env.StandardEnvironment}; set {@link #setFirst(boolean) first} to have the munched
+ * configuration take precedence instead. Outside an XML context, e.g. from an ApplicationContextInitializer, call
+ * {@link #register(ConfigurableEnvironment, PropertiesMuncherPlaceholderConfigurer, String, boolean)}. </p>
+ */
+public class ConfigSnapshotPropertySourceRegistrar implements BeanFactoryPostProcessor, EnvironmentAware,
+        PriorityOrdered {
+
+    private PropertiesMuncherPlaceholderConfigurer configurer;
+
+    private String name = ConfigSnapshotPropertySource.DEFAULT_NAME;
+
+    private boolean first = false;
+
+    private int order = Ordered.HIGHEST_PRECEDENCE;
+
+    private ConfigurableEnvironment environment;
+
+    public void setEnvironment(org.springframework.core.env.Environment environment) {
+        if (environment instanceof ConfigurableEnvironment) {
+            this.environment = (ConfigurableEnvironment) environment;
+        }
+    }
+
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        if (environment == null) {
+            throw new IllegalStateException("Couldn't register the munched configuration, the application context "
+                    + "has no ConfigurableEnvironment");
+        }
+        register(environment, configurer, name, first);
+    }
+
+    /**
+     * Adds a source serving the configurer's configuration to the given environment, loading the configuration if the
+     * configurer hasn't yet, or replaces the source of the same name.
+     *
+     * @param name The name of the source in the environment
+     * @param first Whether the source takes precedence over those already in the environment, rather than the reverse
+     * @return The source added
+     */
+    public static ConfigSnapshotPropertySource register(ConfigurableEnvironment environment,
+                                                        PropertiesMuncherPlaceholderConfigurer configurer,
+                                                        String name, boolean first) {
+        if (environment == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : environment");
+        }
+        if (configurer == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : configurer");
+        }
+        if (name == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : name");
+        }
+
+        ConfigSnapshotPropertySource source = new ConfigSnapshotPropertySource(name,
+                configurer.loadSnapshotHolder(), configurer.isTrim());
+        MutablePropertySources sources = environment.getPropertySources();
+        if (sources.contains(name)) {
+            sources.replace(name, source);
+        } else if (first) {
+            sources.addFirst(source);
+        } else {
+            sources.addLast(source);
+        }
+        return source;
+    }
+
+    /**
+     * Sets the configurer whose configuration is served.
+     *
+     * @param configurer
+     */
+    public void setConfigurer(PropertiesMuncherPlaceholderConfigurer configurer) {
+        this.configurer = configurer;
+    }
+
+    public PropertiesMuncherPlaceholderConfigurer getConfigurer() {
+        return configurer;
+    }
+
+    /**
+     * Sets the name of the source in the environment, "propertiesMuncher" by default.
+     *
+     * @param name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets if the munched configuration takes precedence over the environment's own sources, off by default.
+     *
+     * @param first True if the source should be added ahead of the others.
+     */
+    public void setFirst(boolean first) {
+        this.first = first;
+    }
+
+    public boolean isFirst() {
+        return first;
+    }
+
+    public void setOrder(int order) {
+        this.order = order;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+}
@@ -0,0 +1,66 @@
+package com.akoolla.commons.config;
+
+/**
+ * ConfigSubscription.
+ *
+ * <p> A {@link ConfigKeyListener}'s interest in a key, or in every key starting with a prefix, of the configuration a
+ * {@link ConfigSnapshotHolder} serves. Returned by the holder's subscribe methods; {@link #cancel()} it to stop being
+ * told. </p>
+ */
+public final class ConfigSubscription {
+
+    private final String key;
+
+    private final boolean prefix;
+
+    private final ConfigKeyListener listener;
+
+    private final ConfigChangeDispatcher dispatcher;
+
+    private volatile boolean cancelled;
+
+    ConfigSubscription(String key, boolean prefix, ConfigKeyListener listener, ConfigChangeDispatcher dispatcher) {
+        this.key = key;
+        this.prefix = prefix;
+        this.listener = listener;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Stops the listener being told about changes to the key, though a dispatch already under way may still tell it.
+     * Does nothing if already cancelled.
+     */
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            dispatcher.unsubscribe(this);
+        }
+    }
+
+    /**
+     * @return The key, or the prefix of the keys, subscribed to
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return Whether every key starting with {@link #getKey()} is subscribed to, rather than just that key
+     */
+    public boolean isPrefix() {
+        return prefix;
+    }
+
+    public ConfigKeyListener getListener() {
+        return listener;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigSubscription[" + (prefix ? key + "*" : key) + ", " + listener + "]";
+    }
+}
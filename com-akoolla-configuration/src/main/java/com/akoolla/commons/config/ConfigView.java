@@ -0,0 +1,230 @@
+package com.akoolla.commons.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ConfigView.
+ *
+ * <p> The keys of a {@link ConfigSnapshot} that start with a prefix, as returned by
+ * {@link ConfigSnapshot#subset(String)}. A view is a range of the snapshot's sorted key index, found by binary search,
+ * so making one copies nothing and listing its keys takes time in proportion to how many there are rather than to the
+ * size of the snapshot. The prefix is stripped from the keys the view shows unless asked otherwise, so a view of
+ * "db.primary." holding db.primary.url shows it as "url". </p>
+ *
+ * <p> Views nest: {@link #subset(String)} takes a prefix of the keys as this view shows them, e.g.
+ * <code>config.subset("db.").subset("primary.")</code> is a view of "db.primary.". {@link #toMap()} and
+ * {@link #forEach(ConfigSnapshot.EntryVisitor)} hand over the whole group at once, e.g. to configure a connection
+ * pool, {@link #bind(Class)} binds it onto a type, and {@link #namespaces()} lists the groups nested within. </p>
+ */
+public final class ConfigView {
+
+    private final ConfigSnapshot snapshot;
+
+    private final int[] sorted;
+
+    /** The start of every key in the view. */
+    private final String prefix;
+
+    /** The start of every key that is removed before the key is shown, the prefix or the start of it. */
+    private final String stripped;
+
+    private final int from;
+
+    private final int to;
+
+    ConfigView(ConfigSnapshot snapshot, int[] sorted, String prefix, boolean stripPrefix, int from, int to) {
+        this(snapshot, sorted, prefix, stripPrefix ? prefix : "", from, to);
+    }
+
+    private ConfigView(ConfigSnapshot snapshot, int[] sorted, String prefix, String stripped, int within,
+                       int withinEnd) {
+        this.snapshot = snapshot;
+        this.sorted = sorted;
+        this.prefix = prefix;
+        this.stripped = stripped;
+
+        // the keys starting with the prefix sort after it and before every later key not starting with it
+        int low = within;
+        int high = withinEnd;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid).compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        this.from = low;
+
+        high = withinEnd;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid).startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        this.to = low;
+    }
+
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return The start of every key in the view, in full
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return Whether the view's keys are shown with the prefix removed
+     */
+    public boolean isPrefixStripped() {
+        return stripped.length() == prefix.length();
+    }
+
+    public int size() {
+        return to - from;
+    }
+
+    public boolean isEmpty() {
+        return to == from;
+    }
+
+    /**
+     * @param key The key as this view shows it
+     * @return The value, or <code>null</code> if the view has no such key
+     */
+    public String get(String key) {
+        String fullKey = fullKey(key);
+        return (fullKey == null) ? null : snapshot.get(fullKey);
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = get(key);
+        return (value == null) ? defaultValue : value;
+    }
+
+    public boolean containsKey(String key) {
+        String fullKey = fullKey(key);
+        return (fullKey != null) && snapshot.containsKey(fullKey);
+    }
+
+    /**
+     * @return The key as it is in the snapshot, or <code>null</code> if it can't be in this view
+     */
+    public String fullKey(String key) {
+        if (key == null) {
+            return null;
+        }
+        String fullKey = (stripped.length() == 0) ? key : stripped + key;
+        return fullKey.startsWith(prefix) ? fullKey : null;
+    }
+
+    /**
+     * @return The keys as this view shows them, in order
+     */
+    public String[] keys() {
+        String[] names = new String[size()];
+        for (int i = from; i < to; i++) {
+            names[i - from] = shown(keyAt(i));
+        }
+        return names;
+    }
+
+    /**
+     * Calls the visitor once for every entry in order, with the key as this view shows it.
+     */
+    public void forEach(ConfigSnapshot.EntryVisitor visitor) {
+        for (int i = from; i < to; i++) {
+            visitor.visit(shown(keyAt(i)), snapshot.valueAt(sorted[i]));
+        }
+    }
+
+    /**
+     * @return The entries in key order, keyed as this view shows them
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> map = new LinkedHashMap<String, String>(size() * 2);
+        for (int i = from; i < to; i++) {
+            map.put(shown(keyAt(i)), snapshot.valueAt(sorted[i]));
+        }
+        return map;
+    }
+
+    /**
+     * @return The distinct names, in order, that keys continue the prefix with before their next dot, e.g. "primary"
+     *         and "replica" for a view of "db." holding db.primary.url and db.replica.url
+     */
+    public Set<String> namespaces() {
+        Set<String> names = new LinkedHashSet<String>();
+        String last = null;
+        for (int i = from; i < to; i++) {
+            String key = keyAt(i);
+            int dot = key.indexOf('.', prefix.length());
+            if (dot > prefix.length()) {
+                String name = key.substring(prefix.length(), dot);
+                if (!name.equals(last)) {
+                    names.add(name);
+                    last = name;
+                }
+            }
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * @param childPrefix A prefix of the keys as this view shows them
+     * @return A view of the keys within this view starting with the prefix, shown with it stripped
+     */
+    public ConfigView subset(String childPrefix) {
+        return subset(childPrefix, true);
+    }
+
+    /**
+     * @param childPrefix A prefix of the keys as this view shows them
+     * @param stripPrefix Whether the keys are shown with the child prefix stripped, rather than as this view shows them
+     * @return A view of the keys within this view starting with the prefix
+     */
+    public ConfigView subset(String childPrefix, boolean stripPrefix) {
+        if (childPrefix == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : childPrefix");
+        }
+        String fullPrefix = stripped + childPrefix;
+        if (!fullPrefix.startsWith(prefix)) {
+            // shown keys all start with what's left of the prefix, so the child is this view or nothing
+            fullPrefix = prefix.startsWith(fullPrefix) ? prefix : fullPrefix;
+        }
+        return new ConfigView(snapshot, sorted, fullPrefix, stripPrefix ? stripped + childPrefix : stripped, from,
+                to);
+    }
+
+    /**
+     * Binds the view's keys onto an interface or class, see {@link ConfigBinder}.
+     *
+     * @return The bound object, the same one for every bind of the snapshot, prefix and type
+     */
+    public <T> T bind(Class<T> type) {
+        return ConfigBinder.bind(snapshot, prefix, type);
+    }
+
+    private String keyAt(int index) {
+        return snapshot.keyAt(sorted[index]);
+    }
+
+    private String shown(String key) {
+        return (stripped.length() == 0) ? key : key.substring(stripped.length());
+    }
+
+    @Override
+    public String toString() {
+        return prefix + "*" + toMap();
+    }
+}
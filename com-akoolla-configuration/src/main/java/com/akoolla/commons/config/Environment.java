@@ -9,6 +9,10 @@ import com.akoolla.commons.config.EnvironmentSettings.Profile;
 /**
  * Environment.
  * 
+ * <p> The settings are read from the system properties and environment the first time they are asked for and then
+ * kept, as they don't change while the JVM runs. Call {@link #refresh()} to read them again after changing a system
+ * property. </p>
+ * 
  * @author tiffir
  * @version $Id: Environment.java 144 2011-03-15 16:36:54Z tiffir $
  */
@@ -19,7 +23,50 @@ public class Environment {
 
     // private static final Logger logger = Logger.getLogger(Environment.class);
 
+    private static volatile EnvironmentSettings settings;
+
+    private static volatile EnvironmentSettings override;
+
+    /**
+     * @return The settings of this environment, read once and shared
+     */
     public static EnvironmentSettings load() {
+        EnvironmentSettings current = override;
+        if (current != null) {
+            return current;
+        }
+        current = settings;
+        if (current == null) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    /**
+     * Reads SERVER_ENV, SERVER_PROFILE and SERVER_CONFIG again, replacing the settings returned by {@link #load()}.
+     * 
+     * @return The settings read
+     */
+    public static EnvironmentSettings refresh() {
+        EnvironmentSettings current = resolve();
+        settings = current;
+        if (log.isInfoEnabled()) {
+            log.info("Environment settings : " + current + ", SERVER_ENV : " + current.SERVER_ENV + ", SERVER_CONFIG : "
+                    + current.getServerConfig());
+        }
+        return current;
+    }
+
+    /**
+     * Makes {@link #load()} return the given settings instead of those of the running environment, for tests.
+     * 
+     * @param settings The settings to use, or <code>null</code> to go back to the environment's own
+     */
+    public static void setOverride(EnvironmentSettings settings) {
+        override = settings;
+    }
+
+    private static EnvironmentSettings resolve() {
 
         Platform platform = null;
 
@@ -57,7 +104,8 @@ public class Environment {
             profile = EnvironmentSettings.Profile.SMALL;
         }
 
-        EnvironmentSettings name = new EnvironmentSettings(platform, profile, serverEnv);
+        EnvironmentSettings name = new EnvironmentSettings(platform, profile, serverEnv,
+                getSystemProperty("SERVER_CONFIG", false));
 
         return name;
     }
@@ -66,14 +114,14 @@ public class Environment {
      * tries to get the value of SERVER_ENV from the system's properties, then from the environment or returns null
      */
     public static String getSystemProperty(String name, boolean upper) {
-        if (log.isInfoEnabled()) {
-        	log.info("name: " + name + ", uppercase: " + upper);
+        if (log.isDebugEnabled()) {
+        	log.debug("name: " + name + ", uppercase: " + upper);
         }
     	String prop = System.getProperty(name);
 
         if ((prop != null) && (prop.length() > 0)) {
-            if (log.isInfoEnabled()) {
-            	log.info("  system: " + (upper ? prop.toUpperCase() : prop));
+            if (log.isDebugEnabled()) {
+            	log.debug("  system: " + (upper ? prop.toUpperCase() : prop));
             }
             return upper ? prop.toUpperCase() : prop;
         }
@@ -81,8 +129,8 @@ public class Environment {
         String env = System.getenv(name);
 
         if ((env != null) && (env.length() > 0)) {
-            if (log.isInfoEnabled()) {
-            	log.info("  env: " + (upper ? env.toUpperCase() : env));
+            if (log.isDebugEnabled()) {
+            	log.debug("  env: " + (upper ? env.toUpperCase() : env));
             }
             return upper ? env.toUpperCase() : env;
         }
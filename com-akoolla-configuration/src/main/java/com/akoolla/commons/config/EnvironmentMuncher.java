@@ -0,0 +1,168 @@
+package com.akoolla.commons.config;
+
+import java.util.List;
+
+/**
+ * EnvironmentMuncher.
+ *
+ * <p> Munches the configuration of one given environment, as {@link PropertiesMuncher#munch()} does for the
+ * environment the JVM runs in. The {@link EnvironmentSettings} and the roots the files are read from are given to the
+ * muncher rather than read from SERVER_ENV, SERVER_CONFIG and the muncher's statics, so a JVM hosting several
+ * environments or tenants can load each of their configurations side by side, e.g. </p>
+ *
+ * <pre>
+ * EnvironmentSettings eu = new EnvironmentSettings(Platform.PROD, Profile.LARGE, "prod-eu", "/data/eu");
+ * ConfigSnapshot config = new EnvironmentMuncher(eu, "", true).munch();
+ * </pre>
+ *
+ * <p> reads config/environment.properties and config/environments/prod-eu.properties from the classpath, followed by
+ * the files of the same names in the directory named by app.datadir, where SERVER_CONFIG means /data/eu. The files are
+ * merged strictly, as for every munch. </p>
+ *
+ * <p> The files are parsed through a {@link LayerCache}, by default the one {@link LayerCache#shared() shared} by
+ * every muncher, so a file that more than one environment reads, such as the base config/environment.properties, is
+ * parsed once and the parsed copy is referred to by the snapshots of all of them. Munchers given caches of their own
+ * share only with each other. A muncher keeps the snapshot it munched until {@link #reload()}, which parses only the
+ * files changed since and merges only the keys they changed. </p>
+ */
+public final class EnvironmentMuncher {
+
+    private final EnvironmentSettings settings;
+
+    private final String parent;
+
+    private final boolean classpath;
+
+    private final String dataDir;
+
+    private final LayerCache cache;
+
+    private volatile ConfigSnapshot snapshot;
+
+    /**
+     * @param settings The environment to munch the configuration of
+     * @param parent The package or directory holding config/environment.properties and config/environments/, "" for
+     *        the root of the classpath
+     * @param classpath Whether the parent is a package on the classpath rather than a directory
+     */
+    public EnvironmentMuncher(EnvironmentSettings settings, String parent, boolean classpath) {
+        this(settings, parent, classpath, null, LayerCache.shared());
+    }
+
+    /**
+     * @param settings The environment to munch the configuration of
+     * @param parent The package or directory holding config/environment.properties and config/environments/, "" for
+     *        the root of the classpath
+     * @param classpath Whether the parent is a package on the classpath rather than a directory
+     * @param dataDir The directory holding the override files, or <code>null</code> for the one named by app.datadir
+     * @param cache Where the parsed files are shared with other munchers
+     */
+    public EnvironmentMuncher(EnvironmentSettings settings, String parent, boolean classpath, String dataDir,
+                              LayerCache cache) {
+        if (settings == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : settings");
+        }
+        if (settings.SERVER_ENV == null) {
+            throw new IllegalArgumentException("Cannot supply settings without a SERVER_ENV : " + settings);
+        }
+        if (parent == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : parent");
+        }
+        if (cache == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : cache");
+        }
+        this.settings = settings;
+        this.parent = ((parent.length() > 0) && !parent.endsWith("/")) ? parent + "/" : parent;
+        this.classpath = classpath;
+        this.dataDir = dataDir;
+        this.cache = cache;
+    }
+
+    /**
+     * @return The environment's configuration, munched on first use and kept until {@link #reload()}
+     */
+    public ConfigSnapshot munch() {
+        ConfigSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = reload();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Munches the environment's configuration again, parsing the files that have changed since they were last parsed
+     * and taking the others from the cache. When the same files are found as before, only the keys of the changed
+     * files are merged again, see {@link IncrementalMerge}, and the rest of the table is shared with the previous
+     * snapshot.
+     *
+     * @return The configuration munched, returned by {@link #munch()} from now on, the previous snapshot itself if no
+     *         file has changed
+     */
+    public synchronized ConfigSnapshot reload() {
+        List<PropertyLayer> layers = PropertiesMuncher.readLayers(settings, true, parent, classpath,
+                PropertiesMuncher.getGlobalProperties(), PropertiesMuncher.getGlobalPropertiesDir(), dataDir, cache);
+        ConfigSnapshot previous = snapshot;
+        ConfigSnapshot current = (previous == null) ? null : remerge(previous, layers);
+        if (current == null) {
+            current = LayeredMerge.merge(layers, true);
+        }
+        snapshot = current;
+        return current;
+    }
+
+    /**
+     * @return The previous snapshot merged again with the given layers, or <code>null</code> if they aren't the same
+     *         files it was merged from
+     */
+    private static ConfigSnapshot remerge(ConfigSnapshot previous, List<PropertyLayer> layers) {
+        PropertyLayer[] before = previous.layers();
+        if (before.length != layers.size()) {
+            return null;
+        }
+        ConfigSnapshot[] replacements = new ConfigSnapshot[before.length];
+        for (int i = 0; i < before.length; i++) {
+            PropertyLayer layer = layers.get(i);
+            if ((layer.getLayer() != before[i].getLayer()) || !layer.getSource().equals(before[i].getSource())) {
+                return null;
+            }
+            if (layer.getEntries() != before[i].getEntries()) {
+                replacements[i] = layer.getEntries();
+            }
+        }
+        return IncrementalMerge.merge(previous, replacements, true).getSnapshot();
+    }
+
+    public EnvironmentSettings getSettings() {
+        return settings;
+    }
+
+    public String getParent() {
+        return parent;
+    }
+
+    public boolean isClasspath() {
+        return classpath;
+    }
+
+    /**
+     * @return The directory holding the override files, or <code>null</code> if it is named by app.datadir
+     */
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    public LayerCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public String toString() {
+        return "EnvironmentMuncher[" + settings.SERVER_ENV + ", " + PropertiesMuncher.describe(parent, classpath, "")
+                + "]";
+    }
+}
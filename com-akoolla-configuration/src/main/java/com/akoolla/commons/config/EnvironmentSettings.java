@@ -35,14 +35,24 @@ public class EnvironmentSettings {
 
     public final String SERVER_ENV;
 
+    private final String serverConfig;
+
     /**
      * The 'actualValue is the setting from $SERVER_ENV - may not be one of the supported platforms
      */
     public EnvironmentSettings(Platform platform, Profile profile, final String serverEnv) {
+        this(platform, profile, serverEnv, null);
+    }
+
+    /**
+     * @param serverConfig The setting from $SERVER_CONFIG, the directory app.datadir=SERVER_CONFIG refers to
+     */
+    public EnvironmentSettings(Platform platform, Profile profile, final String serverEnv, final String serverConfig) {
         super();
         this.platform = platform;
         this.profile = profile;
         SERVER_ENV = serverEnv;
+        this.serverConfig = serverConfig;
     }
 
     public boolean platformIsOneOf(List<Platform> platforms) {
@@ -57,6 +67,13 @@ public class EnvironmentSettings {
         return profile;
     }
 
+    /**
+     * @return The value of SERVER_CONFIG, or <code>null</code> if it isn't set
+     */
+    public String getServerConfig() {
+        return serverConfig;
+    }
+
     @Override
     public String toString() {
         return "Platform : " + platform + ", profile : " + profile;
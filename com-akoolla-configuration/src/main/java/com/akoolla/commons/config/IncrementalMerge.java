@@ -0,0 +1,166 @@
+package com.akoolla.commons.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * IncrementalMerge.
+ *
+ * <p> Merges a configuration again after some of its files have changed, without reading or merging the files that
+ * haven't. A {@link ConfigSnapshot} merged by {@link LayeredMerge} keeps the layers it was merged from, so given new
+ * properties for some of them only the keys those layers added, removed or changed the value or line of are looked at
+ * again: each is given the value of the highest layer that has it, or removed if none does. The rest of the table is
+ * shared with the previous snapshot, so changing a few keys copies only the few pages of the table holding them. </p>
+ *
+ * <p> A layer whose new properties hash and compare the same as its old ones, each on the same line, is left alone.
+ * Keys that only moved to other lines, e.g. after a comment was added above them, take their new lines so provenance
+ * stays right, but are not reported as changed. When strict the keys looked at again are checked as
+ * {@link LayeredMerge} would check them, every layer above the lowest may only have keys the lowest has. </p>
+ */
+final class IncrementalMerge {
+
+    private IncrementalMerge() {
+    }
+
+    /**
+     * The result of a merge, the new snapshot and the keys whose values differ from the previous one.
+     */
+    static final class Result {
+
+        private final ConfigSnapshot snapshot;
+
+        private final Set<String> changedKeys;
+
+        Result(ConfigSnapshot snapshot, Set<String> changedKeys) {
+            this.snapshot = snapshot;
+            this.changedKeys = changedKeys;
+        }
+
+        ConfigSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * @return The keys that were added, removed or given a different value, empty if nothing changed
+         */
+        Set<String> getChangedKeys() {
+            return changedKeys;
+        }
+    }
+
+    /**
+     * @param previous A snapshot merged from layers whose properties are all {@link PropertyLayer#isLoaded() known}
+     * @param replacements The new properties of each of the previous snapshot's layers, in the same order, or
+     *        <code>null</code> for a layer that hasn't changed
+     * @param strict Whether keys must exist in a lower layer to be overridden
+     * @return The merged snapshot, the previous snapshot itself if no layer's properties changed
+     * @throws UnmatchedPropertyException if strict and a changed key now overrides nothing
+     */
+    static Result merge(ConfigSnapshot previous, ConfigSnapshot[] replacements, boolean strict) {
+        boolean timed = ConfigMetrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        PropertyLayer[] layers = previous.layers().clone();
+        if (replacements.length != layers.length) {
+            throw new IllegalArgumentException("Expected " + layers.length + " layers but was given "
+                    + replacements.length);
+        }
+
+        Set<String> touched = new LinkedHashSet<String>();
+        for (int i = 0; i < layers.length; i++) {
+            if (!layers[i].isLoaded()) {
+                throw new IllegalArgumentException("The properties of the " + layers[i] + " are not known");
+            }
+            if (replacements[i] != null && !layers[i].hasEntries(replacements[i])) {
+                addChangedKeys(touched, layers[i].getEntries(), replacements[i]);
+                layers[i] = new PropertyLayer(layers[i].getLayer(), layers[i].getSource(), replacements[i]);
+            }
+        }
+        if (touched.isEmpty()) {
+            return new Result(previous, Collections.<String>emptySet());
+        }
+
+        if (strict) {
+            check(layers, touched);
+        }
+
+        ConfigSnapshot.Builder builder = previous.toBuilder(layers);
+        for (String key : touched) {
+            int winner = layers.length - 1;
+            int slot = -1;
+            while (winner >= 0 && (slot = layers[winner].getEntries().indexOf(key)) < 0) {
+                winner--;
+            }
+            if (winner < 0) {
+                builder.remove(key);
+            } else {
+                ConfigSnapshot entries = layers[winner].getEntries();
+                builder.put(key, entries.valueAt(slot), winner, entries.lineAt(slot));
+            }
+        }
+        ConfigSnapshot merged = builder.build();
+
+        Set<String> changed = new HashSet<String>();
+        for (String key : touched) {
+            int before = previous.indexOf(key);
+            int after = merged.indexOf(key);
+            if ((before < 0) != (after < 0)
+                    || (after >= 0 && !merged.valueAt(after).equals(previous.valueAt(before)))) {
+                changed.add(key);
+            }
+        }
+
+        if (timed) {
+            ConfigMetrics.merged(layers.length, merged.size(), System.nanoTime() - start);
+        }
+        return new Result(merged, changed);
+    }
+
+    /**
+     * Adds the keys a layer's properties added, removed or changed the value or line of.
+     */
+    private static void addChangedKeys(Set<String> keys, ConfigSnapshot before, ConfigSnapshot after) {
+        for (int slot = 0; slot < before.capacity(); slot++) {
+            String key = before.keyAt(slot);
+            if (key != null) {
+                int now = after.indexOf(key);
+                if (now < 0 || !after.valueAt(now).equals(before.valueAt(slot))
+                        || after.lineAt(now) != before.lineAt(slot)) {
+                    keys.add(key);
+                }
+            }
+        }
+        for (int slot = 0; slot < after.capacity(); slot++) {
+            String key = after.keyAt(slot);
+            if (key != null && before.indexOf(key) < 0) {
+                keys.add(key);
+            }
+        }
+    }
+
+    /**
+     * Checks the given keys are all in the lowest layer if any higher layer has them.
+     */
+    private static void check(PropertyLayer[] layers, Set<String> keys) {
+        LayeredMerge.Unmatched unmatched = new LayeredMerge.Unmatched();
+        ConfigSnapshot lowest = layers[0].getEntries();
+        for (int i = 1; i < layers.length; i++) {
+            List<String> layerUnmatched = null;
+            for (String key : keys) {
+                if (lowest.indexOf(key) < 0 && layers[i].getEntries().indexOf(key) >= 0) {
+                    if (layerUnmatched == null) {
+                        layerUnmatched = new ArrayList<String>();
+                    }
+                    layerUnmatched.add(key);
+                }
+            }
+            if (layerUnmatched != null) {
+                unmatched.add(layers[i], layerUnmatched);
+            }
+        }
+        unmatched.check();
+    }
+}
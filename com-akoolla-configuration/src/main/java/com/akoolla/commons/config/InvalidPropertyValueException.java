@@ -0,0 +1,41 @@
+package com.akoolla.commons.config;
+
+/**
+ * InvalidPropertyValueException.
+ *
+ * <p> Thrown by {@link TypedConfig} when a property value cannot be converted to the requested type. The message names
+ * the key, the value and, when known, the file that supplied it. </p>
+ */
+public class InvalidPropertyValueException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String key;
+
+    private final String value;
+
+    private final String source;
+
+    public InvalidPropertyValueException(String key, String value, String expected, String source, Throwable cause) {
+        super("Property " + key + " has the value [" + value + "] which is not " + expected
+                + ((source == null) ? "" : ", it was supplied by the " + source), cause);
+        this.key = key;
+        this.value = value;
+        this.source = source;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return A description of the file that supplied the value, or <code>null</code> if it is not known
+     */
+    public String getSource() {
+        return source;
+    }
+}
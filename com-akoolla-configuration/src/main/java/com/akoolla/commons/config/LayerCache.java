@@ -0,0 +1,165 @@
+package com.akoolla.commons.config;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LayerCache.
+ *
+ * <p> The parsed properties files of the {@link EnvironmentMuncher}s given the same cache. Each file is parsed once
+ * into a {@link ConfigSnapshot} of its own, which the layers of every configuration merged from it then refer to, so
+ * tenants sharing a base file such as config/environment.properties hold one copy of its keys and values between
+ * them however many there are. The merged snapshots refer to the same key and value strings rather than copies. </p>
+ *
+ * <p> A file is parsed again once its modification time or length changes, or it appears or disappears, so a munch
+ * after an edit sees the new content while the other files keep coming from the cache. Classpath resources in jars
+ * are taken not to change. As with {@link PropertiesMuncherCache}, only one thread parses any given file and a parse
+ * that fails is not cached. </p>
+ */
+public final class LayerCache {
+
+    private static final LayerCache SHARED = new LayerCache();
+
+    /** The stamp of a file that doesn't exist. */
+    private static final long MISSING = -1;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @return The cache used by {@link EnvironmentMuncher}s not given one of their own
+     */
+    public static LayerCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the parsed file, parsing it with the given reader if it isn't cached or has changed since.
+     *
+     * @param stamp The file's {@link #stamp(File)}, or the stamps of its files combined
+     */
+    ConfigSnapshot get(ConfigLayer layer, String source, long stamp, Callable<ConfigSnapshot> reader) {
+        String key = layer + " " + source;
+        while (true) {
+            Entry entry = entries.get(key);
+            if ((entry != null) && (entry.stamp == stamp)) {
+                hits.incrementAndGet();
+                return entry.get(key);
+            }
+
+            Entry fresh = new Entry(stamp, new FutureTask<ConfigSnapshot>(reader));
+            boolean added = (entry == null) ? entries.putIfAbsent(key, fresh) == null
+                    : entries.replace(key, entry, fresh);
+            if (added) {
+                misses.incrementAndGet();
+                fresh.task.run();
+                try {
+                    return fresh.get(key);
+                } catch (RuntimeException e) {
+                    entries.remove(key, fresh);
+                    throw e;
+                } catch (Error e) {
+                    entries.remove(key, fresh);
+                    throw e;
+                }
+            }
+            // another thread got there first, use what it cached
+        }
+    }
+
+    /**
+     * Discards every cached file, the next munch of each parses it again.
+     */
+    public void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * @return The number of files cached
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return A value that changes when the file changes
+     */
+    static long stamp(File file) {
+        long modified = file.lastModified();
+        if ((modified == 0) && !file.exists()) {
+            return MISSING;
+        }
+        return modified * 31 + file.length();
+    }
+
+    /**
+     * @return A value that changes when the resource changes, the stamp of its file if it is a file, or a constant for
+     *         a resource in a jar
+     */
+    static long stamp(URL resource) {
+        if (resource == null) {
+            return MISSING;
+        }
+        if (!"file".equals(resource.getProtocol())) {
+            return 0;
+        }
+        try {
+            return stamp(new File(resource.toURI()));
+        } catch (URISyntaxException e) {
+            return 0;
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * A parsed file and the stamp of the file when it was parsed.
+     */
+    private static final class Entry {
+
+        private final long stamp;
+
+        private final FutureTask<ConfigSnapshot> task;
+
+        Entry(long stamp, FutureTask<ConfigSnapshot> task) {
+            this.stamp = stamp;
+            this.task = task;
+        }
+
+        ConfigSnapshot get(String key) {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for " + key + " to be parsed", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException("Couldn't parse " + key, cause);
+            }
+        }
+    }
+}
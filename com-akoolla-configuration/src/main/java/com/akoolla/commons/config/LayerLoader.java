@@ -0,0 +1,129 @@
+package com.akoolla.commons.config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * LayerLoader.
+ *
+ * <p> Reads the files of a munch, either one after another on the calling thread or all at once on an executor, see
+ * {@link PropertiesMuncher#setParallelLoad(boolean)}. Reads are started with {@link #start(Callable)} and their result
+ * collected with {@link #join(Future)}, which behaves exactly as calling the read directly would, so the munch is the
+ * same whichever way the files were read. </p>
+ *
+ * <p> Unless an executor is supplied, parallel reads use virtual threads where the JVM has them and otherwise a small
+ * pool of daemon threads that die off once startup is over. </p>
+ */
+final class LayerLoader {
+
+    /** The logger for this class. **/
+    private static Log log = LogFactory.getLog(LayerLoader.class);
+
+    private static final int MAX_THREADS = 4;
+
+    private static volatile boolean parallel = false;
+
+    private static volatile Executor executor;
+
+    private LayerLoader() {
+    }
+
+    static boolean isParallel() {
+        return parallel;
+    }
+
+    static void setParallel(boolean parallel) {
+        LayerLoader.parallel = parallel;
+    }
+
+    /**
+     * @param executor The executor to read files on, <code>null</code> for the default one
+     */
+    static void setExecutor(Executor executor) {
+        LayerLoader.executor = executor;
+    }
+
+    /**
+     * Starts reading a file; when not loading in parallel the read is done before this returns.
+     */
+    static Future<ConfigSnapshot> start(Callable<ConfigSnapshot> read) {
+        FutureTask<ConfigSnapshot> task = new FutureTask<ConfigSnapshot>(read);
+        if (parallel) {
+            executor().execute(task);
+        } else {
+            task.run();
+        }
+        return task;
+    }
+
+    /**
+     * Waits for a read to complete, throwing whatever the read threw.
+     */
+    static ConfigSnapshot join(Future<ConfigSnapshot> read) {
+        try {
+            return read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for properties to be read", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Couldn't read properties", cause);
+        }
+    }
+
+    private static Executor executor() {
+        Executor current = executor;
+        if (current == null) {
+            synchronized (LayerLoader.class) {
+                current = executor;
+                if (current == null) {
+                    current = newDefaultExecutor();
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Executor newDefaultExecutor() {
+        try {
+            // Java 21 onwards
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Virtual threads are not available, reading properties on a thread pool");
+            }
+        }
+
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "PropertiesMuncher-loader-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,120 @@
+package com.akoolla.commons.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * LayeredMerge.
+ *
+ * <p> Merges any number of property layers, ordered from the lowest precedence to the highest, straight into a
+ * {@link ConfigSnapshot}. Each layer is walked once: the first layer fills the snapshot's table, which is sized for it
+ * up front, and every later layer overwrites the values it overrides in place. The layers are the tables their files
+ * were parsed into, so no {@link java.util.Properties} are involved. A strict merge, which can't add keys to the first
+ * layer's, doesn't fill a table at all but starts from the first layer's own, sharing every page of it that no later
+ * layer overrides a key in. </p>
+ *
+ * <p> When strict, which is how {@link PropertiesMuncher} merges, a layer may only override keys that exist in a lower
+ * layer. The check happens during the same walk and every offending key, from every layer, is reported in a single
+ * {@link UnmatchedPropertyException}. </p>
+ */
+final class LayeredMerge {
+
+    private LayeredMerge() {
+    }
+
+    /**
+     * @param layers The layers to merge, from the lowest precedence to the highest
+     * @param strict Whether keys must exist in a lower layer to be overridden
+     * @return The merged snapshot, remembering the layer each value came from
+     * @throws UnmatchedPropertyException if strict and any layer has keys that override nothing
+     */
+    static ConfigSnapshot merge(List<PropertyLayer> layers, boolean strict) {
+        boolean timed = ConfigMetrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        PropertyLayer[] array = layers.toArray(new PropertyLayer[layers.size()]);
+
+        ConfigSnapshot.Builder builder;
+        int first;
+        if (strict && array.length > 0) {
+            builder = array[0].getEntries().toLayerBuilder(array);
+            first = 1;
+        } else {
+            int expectedSize = 0;
+            for (int i = 0; i < array.length; i++) {
+                expectedSize += array[i].getEntries().size();
+            }
+            builder = new ConfigSnapshot.Builder(expectedSize, array);
+            first = 0;
+        }
+        Unmatched unmatched = new Unmatched();
+
+        for (int i = first; i < array.length; i++) {
+            List<String> layerUnmatched = null;
+            ConfigSnapshot entries = array[i].getEntries();
+
+            for (int slot = 0; slot < entries.capacity(); slot++) {
+                String key = entries.keyAt(slot);
+                if (key == null) {
+                    continue;
+                }
+                String value = entries.valueAt(slot);
+
+                if (i == 0 || !strict) {
+                    builder.put(key, value, i, entries.lineAt(slot));
+                } else if (!builder.replace(key, value, i, entries.lineAt(slot))) {
+                    if (layerUnmatched == null) {
+                        layerUnmatched = new ArrayList<String>();
+                    }
+                    layerUnmatched.add(key);
+                }
+            }
+
+            if (layerUnmatched != null) {
+                unmatched.add(array[i], layerUnmatched);
+            }
+        }
+
+        unmatched.check();
+        ConfigSnapshot merged = builder.build();
+        if (timed) {
+            ConfigMetrics.merged(array.length, merged.size(), System.nanoTime() - start);
+        }
+        return merged;
+    }
+
+    /**
+     * Collects the keys each layer has that override nothing, to report them all at once.
+     */
+    static final class Unmatched {
+
+        private StringBuilder report;
+
+        private List<String> keys;
+
+        /**
+         * @param layer The layer, added in precedence order
+         * @param layerKeys Its keys that override nothing, sorted here
+         */
+        void add(PropertyLayer layer, List<String> layerKeys) {
+            Collections.sort(layerKeys);
+            if (keys == null) {
+                keys = new ArrayList<String>();
+                report = new StringBuilder("Couldn't merge properties, these keys don't exist in any lower "
+                        + "precedence properties file:");
+            }
+            keys.addAll(layerKeys);
+            report.append(" the ").append(layer).append(" contains ").append(layerKeys).append(';');
+        }
+
+        /**
+         * @throws UnmatchedPropertyException if any keys were added
+         */
+        void check() {
+            if (keys != null) {
+                report.setLength(report.length() - 1);
+                throw new UnmatchedPropertyException(report.toString(), keys);
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.akoolla.commons.config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * LazyConfig.
+ *
+ * <p> The configuration {@link PropertiesMuncher#munch()} would merge, read a file at a time as lookups need them. A
+ * key is looked for in each layer in precedence order, the data directory's environment specific file, the data
+ * directory's environment.properties, the environment specific file, the profile specific file and then
+ * environment.properties, and each file is parsed the first time a lookup reaches it. A tool reading a few keys that
+ * the override files supply never parses the files below them. </p>
+ *
+ * <p> Finding the data directory means knowing app.datadir, so the environment specific file, and the profile specific
+ * file and environment.properties if that doesn't set it, are scanned for that one key before the data directory's
+ * files are read. A scan keeps nothing but the key's value and stops at the first file that sets it, so those files
+ * are still only parsed if a lookup reaches them. As with {@link PropertiesMuncher#munch()}, if any file but
+ * environment.properties can't be read the configuration is environment.properties alone. </p>
+ *
+ * <p> Lookups don't check that the files merge strictly, call {@link #validate()} for that, which reads every file.
+ * Nothing is cached between instances and a view never rereads a file, it is safe to share between threads. </p>
+ */
+public final class LazyConfig {
+
+    /** Marks a layer that has been looked for and isn't there. */
+    private static final PropertyLayer ABSENT = new PropertyLayer(ConfigLayer.GLOBAL, null, null);
+
+    private static final ConfigLayer[] PRECEDENCE = { ConfigLayer.DATA_DIR_ENVIRONMENT, ConfigLayer.DATA_DIR_GLOBAL,
+            ConfigLayer.ENVIRONMENT, ConfigLayer.PROFILE, ConfigLayer.GLOBAL };
+
+    private final String parent;
+
+    private final boolean classpath;
+
+    private final String globalProps;
+
+    private final String profileFileName;
+
+    private final String envFileName;
+
+    private final String dataDirEnvFileName;
+
+    /** The layers read so far, by {@link ConfigLayer} ordinal. */
+    private final AtomicReferenceArray<PropertyLayer> layers =
+            new AtomicReferenceArray<PropertyLayer>(ConfigLayer.values().length);
+
+    private final Object lock = new Object();
+
+    private volatile boolean dataDirResolved;
+
+    private volatile File dataDir;
+
+    /** Whether a file failed to read, leaving environment.properties alone. */
+    private volatile boolean globalOnly;
+
+    LazyConfig(String parent, boolean classpath, String globalProps, String profileFileName, String envFileName,
+               String dataDirEnvFileName) {
+        this.parent = parent;
+        this.classpath = classpath;
+        this.globalProps = globalProps;
+        this.profileFileName = profileFileName;
+        this.envFileName = envFileName;
+        this.dataDirEnvFileName = dataDirEnvFileName;
+    }
+
+    public String get(String key) {
+        PropertyLayer layer = find(key);
+        return (layer == null) ? null : layer.getEntries().valueAt(layer.getEntries().indexOf(key));
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = get(key);
+        return (value == null) ? defaultValue : value;
+    }
+
+    public boolean containsKey(String key) {
+        return find(key) != null;
+    }
+
+    /**
+     * @return The layer that supplies the given key, or <code>null</code> if none does
+     */
+    public ConfigLayer getLayer(String key) {
+        PropertyLayer layer = find(key);
+        return (layer == null) ? null : layer.getLayer();
+    }
+
+    /**
+     * @return The file or classpath resource that supplies the given key, or <code>null</code> if none does
+     */
+    public String getSource(String key) {
+        PropertyLayer layer = find(key);
+        return (layer == null) ? null : layer.getSource();
+    }
+
+    /**
+     * @return Whether the given layer's file has been read, or looked for and found not to be there
+     */
+    public boolean isLoaded(ConfigLayer layer) {
+        return layers.get(layer.ordinal()) != null;
+    }
+
+    /**
+     * Reads every file and merges them as {@link PropertiesMuncher#munch()} does.
+     *
+     * @return The merged configuration
+     * @throws UnmatchedPropertyException if a file sets a property the files below it don't
+     */
+    public ConfigSnapshot validate() {
+        List<PropertyLayer> merged = new ArrayList<PropertyLayer>(PRECEDENCE.length);
+        for (int i = PRECEDENCE.length - 1; i >= 0; i--) {
+            PropertyLayer layer = layer(PRECEDENCE[i]);
+            if (globalOnly) {
+                break;
+            }
+            if (layer != ABSENT) {
+                merged.add(layer);
+            }
+        }
+        if (globalOnly) {
+            merged.clear();
+            merged.add(layer(ConfigLayer.GLOBAL));
+        }
+        return LayeredMerge.merge(merged, true);
+    }
+
+    /**
+     * @return The highest precedence layer that has the given key, or <code>null</code> if none does
+     */
+    private PropertyLayer find(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : key");
+        }
+        PropertyLayer found = probe(key);
+        if (ConfigMetrics.enabled) {
+            ConfigMetrics.lookup(key, found != null);
+        }
+        return found;
+    }
+
+    private PropertyLayer probe(String key) {
+        for (ConfigLayer each : PRECEDENCE) {
+            PropertyLayer layer = layer(each);
+            if (globalOnly) {
+                layer = layer(ConfigLayer.GLOBAL);
+                return (layer.getEntries().indexOf(key) >= 0) ? layer : null;
+            }
+            if ((layer != ABSENT) && (layer.getEntries().indexOf(key) >= 0)) {
+                return layer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The given layer, read if it hasn't been, or {@link #ABSENT}
+     */
+    private PropertyLayer layer(ConfigLayer which) {
+        PropertyLayer layer = layers.get(which.ordinal());
+        if (layer != null) {
+            return layer;
+        }
+
+        synchronized (lock) {
+            layer = layers.get(which.ordinal());
+            if (layer == null) {
+                try {
+                    layer = read(which);
+                } catch (RuntimeException e) {
+                    if (which == ConfigLayer.GLOBAL) {
+                        throw e;
+                    }
+                    globalOnly = true;
+                    layer = ABSENT;
+                }
+                layers.set(which.ordinal(), layer);
+            }
+            return layer;
+        }
+    }
+
+    private PropertyLayer read(ConfigLayer which) {
+        switch (which) {
+            case GLOBAL:
+                return new PropertyLayer(which, PropertiesMuncher.describe(parent, classpath, globalProps),
+                        PropertiesMuncher.readLayer(which, parent, classpath, globalProps));
+            case PROFILE:
+                return new PropertyLayer(which, PropertiesMuncher.describe(parent, classpath, profileFileName),
+                        PropertiesMuncher.readLayer(which, parent, classpath, profileFileName));
+            case ENVIRONMENT:
+                return new PropertyLayer(which, PropertiesMuncher.describe(parent, classpath, envFileName),
+                        PropertiesMuncher.readLayer(which, parent, classpath, envFileName));
+            case DATA_DIR_GLOBAL:
+                return readDataDir(which, PropertiesMuncher.getGlobalProperties(), true);
+            default:
+                return readDataDir(which, dataDirEnvFileName, false);
+        }
+    }
+
+    /**
+     * @param optional Whether the layer is left out when its file isn't there, rather than being empty
+     */
+    private PropertyLayer readDataDir(ConfigLayer which, String filename, boolean optional) {
+        File directory = dataDir();
+        if (directory == null) {
+            return ABSENT;
+        }
+        File file = new File(directory, filename);
+        if (optional && !file.exists()) {
+            return ABSENT;
+        }
+        return new PropertyLayer(which, file.getPath(), PropertiesMuncher.readFileLayer(which, directory, filename));
+    }
+
+    /**
+     * @return The directory named by app.datadir, or <code>null</code> if it isn't set or isn't there, or if a file
+     *         failed to read so the data directory's files don't apply
+     */
+    private File dataDir() {
+        if (!dataDirResolved) {
+            String key = PropertiesMuncher.appDataDirProperty;
+            String name = property(ConfigLayer.ENVIRONMENT, key, envFileName);
+            if (name == null) {
+                name = property(ConfigLayer.PROFILE, key, profileFileName);
+            }
+            if (name == null) {
+                name = property(ConfigLayer.GLOBAL, key, globalProps);
+            }
+            if (globalOnly) {
+                dataDir = null;
+            } else {
+                name = PropertiesMuncher.resolveAppDataDir(name);
+                dataDir = ((name != null) && PropertiesMuncher.exists(name)) ? new File(name) : null;
+            }
+            dataDirResolved = true;
+        }
+        return dataDir;
+    }
+
+    /**
+     * @return The value of the key in the given layer, scanned for in its file if the layer hasn't been read, or
+     *         <code>null</code> if the layer doesn't have it, isn't there or failed to read
+     */
+    private String property(ConfigLayer which, String key, String filename) {
+        if (globalOnly) {
+            return null;
+        }
+        PropertyLayer layer = layers.get(which.ordinal());
+        if (layer == null) {
+            try {
+                return PropertiesMuncher.scanLayer(parent, classpath, filename, key);
+            } catch (RuntimeException e) {
+                if (which == ConfigLayer.GLOBAL) {
+                    throw e;
+                }
+                globalOnly = true;
+                layers.set(which.ordinal(), ABSENT);
+                return null;
+            }
+        }
+        if (layer == ABSENT) {
+            return null;
+        }
+        ConfigSnapshot entries = layer.getEntries();
+        int slot = entries.indexOf(key);
+        return (slot < 0) ? null : entries.valueAt(slot);
+    }
+}
@@ -0,0 +1,155 @@
+package com.akoolla.commons.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PrecompiledPlaceholders.
+ *
+ * <p> Every value of a {@link ConfigSnapshot} with the placeholders inside it already resolved, and trimmed if asked,
+ * so that looking a placeholder up is a single read of an immutable table. Placeholders may be nested, as in
+ * <code>${db.${region}.url}</code>, and are resolved until no more can be, against the snapshot only. A placeholder
+ * naming a key the snapshot doesn't have is left as it is, for Spring to resolve or report. </p>
+ */
+final class PrecompiledPlaceholders {
+
+    private final ConfigSnapshot source;
+
+    private final ConfigSnapshot values;
+
+    private PrecompiledPlaceholders(ConfigSnapshot source, ConfigSnapshot values) {
+        this.source = source;
+        this.values = values;
+    }
+
+    /**
+     * @throws IllegalStateException if the values refer to each other in a cycle
+     */
+    static PrecompiledPlaceholders of(ConfigSnapshot snapshot, String prefix, String suffix, boolean trim) {
+        Resolver resolver = new Resolver(snapshot, prefix, suffix, trim);
+        ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder(snapshot.size(), null);
+        for (int slot = 0; slot < snapshot.capacity(); slot++) {
+            String key = snapshot.keyAt(slot);
+            if (key != null) {
+                builder.put(key, resolver.resolveKey(key), 0);
+            }
+        }
+        return new PrecompiledPlaceholders(snapshot, builder.build());
+    }
+
+    /**
+     * @return Whether these are the resolved values of the given snapshot
+     */
+    boolean isFor(ConfigSnapshot snapshot) {
+        return source == snapshot;
+    }
+
+    String get(String placeholder) {
+        return values.get(placeholder);
+    }
+
+    /**
+     * Resolves each key once, remembering the keys being resolved to detect cycles.
+     */
+    private static final class Resolver {
+
+        private final ConfigSnapshot snapshot;
+
+        private final String prefix;
+
+        private final String suffix;
+
+        private final boolean trim;
+
+        private final Map<String, String> resolved;
+
+        private final List<String> resolving = new ArrayList<String>();
+
+        Resolver(ConfigSnapshot snapshot, String prefix, String suffix, boolean trim) {
+            this.snapshot = snapshot;
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.trim = trim;
+            this.resolved = new HashMap<String, String>(snapshot.size() * 2);
+        }
+
+        String resolveKey(String key) {
+            String value = resolved.get(key);
+            if (value != null) {
+                return value;
+            }
+
+            if (resolving.contains(key)) {
+                StringBuilder path = new StringBuilder();
+                for (String name : resolving.subList(resolving.indexOf(key), resolving.size())) {
+                    path.append(name).append(" -> ");
+                }
+                throw new IllegalStateException("Circular placeholder reference '" + key
+                        + "' in property definitions : " + path.append(key));
+            }
+
+            resolving.add(key);
+            value = resolveValue(snapshot.valueAt(snapshot.indexOf(key)));
+            if (trim) {
+                value = value.trim();
+            }
+            resolving.remove(resolving.size() - 1);
+
+            resolved.put(key, value);
+            return value;
+        }
+
+        private String resolveValue(String value) {
+            int start = value.indexOf(prefix);
+            if (start < 0) {
+                return value;
+            }
+
+            StringBuilder result = new StringBuilder(value.length());
+            int from = 0;
+            while (start >= 0) {
+                int end = placeholderEnd(value, start + prefix.length());
+                if (end < 0) {
+                    break;
+                }
+                result.append(value, from, start);
+
+                String name = resolveValue(value.substring(start + prefix.length(), end));
+                if (snapshot.indexOf(name) >= 0) {
+                    result.append(resolveKey(name));
+                } else {
+                    result.append(prefix).append(name).append(suffix);
+                }
+
+                from = end + suffix.length();
+                start = value.indexOf(prefix, from);
+            }
+            return result.append(value, from, value.length()).toString();
+        }
+
+        /**
+         * @return The index of the suffix closing the placeholder whose name starts at <code>from</code>, or -1
+         */
+        private int placeholderEnd(String value, int from) {
+            int nested = 0;
+            int index = from;
+            while (index < value.length()) {
+                if (value.startsWith(suffix, index)) {
+                    if (nested == 0) {
+                        return index;
+                    }
+                    nested--;
+                    index += suffix.length();
+                } else if (value.startsWith(prefix, index)) {
+                    nested++;
+                    index += prefix.length();
+                } else {
+                    index++;
+                }
+            }
+            return -1;
+        }
+    }
+}
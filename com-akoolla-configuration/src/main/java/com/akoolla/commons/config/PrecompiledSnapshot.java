@@ -0,0 +1,437 @@
+package com.akoolla.commons.config;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * PrecompiledSnapshot.
+ *
+ * <p> A munched configuration written to a compact binary file, so a JVM can start without finding, parsing and
+ * merging the properties files. The file holds a string table, the keys in sorted order each with its value and the
+ * layer and line that supplied it, a description of every layer, and a SHA-256 hash of every file the munch read or
+ * looked for. </p>
+ *
+ * <p> Build the file for an environment with {@link #main(String[])}, at build or deploy time, and point the muncher
+ * at it with {@link PropertiesMuncher#setPrecompiledSnapshot(File)} or the CONFIG_SNAPSHOT system property or
+ * environment variable. A munch then memory maps the file and serves it, provided it was built for the same munch,
+ * SERVER_ENV, SERVER_PROFILE and SERVER_CONFIG and the files it was built from still hash the same. Otherwise, or if
+ * the file can't be read, the properties files are parsed as usual. </p>
+ *
+ * <p> The mapped file is decoded, not served in place. Once the hash matches, every key and value String is created
+ * from the string table and put into a table sized for them up front, in the order of the sorted index. What a
+ * munch saves is finding, parsing, unescaping and merging the files, not allocating the snapshot, and lookups are
+ * served from the {@link ConfigSnapshot}'s own table as for any other munch. </p>
+ */
+public final class PrecompiledSnapshot {
+
+    /** The logger for this class. **/
+    private static Log log = LogFactory.getLog(PrecompiledSnapshot.class);
+
+    /** "AKCS" */
+    private static final int MAGIC = 0x414b4353;
+
+    private static final int VERSION = 4;
+
+    private static final byte CLASSPATH_INPUT = 0;
+
+    private static final byte FILE_INPUT = 1;
+
+    private static final int HASH_LENGTH = 32;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private PrecompiledSnapshot() {
+    }
+
+    /**
+     * Writes the snapshot of a munch for the given SERVER_ENV. With no parent the snapshot is of
+     * {@link PropertiesMuncher#munch()}, otherwise of {@link PropertiesMuncher#munch(String, boolean, String, String)}
+     * from the given package or directory with the default file names.
+     *
+     * <pre>
+     * PrecompiledSnapshot &lt;output file&gt; &lt;SERVER_ENV&gt; [&lt;parent&gt; classpath|filesystem]
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        if ((args.length != 2) && (args.length != 4)) {
+            System.err.println("Usage: PrecompiledSnapshot <output file> <SERVER_ENV> [<parent> classpath|filesystem]");
+            System.exit(1);
+        }
+
+        System.setProperty("SERVER_ENV", args[1]);
+        Environment.refresh();
+        File output = new File(args[0]);
+        ConfigSnapshot snapshot;
+        if (args.length == 2) {
+            snapshot = write(output);
+        } else {
+            snapshot = write(output, args[2], "classpath".equals(args[3]), PropertiesMuncher.getGlobalProperties(),
+                    PropertiesMuncher.getGlobalPropertiesDir());
+        }
+        System.out.println("Wrote " + snapshot.size() + " properties to " + output);
+    }
+
+    /**
+     * Munches as {@link PropertiesMuncher#munch()} does and writes the result to the given file.
+     *
+     * @return The snapshot written
+     */
+    public static ConfigSnapshot write(File output) throws IOException {
+        PropertiesMuncherCache.Key key = PropertiesMuncher.cacheKey(null, true, PropertiesMuncher.getGlobalProperties(),
+                PropertiesMuncher.getGlobalPropertiesDir());
+        ConfigSnapshot snapshot = PropertiesMuncher.parseAndMerge();
+        write(output, key, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Munches as {@link PropertiesMuncher#munch(String, boolean, String, String)} does and writes the result to the
+     * given file.
+     *
+     * @return The snapshot written
+     */
+    public static ConfigSnapshot write(File output, String parent, boolean classpath, String globalProps,
+                                       String globalPropsEnvDir) throws IOException {
+        if (parent == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : parent");
+        }
+        PropertiesMuncherCache.Key key = PropertiesMuncher.cacheKey(parent, classpath, globalProps, globalPropsEnvDir);
+        ConfigSnapshot snapshot = PropertiesMuncher.parseAndMerge(parent, classpath, globalProps, globalPropsEnvDir);
+        write(output, key, snapshot);
+        return snapshot;
+    }
+
+    private static void write(File output, PropertiesMuncherCache.Key key, ConfigSnapshot snapshot)
+            throws IOException {
+        List<Input> inputs = inputs(key, snapshot);
+        PropertyLayer[] layers = snapshot.layers();
+        String[] names = snapshot.keys();
+        Arrays.sort(names);
+
+        List<String> strings = new ArrayList<String>(names.length * 2);
+        Map<String, Integer> stringIds = new HashMap<String, Integer>(names.length * 4);
+        int[] entries = new int[names.length * 4];
+        for (int i = 0; i < names.length; i++) {
+            int slot = snapshot.indexOf(names[i]);
+            entries[i * 4] = stringId(names[i], strings, stringIds);
+            entries[i * 4 + 1] = stringId(snapshot.valueAt(slot), strings, stringIds);
+            entries[i * 4 + 2] = indexOf(layers, snapshot.layerAt(slot));
+            entries[i * 4 + 3] = snapshot.lineAt(slot);
+        }
+
+        File temp = new File(output.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            writeString(out, key.getParent());
+            out.writeBoolean(key.isClasspath());
+            writeString(out, key.getGlobalProps());
+            writeString(out, key.getGlobalPropsEnvDir());
+            writeString(out, key.getServerEnv());
+            writeString(out, key.getServerProfile());
+            writeString(out, key.getServerConfig());
+
+            out.writeInt(inputs.size());
+            for (Input input : inputs) {
+                out.writeByte(input.kind);
+                writeString(out, input.location);
+            }
+            out.write(hash(inputs));
+
+            out.writeInt(layers.length);
+            for (PropertyLayer layer : layers) {
+                out.writeByte(layer.getLayer().ordinal());
+                writeString(out, layer.getSource());
+            }
+
+            // string table: an offset per string, then the strings, so any string can be found without a scan
+            byte[][] encoded = new byte[strings.size()][];
+            out.writeInt(encoded.length);
+            int offset = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = strings.get(i).getBytes(UTF_8);
+                out.writeInt(offset);
+                offset += encoded[i].length;
+            }
+            out.writeInt(offset);
+            for (byte[] string : encoded) {
+                out.write(string);
+            }
+
+            // sorted key index: key, value, layer and line of each entry in key order
+            out.writeInt(names.length);
+            for (int i = 0; i < names.length; i++) {
+                out.writeInt(entries[i * 4]);
+                out.writeInt(entries[i * 4 + 1]);
+                out.writeByte(entries[i * 4 + 2]);
+                out.writeInt(entries[i * 4 + 3]);
+            }
+        } finally {
+            out.close();
+        }
+
+        if (output.exists() && !output.delete()) {
+            throw new IOException("Couldn't replace " + output);
+        }
+        if (!temp.renameTo(output)) {
+            throw new IOException("Couldn't rename " + temp + " to " + output);
+        }
+    }
+
+    /**
+     * Maps the given file and decodes its snapshot, if it was built for the given munch and its files haven't changed
+     * since.
+     *
+     * @return The snapshot, or <code>null</code> if the file is missing, out of date or can't be read
+     */
+    static ConfigSnapshot read(File file, PropertiesMuncherCache.Key key) {
+        if (!file.isFile()) {
+            if (log.isDebugEnabled()) {
+                log.debug("No precompiled snapshot at " + file);
+            }
+            return null;
+        }
+
+        try {
+            ByteBuffer in = map(file);
+            if ((in.getInt() != MAGIC) || (in.getInt() != VERSION)) {
+                log.warn("Ignoring precompiled snapshot " + file + ", it isn't a snapshot or is from another version");
+                return null;
+            }
+
+            PropertiesMuncherCache.Key built = new PropertiesMuncherCache.Key(readString(in), in.get() != 0,
+                    readString(in), readString(in), readString(in), readString(in), readString(in));
+            if (!built.equals(key)) {
+                if (log.isInfoEnabled()) {
+                    log.info("Ignoring precompiled snapshot " + file + ", it was built for " + built);
+                }
+                return null;
+            }
+
+            List<Input> inputs = new ArrayList<Input>();
+            for (int i = in.getInt(); i > 0; i--) {
+                inputs.add(new Input(in.get(), readString(in)));
+            }
+            byte[] hash = new byte[HASH_LENGTH];
+            in.get(hash);
+            if (!MessageDigest.isEqual(hash, hash(inputs))) {
+                if (log.isInfoEnabled()) {
+                    log.info("Ignoring precompiled snapshot " + file + ", the properties files have changed since");
+                }
+                return null;
+            }
+
+            PropertyLayer[] layers = new PropertyLayer[in.getInt()];
+            for (int i = 0; i < layers.length; i++) {
+                layers[i] = new PropertyLayer(ConfigLayer.values()[in.get()], readString(in), null);
+            }
+
+            String[] strings = readStrings(in);
+
+            int size = in.getInt();
+            ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder(size, layers);
+            for (int i = 0; i < size; i++) {
+                builder.put(strings[in.getInt()], strings[in.getInt()], in.get(), in.getInt());
+            }
+            if (log.isInfoEnabled()) {
+                log.info("Serving " + size + " properties from precompiled snapshot " + file);
+            }
+            return builder.build();
+
+        } catch (IOException e) {
+            log.warn("Couldn't read precompiled snapshot " + file, e);
+        } catch (BufferUnderflowException e) {
+            log.warn("Couldn't read precompiled snapshot " + file + ", it is truncated", e);
+        } catch (RuntimeException e) {
+            log.warn("Couldn't read precompiled snapshot " + file + ", it is corrupt", e);
+        }
+        return null;
+    }
+
+    /**
+     * @return Every file the munch read or looked for, in the order they are hashed
+     */
+    private static List<Input> inputs(PropertiesMuncherCache.Key key, ConfigSnapshot snapshot) {
+        String parent = (key.getParent() == null) ? "" : key.getParent();
+        String environmentFile = PropertiesMuncher.environmentFileName(key.getParent() == null,
+                key.getGlobalPropsEnvDir());
+
+        String profileFile = PropertiesMuncher.profileFileName(Environment.load());
+
+        List<Input> inputs = new ArrayList<Input>(8);
+        for (String name : new String[] {key.getGlobalProps(), profileFile, environmentFile}) {
+            if (key.isClasspath()) {
+                inputs.add(new Input(CLASSPATH_INPUT, parent + name));
+            } else {
+                inputs.add(new Input(FILE_INPUT, new File(parent, name).getPath()));
+                inputs.add(new Input(CLASSPATH_INPUT, name));
+            }
+        }
+
+        // the data dir is named by the global, profile and environment layers, so it can only change if they do
+        String dataDir = null;
+        for (PropertyLayer layer : snapshot.layers()) {
+            if ((layer.getLayer() == ConfigLayer.GLOBAL) || (layer.getLayer() == ConfigLayer.PROFILE)
+                    || (layer.getLayer() == ConfigLayer.ENVIRONMENT)) {
+                String value = layer.getEntries().get(PropertiesMuncher.getAppDataDirProperty());
+                if (value != null) {
+                    dataDir = value;
+                }
+            }
+        }
+        dataDir = PropertiesMuncher.resolveAppDataDir(dataDir);
+        if (dataDir != null) {
+            String dataDirEnvironmentFile = PropertiesMuncher.environmentFileName(key.getParent() == null,
+                    PropertiesMuncher.getGlobalPropertiesDir());
+            inputs.add(new Input(FILE_INPUT, new File(dataDir, PropertiesMuncher.getGlobalProperties()).getPath()));
+            inputs.add(new Input(FILE_INPUT, new File(dataDir, dataDirEnvironmentFile).getPath()));
+        }
+        return inputs;
+    }
+
+    /**
+     * @return The SHA-256 hash of the location and current content of every input, missing files included
+     */
+    private static byte[] hash(List<Input> inputs) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+
+        byte[] buffer = new byte[8192];
+        for (Input input : inputs) {
+            digest.update(input.kind);
+            digest.update(input.location.getBytes(UTF_8));
+
+            InputStream in = input.open();
+            if (in == null) {
+                digest.update((byte) 0);
+                continue;
+            }
+            digest.update((byte) 1);
+            try {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    digest.update(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+        }
+        return digest.digest();
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer in) {
+        String[] strings = new String[in.getInt()];
+        int[] offsets = new int[strings.length + 1];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = in.getInt();
+        }
+        byte[] bytes = new byte[offsets[strings.length]];
+        in.get(bytes);
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], UTF_8);
+        }
+        return strings;
+    }
+
+    private static int stringId(String string, List<String> strings, Map<String, Integer> stringIds) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            strings.add(string);
+            stringIds.put(string, id);
+        }
+        return id;
+    }
+
+    private static int indexOf(PropertyLayer[] layers, PropertyLayer layer) {
+        for (int i = 0; i < layers.length; i++) {
+            if (layers[i] == layer) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = string.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * A file the munch read or looked for, on the classpath or the file system.
+     */
+    private static final class Input {
+
+        private final byte kind;
+
+        private final String location;
+
+        Input(byte kind, String location) {
+            this.kind = kind;
+            this.location = location;
+        }
+
+        /**
+         * @return The file's content, or <code>null</code> if there is no such file
+         */
+        InputStream open() throws IOException {
+            if (kind == CLASSPATH_INPUT) {
+                URL resource = PropertiesMuncher.findResource(location);
+                return (resource == null) ? null : resource.openStream();
+            }
+            File file = new File(location);
+            return file.isFile() ? new FileInputStream(file) : null;
+        }
+    }
+}
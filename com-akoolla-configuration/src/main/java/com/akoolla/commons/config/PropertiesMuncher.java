@@ -4,11 +4,21 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.akoolla.commons.config.EnvironmentSettings.Profile;
+
 /**
  * PropertiesMuncher.
  * 
@@ -23,8 +33,13 @@ public class PropertiesMuncher {
     // private static final Log log = Log.getLogger(PropertiesMuncher.class);
     static String globalProperties = "config/environment.properties";
     static String globalPropertiesDir = "config/environments/";
+    static String profilesDir = "config/profiles/";
     static String appDataDirProperty = "app.datadir";
     static String SERVER_CONFIG = "SERVER_CONFIG";
+    static String CONFIG_SNAPSHOT = "CONFIG_SNAPSHOT";
+    static final String CLASSPATH_PREFIX = "classpath:";
+
+    private static volatile File precompiledSnapshot;
 
     private String parentPackage = "";
     private String parentPath = "";
@@ -47,6 +62,24 @@ public class PropertiesMuncher {
         return munch(getParentPath(), false, getGlobalProperties(), getGlobalPropertiesDir());
     }
 
+    /**
+     * Obtain the environment based configuration from the classpath
+     * 
+     * @return
+     */
+    public ConfigSnapshot munchClassPathBasedSnapshot() {
+        return munchSnapshot(getParentPackage(), true, getGlobalProperties(), getGlobalPropertiesDir());
+    }
+
+    /**
+     * Obtain the environment based configuration from the file system
+     * 
+     * @return
+     */
+    public ConfigSnapshot munchFileSystemBasedSnapshot() {
+        return munchSnapshot(getParentPath(), false, getGlobalProperties(), getGlobalPropertiesDir());
+    }
+
     /**
      * Reads the properties files, global and environment specific properties, from either the classpath or filesystem
      * 
@@ -56,48 +89,187 @@ public class PropertiesMuncher {
      * @param globalProps The name of the global environment.properties to read within the specified parent parameter
      * @param globalPropsEnvDir The name of the directory with in the parent parameter specified directory, which
      *        contains the environment specific properties files.
-     * @return
+     * @return A read-only view of the merged properties, shared with every other caller munching the same files
+     * @see PropertiesMuncherCache
      */
     public static Properties munch(String parent, boolean classpath, String globalProps, String globalPropsEnvDir) {
+        return munchSnapshot(parent, classpath, globalProps, globalPropsEnvDir).toProperties();
+    }
 
-        Properties global = null;
-        if (classpath) {
-            global = munchFromClasspath(parent + globalProps);
-        } else {
-            global = munchFromFile(new File(parent), globalProps);
+    /**
+     * As {@link #munch(String, boolean, String, String)}, but returns the merged configuration as a lock free
+     * {@link ConfigSnapshot}.
+     */
+    public static ConfigSnapshot munchSnapshot(final String parent, final boolean classpath, final String globalProps,
+                                               final String globalPropsEnvDir) {
+        return PropertiesMuncherCache.get(cacheKey(parent, classpath, globalProps, globalPropsEnvDir),
+                new Callable<ConfigSnapshot>() {
+
+                    public ConfigSnapshot call() {
+                        return munchUncached(parent, classpath, globalProps, globalPropsEnvDir);
+                    }
+                });
+    }
+
+    /**
+     * As {@link #munchSnapshot(String, boolean, String, String)}, but reads the files on the given executor rather than
+     * the calling thread, so they are read while the caller gets on with something else.
+     *
+     * @return The munch, completed with the merged configuration or with whatever the munch threw, e.g. an
+     *         {@link UnmatchedPropertyException} if the files don't merge strictly
+     */
+    public static CompletableFuture<ConfigSnapshot> munchAsync(final String parent, final boolean classpath,
+                                                               final String globalProps,
+                                                               final String globalPropsEnvDir, Executor executor) {
+        return async(new Callable<ConfigSnapshot>() {
+
+            public ConfigSnapshot call() {
+                return munchSnapshot(parent, classpath, globalProps, globalPropsEnvDir);
+            }
+        }, executor);
+    }
+
+    /**
+     * As {@link #munch(String, boolean, String, String)} but always reads the properties files, bypassing
+     * {@link PropertiesMuncherCache}.
+     */
+    static ConfigSnapshot munchUncached(String parent, boolean classpath, String globalProps,
+                                        String globalPropsEnvDir) {
+        return munchUncached(parent, classpath, globalProps, globalPropsEnvDir, false);
+    }
+
+    /**
+     * As {@link #munchUncached(String, boolean, String, String)}. Unless layered, or the files are
+     * {@link #setParallelLoad(boolean) read in parallel}, each file is streamed straight into the merged table, see
+     * {@link StreamingMerge}, so no file has a table of its own.
+     *
+     * @param layered Whether to keep the table each file was parsed into, so the munch can be merged again
+     *        incrementally when some of the files change, see {@link IncrementalMerge}
+     */
+    static ConfigSnapshot munchUncached(String parent, boolean classpath, String globalProps,
+                                        String globalPropsEnvDir, boolean layered) {
+        ConfigSnapshot precompiled = readPrecompiled(cacheKey(parent, classpath, globalProps, globalPropsEnvDir));
+        if (precompiled != null) {
+            return precompiled;
         }
+        if (layered || LayerLoader.isParallel()) {
+            return parseAndMerge(parent, classpath, globalProps, globalPropsEnvDir);
+        }
+        return streamAndMerge(Environment.load(), false, parent, classpath, globalProps, globalPropsEnvDir);
+    }
 
-        EnvironmentSettings settings = Environment.load();
-        String currentServerEnv = settings.getPlatform().toString().toLowerCase();
+    /**
+     * As {@link #munchUncached(String, boolean, String, String)} but always parses the properties files, ignoring any
+     * {@link PrecompiledSnapshot}.
+     */
+    static ConfigSnapshot parseAndMerge(String parent, boolean classpath, String globalProps,
+                                        String globalPropsEnvDir) {
+        return parseAndMerge(Environment.load(), false, parent, classpath, globalProps, globalPropsEnvDir, null, null);
+    }
+
+    /**
+     * Parses and merges the files making up a munch for the given environment.
+     *
+     * @see #readLayers(EnvironmentSettings, boolean, String, boolean, String, String, String, LayerCache)
+     */
+    static ConfigSnapshot parseAndMerge(EnvironmentSettings settings, boolean defaultMunch, String parent,
+                                        boolean classpath, String globalProps, String globalPropsEnvDir,
+                                        String dataDir, LayerCache cache) {
+        return LayeredMerge.merge(readLayers(settings, defaultMunch, parent, classpath, globalProps, globalPropsEnvDir,
+                dataDir, cache), true);
+    }
+
+    /**
+     * Parses the files making up a munch for the given environment.
+     *
+     * @param defaultMunch Whether the environment specific file is named after SERVER_ENV as given, as for
+     *        {@link #munch()}, rather than after the platform it is recognised as
+     * @param dataDir The directory of the override files, or <code>null</code> for the one named by app.datadir
+     * @param cache Where to share parsed files with other munches, or <code>null</code> to parse every file
+     * @return The layers to merge, lowest precedence first, just the global layer if the others couldn't be read
+     */
+    static List<PropertyLayer> readLayers(EnvironmentSettings settings, boolean defaultMunch, String parent,
+                                          boolean classpath, String globalProps, String globalPropsEnvDir,
+                                          String dataDir, LayerCache cache) {
+
+        String currentServerEnv = serverEnv(defaultMunch, settings);
+        String localFileName = globalPropsEnvDir + currentServerEnv + ".properties";
+        String profileFileName = profileFileName(settings);
+
+        // none of the files depends on the others, so they can all be read at once
+        Future<ConfigSnapshot> globalRead = LayerLoader.start(read(ConfigLayer.GLOBAL, parent, classpath, globalProps,
+                cache));
+        Future<ConfigSnapshot> profileRead = LayerLoader.start(read(ConfigLayer.PROFILE, parent, classpath,
+                profileFileName, cache));
+        Future<ConfigSnapshot> localRead = LayerLoader.start(read(ConfigLayer.ENVIRONMENT, parent, classpath,
+                localFileName, cache));
+
+        List<PropertyLayer> layers = new ArrayList<PropertyLayer>(6);
+        layers.add(new PropertyLayer(ConfigLayer.GLOBAL, describe(parent, classpath, globalProps),
+                LayerLoader.join(globalRead)));
 
         try {
 
-            String localFileName = globalPropsEnvDir + currentServerEnv + ".properties";
-            Properties local = null;
-            if (classpath) {
-                local = munchFromClasspath(parent + localFileName);
-            } else {
-                local = munchFromFile(new File(parent), localFileName);
+            layers.add(new PropertyLayer(ConfigLayer.PROFILE, describe(parent, classpath, profileFileName),
+                    LayerLoader.join(profileRead)));
+            layers.add(new PropertyLayer(ConfigLayer.ENVIRONMENT, describe(parent, classpath, localFileName),
+                    LayerLoader.join(localRead)));
 
+            if (dataDir == null) {
+                dataDir = resolveAppDataDir(getProperty(layers, appDataDirProperty), settings);
             }
+            addAppDataDirLayers(layers, currentServerEnv, dataDir, cache);
 
-            Properties result = strictMergeProperties(local, global);
+            return layers;
 
-            result = getAppDataDirPropertyOverrides(result, currentServerEnv);
+        } catch (RuntimeException e) {
+            // logger.warn("No platform-specfic properties found", e);
+        }
 
-            return result;
+        return layers.subList(0, 1);
 
-        } catch (UnmatchedPropertyException e) {
+    }
 
-            // this should be caught during development
-            throw e;
+    /**
+     * As {@link #parseAndMerge(EnvironmentSettings, boolean, String, boolean, String, String, String, LayerCache)},
+     * but parses the files one after another straight into the merged table, so none has a table of its own and the
+     * layers of the snapshot are not {@link PropertyLayer#isLoaded() loaded}.
+     *
+     * @see StreamingMerge
+     */
+    static ConfigSnapshot streamAndMerge(EnvironmentSettings settings, boolean defaultMunch, String parent,
+                                         boolean classpath, String globalProps, String globalPropsEnvDir) {
+
+        String currentServerEnv = serverEnv(defaultMunch, settings);
+        String localFileName = globalPropsEnvDir + currentServerEnv + ".properties";
+        String profileFileName = profileFileName(settings);
+
+        StreamingMerge merge = new StreamingMerge(true);
+        streamLayer(merge, ConfigLayer.GLOBAL, parent, classpath, globalProps);
+
+        try {
+
+            streamLayer(merge, ConfigLayer.PROFILE, parent, classpath, profileFileName);
+            streamLayer(merge, ConfigLayer.ENVIRONMENT, parent, classpath, localFileName);
+
+            String dataDir = resolveAppDataDir(merge.get(appDataDirProperty), settings);
+            if ((dataDir != null) && exists(dataDir)) {
+                if (new File(dataDir, getGlobalProperties()).exists()) {
+                    streamFileLayer(merge, ConfigLayer.DATA_DIR_GLOBAL, new File(dataDir), getGlobalProperties());
+                }
+                streamFileLayer(merge, ConfigLayer.DATA_DIR_ENVIRONMENT, new File(dataDir),
+                        getGlobalPropertiesDir() + currentServerEnv + ".properties");
+            }
 
         } catch (RuntimeException e) {
             // logger.warn("No platform-specfic properties found", e);
-        }
 
-        return global;
+            // the layers read are already merged into the table, so start again with just the global layer
+            merge = new StreamingMerge(true);
+            streamLayer(merge, ConfigLayer.GLOBAL, parent, classpath, globalProps);
+        }
 
+        return merge.build();
     }
 
     /**
@@ -117,36 +289,343 @@ public class PropertiesMuncher {
         }
     }
 
+    /**
+     * Reads config/environment.properties and the environment specific properties for the current SERVER_ENV from the
+     * root of the classpath, applying any app.datadir overrides.
+     * 
+     * @return A read-only view of the merged properties, shared with every other caller
+     * @see PropertiesMuncherCache
+     */
     public static Properties munch() {
+        return munchSnapshot().toProperties();
+    }
 
-        Properties global = munchFromClasspath(getGlobalProperties());
+    /**
+     * As {@link #munch()}, but returns the merged configuration as a lock free {@link ConfigSnapshot}.
+     */
+    public static ConfigSnapshot munchSnapshot() {
+        return PropertiesMuncherCache.get(cacheKey(null, true, getGlobalProperties(), getGlobalPropertiesDir()),
+                new Callable<ConfigSnapshot>() {
+
+                    public ConfigSnapshot call() {
+                        return munchUncached();
+                    }
+                });
+    }
 
-        EnvironmentSettings settings = Environment.load();
-        String currentServerEnv = settings.SERVER_ENV.toLowerCase();
+    /**
+     * As {@link #munchSnapshot()}, but reads the files on the given executor rather than the calling thread, see
+     * {@link #munchAsync(String, boolean, String, String, Executor)}.
+     */
+    public static CompletableFuture<ConfigSnapshot> munchAsync(Executor executor) {
+        return async(new Callable<ConfigSnapshot>() {
+
+            public ConfigSnapshot call() {
+                return munchSnapshot();
+            }
+        }, executor);
+    }
 
+    /**
+     * Runs the given munch on the executor.
+     *
+     * @return The munch, completed with its result or with exactly what it threw, rather than a wrapper of it
+     */
+    static CompletableFuture<ConfigSnapshot> async(final Callable<ConfigSnapshot> munch, Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : executor");
+        }
+        final CompletableFuture<ConfigSnapshot> result = new CompletableFuture<ConfigSnapshot>();
         try {
+            executor.execute(new Runnable() {
+
+                public void run() {
+                    try {
+                        result.complete(munch.call());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
 
-            Properties local = munchFromClasspath(getGlobalPropertiesDir() + currentServerEnv + ".properties");
+    /**
+     * As {@link #munch(String, boolean, String, String)}, but reads each file only when a lookup first needs it and
+     * leaves checking that the files merge strictly to {@link LazyConfig#validate()}. For tools that read a handful of
+     * keys and exit.
+     */
+    public static LazyConfig munchLazy(String parent, boolean classpath, String globalProps,
+                                       String globalPropsEnvDir) {
+        if (parent == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : parent");
+        }
+        return new LazyConfig(parent, classpath, globalProps, profileFileName(Environment.load()),
+                environmentFileName(false, globalPropsEnvDir), environmentFileName(false, getGlobalPropertiesDir()));
+    }
 
-            Properties result = strictMergeProperties(local, global);
+    /**
+     * As {@link #munch()}, but reads each file only when a lookup first needs it, see
+     * {@link #munchLazy(String, boolean, String, String)}.
+     */
+    public static LazyConfig munchLazy() {
+        String envFileName = environmentFileName(true, getGlobalPropertiesDir());
+        return new LazyConfig("", true, getGlobalProperties(), profileFileName(Environment.load()), envFileName,
+                envFileName);
+    }
 
-            result = getAppDataDirPropertyOverrides(result, currentServerEnv);
+    /**
+     * As {@link #munch()} but always reads the properties files, bypassing {@link PropertiesMuncherCache}.
+     */
+    static ConfigSnapshot munchUncached() {
+        return munchUncached(false);
+    }
 
-            return result;
+    /**
+     * As {@link #munchUncached()}, streaming each file straight into the merged table unless layered.
+     *
+     * @see #munchUncached(String, boolean, String, String, boolean)
+     */
+    static ConfigSnapshot munchUncached(boolean layered) {
+        ConfigSnapshot precompiled = readPrecompiled(cacheKey(null, true, getGlobalProperties(),
+                getGlobalPropertiesDir()));
+        if (precompiled != null) {
+            return precompiled;
+        }
+        if (layered || LayerLoader.isParallel()) {
+            return parseAndMerge();
+        }
+        return streamAndMerge(Environment.load(), true, "", true, getGlobalProperties(), getGlobalPropertiesDir());
+    }
 
-        } catch (UnmatchedPropertyException e) {
+    /**
+     * As {@link #munchUncached()} but always parses the properties files, ignoring any {@link PrecompiledSnapshot}.
+     */
+    static ConfigSnapshot parseAndMerge() {
+        return parseAndMerge(Environment.load(), true, "", true, getGlobalProperties(), getGlobalPropertiesDir(), null,
+                null);
+    }
 
-            // this should be caught during development
-            throw e;
+    /**
+     * @param cache Where to take the file from if it was parsed before and hasn't changed, or <code>null</code>
+     * @return A read of the given file from the classpath or the file system
+     */
+    private static Callable<ConfigSnapshot> read(final ConfigLayer layer, final String parent,
+                                                 final boolean classpath, final String filename,
+                                                 final LayerCache cache) {
+        return new Callable<ConfigSnapshot>() {
+
+            public ConfigSnapshot call() {
+                if (cache == null) {
+                    return readLayer(layer, parent, classpath, filename);
+                }
+                long stamp;
+                if (classpath) {
+                    stamp = LayerCache.stamp(findResource(parent + filename));
+                } else {
+                    stamp = LayerCache.stamp(new File(parent, filename)) * 31
+                            + LayerCache.stamp(findResource(filename));
+                }
+                return cache.get(layer, describe(parent, classpath, filename), stamp,
+                        read(layer, parent, classpath, filename, null));
+            }
+        };
+    }
 
-        } catch (RuntimeException e) {
+    /**
+     * Reads the given layer's file from the classpath or, along with its classpath copy, from the file system.
+     */
+    static ConfigSnapshot readLayer(ConfigLayer layer, String parent, boolean classpath, String filename) {
+        ConfigMetrics.LayerRead stats = ConfigMetrics.enabled ? new ConfigMetrics.LayerRead() : null;
+        ConfigSnapshot entries;
+        if (classpath) {
+            entries = parseFromClasspath(parent + filename, stats);
+        } else {
+            entries = parseFromFile(new File(parent), filename, true, stats);
+        }
+        if (stats != null) {
+            ConfigMetrics.layerLoaded(layer, describe(parent, classpath, filename), stats, entries.size());
+        }
+        return entries;
+    }
 
-            // logger.warn("No platform-specfic properties found", e);
+    /**
+     * Scans the given layer's file, and its classpath copy, for a single key without keeping any other entry, so
+     * nothing but the key's value is unescaped and no table is filled.
+     *
+     * @return The value {@link #readLayer(ConfigLayer, String, boolean, String)} would give the key, or
+     *         <code>null</code> if the file doesn't set it
+     */
+    static String scanLayer(String parent, boolean classpath, String filename, final String key) {
+        final String[] values = new String[2];
+        PropertiesParser.FilteringSink sink = new PropertiesParser.FilteringSink() {
+
+            public boolean accepts(String candidate) {
+                return candidate.equals(key);
+            }
+
+            public void property(String candidate, String value, int line) {
+                values[0] = value;
+            }
+        };
+        PropertiesParser.FilteringSink copy = new PropertiesParser.FilteringSink() {
+
+            public boolean accepts(String candidate) {
+                return (values[0] == null) && candidate.equals(key);
+            }
+
+            public void property(String candidate, String value, int line) {
+                values[1] = value;
+            }
+        };
+
+        if (classpath) {
+            parseFromClasspath(parent + filename, sink, null);
+        } else {
+            parseFromFile(new File(parent), filename, true, sink, copy, null);
+        }
+        return (values[0] != null) ? values[0] : values[1];
+    }
+
+    /**
+     * @param cache Where to take the file from if it was parsed before and hasn't changed, or <code>null</code>
+     * @return A read of the given file from the file system only
+     */
+    private static Callable<ConfigSnapshot> readFile(final ConfigLayer layer, final File directory,
+                                                     final String filename, final LayerCache cache) {
+        return new Callable<ConfigSnapshot>() {
+
+            public ConfigSnapshot call() {
+                if (cache == null) {
+                    return readFileLayer(layer, directory, filename);
+                }
+                File file = new File(directory, filename);
+                return cache.get(layer, file.getPath(), LayerCache.stamp(file),
+                        readFile(layer, directory, filename, null));
+            }
+        };
+    }
+
+    /**
+     * Reads the given layer's file from the file system only.
+     */
+    static ConfigSnapshot readFileLayer(ConfigLayer layer, File directory, String filename) {
+        ConfigMetrics.LayerRead stats = ConfigMetrics.enabled ? new ConfigMetrics.LayerRead() : null;
+        ConfigSnapshot entries = parseFromFile(directory, filename, false, stats);
+        if (stats != null) {
+            ConfigMetrics.layerLoaded(layer, new File(directory, filename).getPath(), stats, entries.size());
+        }
+        return entries;
+    }
+
+    /**
+     * As {@link #readLayer(ConfigLayer, String, boolean, String)}, but parses the file straight into the merge as its
+     * next layer.
+     */
+    private static void streamLayer(StreamingMerge merge, ConfigLayer layer, String parent, boolean classpath,
+                                    String filename) {
+        ConfigMetrics.LayerRead stats = ConfigMetrics.enabled ? new ConfigMetrics.LayerRead() : null;
+        String source = describe(parent, classpath, filename);
+        merge.startLayer(layer, source);
+        if (classpath) {
+            parseFromClasspath(parent + filename, merge, stats);
+        } else {
+            parseFromFile(new File(parent), filename, true, merge, merge.copy(), stats);
+        }
+        if (stats != null) {
+            ConfigMetrics.layerLoaded(layer, source, stats, merge.getLayerEntries());
+        }
+    }
 
+    /**
+     * As {@link #readFileLayer(ConfigLayer, File, String)}, but parses the file straight into the merge as its next
+     * layer.
+     */
+    private static void streamFileLayer(StreamingMerge merge, ConfigLayer layer, File directory, String filename) {
+        ConfigMetrics.LayerRead stats = ConfigMetrics.enabled ? new ConfigMetrics.LayerRead() : null;
+        String source = new File(directory, filename).getPath();
+        merge.startLayer(layer, source);
+        parseFromFile(directory, filename, false, merge, merge.copy(), stats);
+        if (stats != null) {
+            ConfigMetrics.layerLoaded(layer, source, stats, merge.getLayerEntries());
+        }
+    }
+
+    /**
+     * Reads one of the layers of a munch again, as {@link #munch(String, boolean, String, String)} or, if the parent is
+     * <code>null</code>, {@link #munch()} would read it.
+     */
+    static ConfigSnapshot rereadLayer(PropertyLayer layer, String parent, boolean classpath, String globalProps,
+                                      String globalPropsEnvDir) {
+        boolean defaultMunch = parent == null;
+        if (defaultMunch) {
+            parent = "";
+            classpath = true;
+            globalProps = getGlobalProperties();
+            globalPropsEnvDir = getGlobalPropertiesDir();
         }
 
-        return global;
+        switch (layer.getLayer()) {
+            case GLOBAL:
+                return readLayer(ConfigLayer.GLOBAL, parent, classpath, globalProps);
+            case PROFILE:
+                return readLayer(ConfigLayer.PROFILE, parent, classpath, profileFileName(Environment.load()));
+            case ENVIRONMENT:
+                return readLayer(ConfigLayer.ENVIRONMENT, parent, classpath,
+                        environmentFileName(defaultMunch, globalPropsEnvDir));
+            default:
+                File file = new File(layer.getSource());
+                return readFileLayer(layer.getLayer(), file.getParentFile(), file.getName());
+        }
+    }
+
+    static String describe(String parent, boolean classpath, String filename) {
+        return classpath ? CLASSPATH_PREFIX + parent + filename : new File(parent, filename).getPath();
+    }
+
+    static PropertiesMuncherCache.Key cacheKey(String parent, boolean classpath, String globalProps,
+                                               String globalPropsEnvDir) {
+        EnvironmentSettings settings = Environment.load();
+        return new PropertiesMuncherCache.Key(parent, classpath, globalProps, globalPropsEnvDir,
+                settings.SERVER_ENV.toUpperCase(), profile(settings).name(), settings.getServerConfig());
+    }
+
+    /**
+     * @return The name of the profile specific file within the parent for the given environment's SERVER_PROFILE
+     */
+    static String profileFileName(EnvironmentSettings settings) {
+        return getProfilesDir() + profile(settings).name().toLowerCase() + ".properties";
+    }
+
+    /**
+     * @return The environment's SERVER_PROFILE, see {@link ResourceSizing#effectiveProfile(Profile)}
+     */
+    private static Profile profile(EnvironmentSettings settings) {
+        return ResourceSizing.effectiveProfile(settings.getProfile());
+    }
+
+    /**
+     * @param defaultMunch Whether for {@link #munch()}, which names the file after SERVER_ENV as given rather than
+     *        after the platform it is recognised as
+     * @return The name of the environment specific file within the given directory for the current SERVER_ENV
+     */
+    static String environmentFileName(boolean defaultMunch, String globalPropsEnvDir) {
+        return globalPropsEnvDir + serverEnv(defaultMunch, Environment.load()) + ".properties";
+    }
 
+    private static String serverEnv(boolean defaultMunch, EnvironmentSettings settings) {
+        return defaultMunch ? settings.SERVER_ENV.toLowerCase() : settings.getPlatform().toString().toLowerCase();
+    }
+
+    /**
+     * @return The precompiled snapshot of the given munch, or <code>null</code> if there isn't an up to date one
+     */
+    private static ConfigSnapshot readPrecompiled(PropertiesMuncherCache.Key key) {
+        File file = getPrecompiledSnapshot();
+        return (file == null) ? null : PrecompiledSnapshot.read(file, key);
     }
 
     /**
@@ -156,35 +635,68 @@ public class PropertiesMuncher {
      * config/environments/int.properties The property "app.datadir" has been specified, then the path in this property
      * value will be searched for an environmental property file. e.g: app.datadir=/data/myapp/ops-overrides Then a
      * search will be made for /data/myapp/ops-overrides/config/environments/int.properties Values in this file will
-     * override any other properties
+     * override any other properties. The override files found are added to <code>layers</code>, above the global and
+     * environment specific layers already in there.
+     *
+     * @param dataDir The resolved value of app.datadir, or <code>null</code> if it isn't set
      */
-    private static Properties getAppDataDirPropertyOverrides(Properties currentMergedProperties,
-                                                             String serverEnv) {
-        String dataDir = currentMergedProperties.getProperty(appDataDirProperty);
-        
-        if (dataDir != null && dataDir.equals(SERVER_CONFIG)) {
-        	dataDir = Environment.getSystemProperty(SERVER_CONFIG, false);
-        }
-
+    private static void addAppDataDirLayers(List<PropertyLayer> layers, String serverEnv, String dataDir,
+                                            LayerCache cache) {
         if ((dataDir != null) && exists(dataDir)) {
             // Check for overridden global property file i.e. environment.properties
             File overriddenGlobalProps = new File(dataDir, getGlobalProperties());
+            Future<ConfigSnapshot> globalRead = null;
             if (overriddenGlobalProps.exists()) {
-                Properties data = munchFromFile(new File(dataDir), getGlobalProperties(), false);
-                currentMergedProperties = strictMergeProperties(data, currentMergedProperties);
+                globalRead = LayerLoader.start(readFile(ConfigLayer.DATA_DIR_GLOBAL, new File(dataDir),
+                        getGlobalProperties(), cache));
             }
 
-            Properties data = munchFromFile(new File(dataDir), getGlobalPropertiesDir() + serverEnv + ".properties",
-                    false);
-
-            currentMergedProperties = strictMergeProperties(data, currentMergedProperties);
+            String envFileName = getGlobalPropertiesDir() + serverEnv + ".properties";
+            Future<ConfigSnapshot> envRead = LayerLoader.start(readFile(ConfigLayer.DATA_DIR_ENVIRONMENT,
+                    new File(dataDir), envFileName, cache));
 
+            if (globalRead != null) {
+                layers.add(new PropertyLayer(ConfigLayer.DATA_DIR_GLOBAL, overriddenGlobalProps.getPath(),
+                        LayerLoader.join(globalRead)));
+            }
+            layers.add(new PropertyLayer(ConfigLayer.DATA_DIR_ENVIRONMENT, new File(dataDir, envFileName).getPath(),
+                    LayerLoader.join(envRead)));
         }
+    }
 
-        return currentMergedProperties;
+    /**
+     * @return The value of the given property in the highest precedence layer that has it
+     */
+    private static String getProperty(List<PropertyLayer> layers, String key) {
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            ConfigSnapshot entries = layers.get(i).getEntries();
+            int slot = entries.indexOf(key);
+            if (slot >= 0) {
+                return entries.valueAt(slot);
+            }
+        }
+        return null;
     }
     
-    private static boolean exists(String fileName) {
+    /**
+     * Resolves the value of the "app.datadir" property to a directory name. The special value SERVER_CONFIG means the
+     * directory is given by the SERVER_CONFIG system property or environment variable.
+     */
+    static String resolveAppDataDir(String dataDir) {
+        return resolveAppDataDir(dataDir, Environment.load());
+    }
+
+    /**
+     * As {@link #resolveAppDataDir(String)}, taking SERVER_CONFIG from the given settings.
+     */
+    static String resolveAppDataDir(String dataDir, EnvironmentSettings settings) {
+        if (dataDir != null && dataDir.equals(SERVER_CONFIG)) {
+            return settings.getServerConfig();
+        }
+        return dataDir;
+    }
+
+    static boolean exists(String fileName) {
     	try {
     		if (log.isInfoEnabled()) {
     			log.info("PropertiesMuncher root directory:" + fileName);
@@ -224,11 +736,12 @@ public class PropertiesMuncher {
 
             try {
 
-                prop = load(PropertiesMuncher.class.getClassLoader().getResourceAsStream(filename));
+                prop = loadAndClose(PropertiesMuncher.class.getClassLoader().getResourceAsStream(filename));
 
             } catch (NullPointerException e) {
                 try {
-                    prop = load(PropertiesMuncher.class.getClassLoader().getParent().getResourceAsStream(filename));
+                    prop = loadAndClose(PropertiesMuncher.class.getClassLoader().getParent()
+                            .getResourceAsStream(filename));
                 } catch (NullPointerException ex) {
                     // logger.warn("Could not load file from classpath " + filename + " : " + ex.getMessage());
                 }
@@ -283,37 +796,197 @@ public class PropertiesMuncher {
 
         final File target = new File(directory, filename);
 
-        Properties prop = new Properties();
+        /*
+         * The classpath copy is loaded first and the file straight over it into the same object, so the file's
+         * properties win without a third object to merge the two into
+         */
+        final Properties prop = classpath ? munchFromClasspath(filename) : new Properties();
 
-        try {
+        if (target.exists()) {
+            try {
+                final InputStream in = new FileInputStream(target);
+                try {
+                    prop.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Couldn't load file from file " + target, e);
+            }
+        } else {
 
-            if (target.exists()) {
+            // logger.warn("Couldn't load properties file called [" + filename + "] from [" + directory + "]");
+        }
 
-                final InputStream in = new FileInputStream(target);
+        return prop;
+
+    }
+
+    /**
+     * As {@link #munchFromClasspath(String)}, but parses the file with {@link PropertiesParser} straight into a table
+     * of its own.
+     *
+     * @param stats Where to add the time taken and bytes read, or <code>null</code>
+     */
+    static ConfigSnapshot parseFromClasspath(final String filename, ConfigMetrics.LayerRead stats) {
+
+        if (filename == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : filename");
+        }
 
-                prop = load(in);
+        ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder(16, null, true);
+        if (!parseFromClasspath(filename, PropertiesParser.into(builder), stats)) {
+            return ConfigSnapshot.empty();
+        }
+        long start = (stats == null) ? 0 : System.nanoTime();
+        ConfigSnapshot entries = builder.build();
+        if (stats != null) {
+            stats.parseNanos += System.nanoTime() - start;
+        }
+        return entries;
+    }
 
-            } else {
+    /**
+     * Parses the given classpath resource into the sink.
+     *
+     * @param stats Where to add the time taken and bytes read, or <code>null</code>
+     * @return <code>false</code> if there is no such resource
+     */
+    private static boolean parseFromClasspath(String filename, PropertiesParser.Sink sink,
+                                              ConfigMetrics.LayerRead stats) {
+        long start = (stats == null) ? 0 : System.nanoTime();
+        URL resource = findResource(filename);
+        if (stats != null) {
+            stats.resolveNanos += System.nanoTime() - start;
+        }
+        if (resource == null) {
+            return false;
+        }
 
-                // logger.warn("Couldn't load properties file called [" + filename + "] from [" + directory + "]");
+        start = (stats == null) ? 0 : System.nanoTime();
+        try {
+            long bytes = PropertiesParser.parse(resource, sink);
+            if (stats != null) {
+                stats.bytes += bytes;
             }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't load file from classpath " + filename, e);
+        }
+        if (stats != null) {
+            stats.parseNanos += System.nanoTime() - start;
+        }
+        return true;
+    }
 
-            if (classpath) {
-                final Properties propertiesFromClasspath = munchFromClasspath(filename);
+    /**
+     * @return The given classpath resource, looked for as {@link #munchFromClasspath(String)} does, or
+     *         <code>null</code> if there is no such resource
+     */
+    static URL findResource(String filename) {
+        ClassLoader loader = PropertiesMuncher.class.getClassLoader();
+        URL resource = loader.getResource(filename);
+        if ((resource == null) && (loader.getParent() != null)) {
+            resource = loader.getParent().getResource(filename);
+        }
+        return resource;
+    }
+
+    /**
+     * As {@link #munchFromFile(File, String, boolean)}, but parses the files with {@link PropertiesParser} straight
+     * into a single table. The file is parsed first and the classpath copy, if wanted, after it into the same table,
+     * turning down the copy's entries for keys the file has before their values are unescaped, so there is neither a
+     * second table to merge nor a value read only to be replaced. The copy's values are left without a line, its lines
+     * not being the file's.
+     *
+     * @param stats Where to add the time taken and bytes read, or <code>null</code>
+     */
+    static ConfigSnapshot parseFromFile(File directory, String filename, boolean classpath,
+                                        ConfigMetrics.LayerRead stats) {
+
+        final ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder(16, null, true);
+        PropertiesParser.FilteringSink copy = new PropertiesParser.FilteringSink() {
 
-                /*
-                 * We can tolerate nulls, but lets not bother trying to merge unless we have too
-                 */
-                return ((propertiesFromClasspath != null) && (propertiesFromClasspath.size() > 0)) ? mergeProperties(
-                        prop, propertiesFromClasspath) : prop;
-            } else {
-                return prop;
+            public boolean accepts(String key) {
+                // the file's entries all have a line, a key repeated in the copy replaces the copy's own
+                return builder.lineOf(key) <= 0;
             }
 
+            public void property(String key, String value, int line) {
+                builder.put(key, value, 0, 0);
+            }
+        };
+        if (!parseFromFile(directory, filename, classpath, PropertiesParser.into(builder), copy, stats)) {
+            return ConfigSnapshot.empty();
+        }
+
+        long start = (stats == null) ? 0 : System.nanoTime();
+        ConfigSnapshot entries = builder.build();
+        if (stats != null) {
+            stats.parseNanos += System.nanoTime() - start;
+        }
+        return entries;
+    }
+
+    /**
+     * Parses the given file into the sink and then, if wanted, its classpath copy into the copy sink, or just the
+     * classpath copy into the sink if there is no such file.
+     *
+     * @param copy Where the classpath copy of a file that exists goes, turning down the keys the file has
+     * @param stats Where to add the time taken and bytes read, or <code>null</code>
+     * @return <code>false</code> if neither the file nor, if wanted, its classpath copy exist
+     */
+    private static boolean parseFromFile(File directory, String filename, boolean classpath,
+                                         PropertiesParser.Sink sink, PropertiesParser.FilteringSink copy,
+                                         ConfigMetrics.LayerRead stats) {
+
+        if ((directory == null) || !directory.exists()) {
+            throw new RuntimeException("Couldn't find directory : " + directory);
+        }
+
+        if (filename == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : filename");
+        }
+
+        long start = (stats == null) ? 0 : System.nanoTime();
+        File target = new File(directory, filename);
+        boolean exists = target.exists();
+        if (stats != null) {
+            stats.resolveNanos += System.nanoTime() - start;
+        }
+        if (!exists) {
+            return classpath && parseFromClasspath(filename, sink, stats);
+        }
+
+        start = (stats == null) ? 0 : System.nanoTime();
+        try {
+            long bytes = PropertiesParser.parse(target, sink);
+            if (stats != null) {
+                stats.bytes += bytes;
+            }
         } catch (IOException e) {
             throw new RuntimeException("Couldn't load file from file " + target, e);
         }
+        if (stats != null) {
+            stats.parseNanos += System.nanoTime() - start;
+        }
 
+        if (classpath) {
+            parseFromClasspath(filename, copy, stats);
+        }
+        return true;
+    }
+
+    /**
+     * As {@link #load(InputStream)}, closing the stream once read.
+     */
+    private static Properties loadAndClose(InputStream stream) throws IOException {
+        try {
+            return load(stream);
+        } finally {
+            if (stream != null) {
+                stream.close();
+            }
+        }
     }
 
     /**
@@ -383,7 +1056,8 @@ public class PropertiesMuncher {
 
     /**
      * <p> Checks to make sure that the keys in the first exist in the second to make sure it is only over-riding the
-     * second's properties. If they are consistent then it merges them into a single properties object. </p>
+     * second's properties. If they are consistent then it merges them into a single properties object, otherwise the
+     * {@link UnmatchedPropertyException} lists every key of the first that is missing from the second. </p>
      * 
      * @param first
      * @param second
@@ -393,13 +1067,19 @@ public class PropertiesMuncher {
 
         if ((first != null) && (second != null)) {
 
+            List<String> unmatched = null;
             for (Object key : first.keySet()) {
                 if (second.get(key) == null) {
-                    throw new UnmatchedPropertyException(
-                            "Couldn't merge properties, the first properties object contains a key that doesn't exist in the second. The key is called "
-                                    + key);
+                    if (unmatched == null) {
+                        unmatched = new ArrayList<String>();
+                    }
+                    unmatched.add(key.toString());
                 }
             }
+            if (unmatched != null) {
+                throw new UnmatchedPropertyException("Couldn't merge properties, the first properties object contains "
+                        + "keys that don't exist in the second. The keys are called " + unmatched, unmatched);
+            }
         } else {
 
             // logger.warn("No properties specified, cannot merge");
@@ -491,10 +1171,68 @@ public class PropertiesMuncher {
         return globalPropertiesDir;
     }
 
+    /**
+     * @return The directory within the parent holding the profile specific properties files, config/profiles/
+     */
+    public static String getProfilesDir() {
+        return profilesDir;
+    }
+
     public static String getAppDataDirProperty() {
         return appDataDirProperty;
     }
 
+    /**
+     * Sets whether the files making up a munch are read in parallel rather than one after another. The global and
+     * environment specific files are read together, then the app.datadir override files, whose location depends on
+     * them. The files are merged in the same order either way so the result is identical. Off by default, worth turning
+     * on when the files are on a high latency file system such as NFS.
+     * 
+     * @param parallelLoad True if the files should be read in parallel.
+     */
+    public static void setParallelLoad(boolean parallelLoad) {
+        LayerLoader.setParallel(parallelLoad);
+    }
+
+    public static boolean isParallelLoad() {
+        return LayerLoader.isParallel();
+    }
+
+    /**
+     * Sets the executor files are read on when {@link #setParallelLoad(boolean) loading in parallel}. By default
+     * virtual threads are used where available, otherwise a pool of up to four daemon threads.
+     * 
+     * @param executor The executor, or <code>null</code> for the default one
+     */
+    public static void setLoadExecutor(Executor executor) {
+        LayerLoader.setExecutor(executor);
+    }
+
+    /**
+     * Sets the {@link PrecompiledSnapshot} file to serve munches from. A munch uses the file when it was built for the
+     * same munch and environment and the properties files haven't changed since, and parses the properties files
+     * otherwise. When not set, the file named by the CONFIG_SNAPSHOT system property or environment variable is used.
+     * 
+     * @param file The snapshot file, or <code>null</code> to fall back to CONFIG_SNAPSHOT
+     */
+    public static void setPrecompiledSnapshot(File file) {
+        precompiledSnapshot = file;
+    }
+
+    /**
+     * @return The precompiled snapshot file munches are served from, or <code>null</code> if there isn't one
+     */
+    public static File getPrecompiledSnapshot() {
+        File file = precompiledSnapshot;
+        if (file == null) {
+            String name = Environment.getSystemProperty(CONFIG_SNAPSHOT, false);
+            if (name != null) {
+                file = new File(name);
+            }
+        }
+        return file;
+    }
+
     public boolean hasParentPackage() {
         String parentPackage = getParentPackage();
         if ((parentPackage != null) && (parentPackage.trim().length() > 0)) {
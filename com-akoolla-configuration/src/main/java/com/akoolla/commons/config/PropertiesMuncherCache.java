@@ -0,0 +1,226 @@
+package com.akoolla.commons.config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PropertiesMuncherCache.
+ *
+ * <p> Process wide cache of the merged properties produced by {@link PropertiesMuncher#munch()} and
+ * {@link PropertiesMuncher#munch(String, boolean, String, String)}. Entries are keyed by everything that can change the
+ * outcome of a munch: the parent path or package, whether the classpath is used, the global properties file, the
+ * environments directory and the values of <code>SERVER_ENV</code> and <code>SERVER_CONFIG</code> held by
+ * {@link Environment}, which only change when it is {@link Environment#refresh() refreshed}. </p>
+ *
+ * <p> Cached values are immutable {@link ConfigSnapshot}s, handed to legacy callers through their read-only
+ * {@link ConfigSnapshot#toProperties()} view. Only one thread loads any given entry, concurrent callers for the same
+ * key wait for that load to complete. A load that fails is not cached. </p>
+ */
+public final class PropertiesMuncherCache {
+
+    private static final ConcurrentMap<Key, Future<ConfigSnapshot>> CACHE =
+            new ConcurrentHashMap<Key, Future<ConfigSnapshot>>();
+
+    private static final AtomicLong HITS = new AtomicLong();
+
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private PropertiesMuncherCache() {
+    }
+
+    /**
+     * Returns the cached snapshot for the given key, loading it with the given loader if it is not cached yet.
+     */
+    static ConfigSnapshot get(Key key, Callable<ConfigSnapshot> loader) {
+        Future<ConfigSnapshot> future = CACHE.get(key);
+
+        if (future != null) {
+            HITS.incrementAndGet();
+        } else {
+            FutureTask<ConfigSnapshot> task = new FutureTask<ConfigSnapshot>(loader);
+
+            future = CACHE.putIfAbsent(key, task);
+            if (future == null) {
+                MISSES.incrementAndGet();
+                future = task;
+                task.run();
+            } else {
+                HITS.incrementAndGet();
+            }
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for properties to be munched", e);
+        } catch (ExecutionException e) {
+            CACHE.remove(key, future);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Couldn't munch properties for " + key, cause);
+        }
+    }
+
+    /**
+     * Discards every cached entry, the next munch re-reads the properties files.
+     */
+    public static void invalidate() {
+        CACHE.clear();
+    }
+
+    /**
+     * Discards the cached entries for the given parent path or package, whatever the environment they were loaded for.
+     *
+     * @param parent The parent path or package, <code>null</code> for the entries cached by
+     *        {@link PropertiesMuncher#munch()}
+     * @param classpath Whether the entries were loaded from the classpath or the file system
+     */
+    public static void invalidate(String parent, boolean classpath) {
+        for (Key key : CACHE.keySet()) {
+            if (key.classpath == classpath && equal(key.parent, parent)) {
+                CACHE.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return The number of munches answered from the cache
+     */
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    /**
+     * @return The number of munches that had to read the properties files
+     */
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    /**
+     * @return The number of cached entries
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public static void resetCounters() {
+        HITS.set(0);
+        MISSES.set(0);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return (a == null) ? (b == null) : a.equals(b);
+    }
+
+    /**
+     * The identity of a munch.
+     */
+    static final class Key {
+
+        private final String parent;
+
+        private final boolean classpath;
+
+        private final String globalProps;
+
+        private final String globalPropsEnvDir;
+
+        private final String serverEnv;
+
+        private final String serverProfile;
+
+        private final String serverConfig;
+
+        private final int hash;
+
+        Key(String parent, boolean classpath, String globalProps, String globalPropsEnvDir, String serverEnv,
+            String serverProfile, String serverConfig) {
+            this.parent = parent;
+            this.classpath = classpath;
+            this.globalProps = globalProps;
+            this.globalPropsEnvDir = globalPropsEnvDir;
+            this.serverEnv = serverEnv;
+            this.serverProfile = serverProfile;
+            this.serverConfig = serverConfig;
+
+            int h = (parent == null) ? 0 : parent.hashCode();
+            h = 31 * h + (classpath ? 1 : 0);
+            h = 31 * h + ((globalProps == null) ? 0 : globalProps.hashCode());
+            h = 31 * h + ((globalPropsEnvDir == null) ? 0 : globalPropsEnvDir.hashCode());
+            h = 31 * h + ((serverEnv == null) ? 0 : serverEnv.hashCode());
+            h = 31 * h + ((serverProfile == null) ? 0 : serverProfile.hashCode());
+            h = 31 * h + ((serverConfig == null) ? 0 : serverConfig.hashCode());
+            this.hash = h;
+        }
+
+        String getParent() {
+            return parent;
+        }
+
+        boolean isClasspath() {
+            return classpath;
+        }
+
+        String getGlobalProps() {
+            return globalProps;
+        }
+
+        String getGlobalPropsEnvDir() {
+            return globalPropsEnvDir;
+        }
+
+        String getServerEnv() {
+            return serverEnv;
+        }
+
+        String getServerProfile() {
+            return serverProfile;
+        }
+
+        String getServerConfig() {
+            return serverConfig;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && classpath == other.classpath && equal(parent, other.parent)
+                    && equal(globalProps, other.globalProps) && equal(globalPropsEnvDir, other.globalPropsEnvDir)
+                    && equal(serverEnv, other.serverEnv) && equal(serverProfile, other.serverProfile)
+                    && equal(serverConfig, other.serverConfig);
+        }
+
+        @Override
+        public String toString() {
+            return "parent : " + parent + ", classpath : " + classpath + ", globalProps : " + globalProps
+                    + ", globalPropsEnvDir : " + globalPropsEnvDir + ", SERVER_ENV : " + serverEnv
+                    + ", SERVER_PROFILE : " + serverProfile + ", SERVER_CONFIG : " + serverConfig;
+        }
+    }
+}
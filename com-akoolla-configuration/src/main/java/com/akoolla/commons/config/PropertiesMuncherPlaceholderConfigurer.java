@@ -1,36 +1,83 @@
 package com.akoolla.commons.config;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.config.PropertyPlaceholderConfigurer;
 
-public class PropertiesMuncherPlaceholderConfigurer extends PropertyPlaceholderConfigurer {
+public class PropertiesMuncherPlaceholderConfigurer extends PropertyPlaceholderConfigurer implements InitializingBean,
+        DisposableBean {
 
     private final static String TMP_DIR = "java.io.tmpdir";
 
+    private final static long DEFAULT_RELOAD_DEBOUNCE_MILLIS = 500;
+
     private String filename;
 
     private String directory;
 
-    private Properties properties;
+    /** Published once fully set up, readers that see it need no lock. */
+    private volatile ConfigSnapshotHolder holder;
+
+    /** Guards loading, so only one thread munches however many resolve the first placeholders at once. */
+    private final Object initLock = new Object();
 
     // Should property values be trimmed.
     private boolean trim = false;
 
+    // Should every placeholder be resolved up front.
+    private boolean precompile = false;
+
+    private volatile PrecompiledPlaceholders precompiled;
+
+    private String placeholderPrefix = DEFAULT_PLACEHOLDER_PREFIX;
+
+    private String placeholderSuffix = DEFAULT_PLACEHOLDER_SUFFIX;
+
+    // Should the properties be reloaded when the files change.
+    private boolean reload = false;
+
+    private long reloadDebounceMillis = DEFAULT_RELOAD_DEBOUNCE_MILLIS;
+
+    private PropertiesWatcher watcher;
+
+    private String provenanceObjectName;
+
+    private ConfigProvenance provenance;
+
+    private final List<ConfigChangeListener> listeners = new ArrayList<ConfigChangeListener>();
+
     private PropertiesMuncher propertiesMuncher = new PropertiesMuncher();
 
+    private Executor loadExecutor;
+
+    /** A load started by {@link #startLoad(Executor)} that no placeholder has waited for yet. */
+    private CompletableFuture<ConfigSnapshot> pendingLoad;
+
     @Override
     protected String resolvePlaceholder(String placeholder, Properties props) {
 
-        if (properties == null) {
-            init();
+        ConfigSnapshotHolder current = holder;
+        if (current == null) {
+            current = initOnce();
+        }
+
+        if (precompile) {
+            return precompiled(current.get()).get(placeholder);
         }
 
         // if (logger.isDebugEnabled())
-        // logger.debug("Searching for " + placeholder + " in " + properties);
+        // logger.debug("Searching for " + placeholder + " in " + current.get());
 
-        String s = properties.getProperty(placeholder);
+        String s = current.get().get(placeholder);
         if (isTrim()) {
             if (s != null) {
                 return s.trim();
@@ -43,43 +90,194 @@ public class PropertiesMuncherPlaceholderConfigurer extends PropertyPlaceholderC
 
     }
 
+    /**
+     * @return The placeholders of the given snapshot resolved up front, resolving them again after a reload
+     */
+    private PrecompiledPlaceholders precompiled(ConfigSnapshot snapshot) {
+        PrecompiledPlaceholders current = precompiled;
+        if ((current == null) || !current.isFor(snapshot)) {
+            current = PrecompiledPlaceholders.of(snapshot, placeholderPrefix, placeholderSuffix, isTrim());
+            precompiled = current;
+        }
+        return current;
+    }
+
+    /**
+     * Loads the properties unless another thread got there first, in which case waits for it to finish.
+     */
+    private ConfigSnapshotHolder initOnce() {
+        synchronized (initLock) {
+            if (holder == null) {
+                init();
+            }
+            return holder;
+        }
+    }
+
     /**
      * This is the actual method that loads up the properties files, that are to be used for processing the property
-     * placeholders within an application context file
+     * placeholders within an application context file. If {@link #setReload(boolean) reload} is on, it also starts
+     * watching the properties files for changes. Calling it again loads the properties again. Safe to call from any
+     * thread, loads are done one at a time.
      */
     public void init() {
+        synchronized (initLock) {
+            load();
+        }
+    }
+
+    /**
+     * Starts loading the properties on the {@link #setLoadExecutor(Executor) load executor}, if one is set.
+     */
+    public void afterPropertiesSet() {
+        if (loadExecutor != null) {
+            startLoad(loadExecutor);
+        }
+    }
+
+    /**
+     * Starts loading the properties on the given executor, so the files are read while the rest of the application
+     * starts up. The first placeholder resolved, or {@link #loadSnapshotHolder()}, then waits for this load rather than
+     * reading the files itself, and fails with whatever the load threw. Does nothing if the properties are already
+     * loaded or loading.
+     *
+     * @return The load, completed with the configuration loaded or with whatever the load threw, e.g. an
+     *         {@link UnmatchedPropertyException} if the files don't merge strictly
+     */
+    public CompletableFuture<ConfigSnapshot> startLoad(Executor executor) {
+        synchronized (initLock) {
+            if (holder != null) {
+                return CompletableFuture.completedFuture(holder.get());
+            }
+            if (pendingLoad == null) {
+                pendingLoad = PropertiesMuncher.async(new Callable<ConfigSnapshot>() {
+
+                    public ConfigSnapshot call() {
+                        return munch();
+                    }
+                }, executor);
+            }
+            return pendingLoad;
+        }
+    }
+
+    private void load() {
+        PropertiesMuncher muncher = getPropertiesMuncher();
+        boolean watchable = muncher.hasParentPackage() || muncher.hasParentPath()
+                || ((directory == null) && (filename == null));
+        String watchParent = muncher.hasParentPackage() ? muncher.getParentPackage()
+                : muncher.hasParentPath() ? muncher.getParentPath() : null;
+        boolean watchClasspath = muncher.hasParentPackage() || !muncher.hasParentPath();
+
+        ConfigSnapshot snapshot;
+        CompletableFuture<ConfigSnapshot> started = pendingLoad;
+        if (started != null) {
+            pendingLoad = null;
+            snapshot = join(started);
+        } else {
+            snapshot = munch();
+        }
+
+        if (precompile) {
+            precompiled(snapshot);
+        }
+
+        if (holder == null) {
+            ConfigSnapshotHolder loaded = new ConfigSnapshotHolder(snapshot);
+            for (ConfigChangeListener listener : listeners) {
+                loaded.addListener(listener);
+            }
+            listeners.clear();
+            holder = loaded;
+        } else {
+            holder.publish(snapshot);
+        }
+
+        if (provenanceObjectName != null && provenance == null) {
+            provenance = new ConfigProvenance(holder);
+            provenance.register(provenanceObjectName);
+        }
+
+        if (isReload() && watchable && watcher == null) {
+            watcher = new PropertiesWatcher(watchParent, watchClasspath, PropertiesMuncher.getGlobalProperties(),
+                    PropertiesMuncher.getGlobalPropertiesDir(), holder, reloadDebounceMillis);
+            watcher.start();
+        }
+
+    }
+
+    /**
+     * Reads the properties from wherever this has been set up to read them from.
+     */
+    private ConfigSnapshot munch() {
         PropertiesMuncher muncher = getPropertiesMuncher();
+        ConfigSnapshot snapshot = null;
 
         if (muncher.hasParentPackage()) {
             // if (logger.isDebugEnabled())
             // logger.debug("Using muncher munchClassPathBasedProperties to load props");
-            properties = muncher.munchClassPathBasedProperties();
+            snapshot = muncher.munchClassPathBasedSnapshot();
         } else if (muncher.hasParentPath()) {
             // if (logger.isDebugEnabled())
             // logger.debug("Using muncher munchFileSystemBasedProperties to load props");
-            properties = muncher.munchFileSystemBasedProperties();
+            snapshot = muncher.munchFileSystemBasedSnapshot();
         } else if (directory != null) {
 
             // if (logger.isDebugEnabled())
             // logger.debug("Using directory to load props [" + directory + "] and filename [" + filename + "]");
 
-            properties = PropertiesMuncher.munch(new File(directory), filename);
+            snapshot = ConfigSnapshot.of(PropertiesMuncher.munch(new File(directory), filename));
 
         } else if (filename != null) {
 
             // if (logger.isDebugEnabled())
             // logger.debug("Using file to load props [" + filename + "]");
 
-            properties = PropertiesMuncher.munchFromClasspath(filename);
+            snapshot = ConfigSnapshot.of(PropertiesMuncher.munchFromClasspath(filename));
 
         } else {
-            properties = PropertiesMuncher.munch();
+            snapshot = PropertiesMuncher.munchSnapshot();
         }
 
-        if (properties == null) {
+        if (snapshot == null) {
             throw new RuntimeException("Couldn't load properties");
         }
+        return snapshot;
+    }
 
+    /**
+     * Waits for a load started early, throwing whatever the load threw.
+     */
+    private static ConfigSnapshot join(CompletableFuture<ConfigSnapshot> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Couldn't load properties", cause);
+        }
+    }
+
+    /**
+     * Stops watching the properties files, if {@link #setReload(boolean) reload} is on, and unregisters the
+     * {@link #setProvenanceObjectName(String) provenance MBean}.
+     */
+    public void destroy() {
+        synchronized (initLock) {
+            if (watcher != null) {
+                watcher.stop();
+                watcher = null;
+            }
+            if (provenance != null) {
+                provenance.unregister();
+                provenance = null;
+            }
+        }
     }
 
     public void setFilename(String filename) {
@@ -123,6 +321,21 @@ public class PropertiesMuncherPlaceholderConfigurer extends PropertyPlaceholderC
         return propertiesMuncher;
     }
 
+    /**
+     * Sets an executor to start loading the properties on as soon as this bean has been configured, see
+     * {@link #startLoad(Executor)}. Not set by default, the properties are then loaded by the first placeholder
+     * resolved.
+     * 
+     * @param loadExecutor
+     */
+    public void setLoadExecutor(Executor loadExecutor) {
+        this.loadExecutor = loadExecutor;
+    }
+
+    public Executor getLoadExecutor() {
+        return loadExecutor;
+    }
+
     /**
      * Sets if property values should be trimmed or not.
      * 
@@ -141,12 +354,131 @@ public class PropertiesMuncherPlaceholderConfigurer extends PropertyPlaceholderC
         return trim;
     }
 
+    /**
+     * Sets if every property should be resolved once, when the properties are loaded, rather than each time a
+     * placeholder refers to it. The values are trimmed then if {@link #setTrim(boolean) trim} is on, and placeholders
+     * inside them, nested ones such as <code>${db.${region}.url}</code> included, are replaced by the values of the
+     * properties they name. A placeholder naming no property is left for Spring to resolve, and properties that refer
+     * to each other in a cycle fail the load. Resolving a placeholder is then a single lookup that allocates nothing.
+     * 
+     * @param precompile True if placeholders should be resolved up front.
+     */
+    public void setPrecompile(boolean precompile) {
+        this.precompile = precompile;
+    }
+
+    public boolean isPrecompile() {
+        return precompile;
+    }
+
+    @Override
+    public void setPlaceholderPrefix(String placeholderPrefix) {
+        super.setPlaceholderPrefix(placeholderPrefix);
+        this.placeholderPrefix = placeholderPrefix;
+    }
+
+    @Override
+    public void setPlaceholderSuffix(String placeholderSuffix) {
+        super.setPlaceholderSuffix(placeholderSuffix);
+        this.placeholderSuffix = placeholderSuffix;
+    }
+
+    /**
+     * Sets if the properties should be reloaded when the files they were read from change. Only applies when the
+     * properties are munched from a parent package, a parent path or the root of the classpath. Placeholders that have
+     * already been resolved are not affected by a reload: read the current values through
+     * {@link #getSnapshotHolder()} or register a {@link ConfigChangeListener}.
+     * 
+     * @param reload True if the properties should be reloaded.
+     */
+    public void setReload(boolean reload) {
+        this.reload = reload;
+    }
+
+    public boolean isReload() {
+        return reload;
+    }
+
+    /**
+     * Sets how long the properties files must be left alone before changes to them are reloaded, 500ms by default.
+     * 
+     * @param reloadDebounceMillis
+     */
+    public void setReloadDebounceMillis(long reloadDebounceMillis) {
+        this.reloadDebounceMillis = reloadDebounceMillis;
+    }
+
+    public long getReloadDebounceMillis() {
+        return reloadDebounceMillis;
+    }
+
+    /**
+     * Sets the name to register a {@link ConfigProvenance} MBean under once the properties are loaded, which says where
+     * each value being served came from. Not registered by default.
+     * 
+     * @param provenanceObjectName The JMX object name, e.g. "com.akoolla.commons.config:type=ConfigProvenance"
+     */
+    public void setProvenanceObjectName(String provenanceObjectName) {
+        this.provenanceObjectName = provenanceObjectName;
+    }
+
+    public String getProvenanceObjectName() {
+        return provenanceObjectName;
+    }
+
+    /**
+     * Registers a listener to be told about the keys that change when the properties are reloaded.
+     * 
+     * @param listener
+     */
+    public void addConfigChangeListener(ConfigChangeListener listener) {
+        synchronized (initLock) {
+            if (holder != null) {
+                holder.addListener(listener);
+            } else {
+                listeners.add(listener);
+            }
+        }
+    }
+
     /**
      * Retrieve the fully resolved and merged properties.
      * 
-     * @return the internal properties data
+     * @return a read-only view of the internal properties data
      */
     public Properties getResolvedProperties() {
-        return properties;
+        ConfigSnapshotHolder current = holder;
+        return (current == null) ? null : current.get().toProperties();
+    }
+
+    /**
+     * Retrieve the fully resolved and merged configuration.
+     * 
+     * @return the internal configuration snapshot
+     */
+    public ConfigSnapshot getResolvedSnapshot() {
+        ConfigSnapshotHolder current = holder;
+        return (current == null) ? null : current.get();
+    }
+
+    /**
+     * Retrieve the holder of the current configuration, which follows reloads.
+     * 
+     * @return the holder, or <code>null</code> if the properties have not been loaded yet
+     */
+    public ConfigSnapshotHolder getSnapshotHolder() {
+        return holder;
+    }
+
+    /**
+     * Retrieve the holder of the current configuration, loading the properties first if they have not been, as
+     * resolving the first placeholder would. Anything else serving the properties, such as a
+     * {@link ConfigSnapshotPropertySource}, shares the one load with the placeholders this way.
+     *
+     * @return the holder, which follows reloads
+     */
+    public ConfigSnapshotHolder loadSnapshotHolder() {
+        ConfigSnapshotHolder current = holder;
+        return (current == null) ? initOnce() : current;
     }
 }
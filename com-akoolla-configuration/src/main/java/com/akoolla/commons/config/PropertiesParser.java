@@ -0,0 +1,516 @@
+package com.akoolla.commons.config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * PropertiesParser.
+ *
+ * <p> Parses the .properties format exactly as {@link java.util.Properties#load(InputStream)} does: ISO-8859-1 text,
+ * <code>#</code> and <code>!</code> comments, <code>=</code>, <code>:</code> or white space separators, backslash line
+ * continuations and <code>\t</code>, <code>\n</code>, <code>\r</code>, <code>\f</code> and <code>\\uXXXX</code>
+ * escapes. Entries are handed to a {@link Sink} as they are found, together with the line they start on, rather than
+ * being put into a synchronized {@link java.util.Properties}. A {@link FilteringSink} can turn entries down before
+ * their values are unescaped. </p>
+ *
+ * <p> Large files are read through a memory mapping, small files and classpath resources inside jars through a
+ * per-thread buffer that is reused from one parse to the next. Every stream and channel opened is closed. </p>
+ */
+public final class PropertiesParser {
+
+    /** Files at least this big are mapped rather than read. */
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    private static final int MAX_POOLED_BUFFER = 1024 * 1024;
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>() {
+
+        @Override
+        protected byte[] initialValue() {
+            return new byte[8 * 1024];
+        }
+    };
+
+    private static final ThreadLocal<char[]> LINES = new ThreadLocal<char[]>() {
+
+        @Override
+        protected char[] initialValue() {
+            return new char[1024];
+        }
+    };
+
+    private PropertiesParser() {
+    }
+
+    /**
+     * Receives the entries of a parsed file, in the order they appear. A key may be received more than once, the last
+     * value wins as it would in {@link java.util.Properties}.
+     */
+    public interface Sink {
+
+        /**
+         * @param key The unescaped key
+         * @param value The unescaped value
+         * @param line The line, counting from 1, that the entry starts on
+         */
+        void property(String key, String value, int line);
+    }
+
+    /**
+     * A sink that can turn an entry down on its key alone, so the parser doesn't unescape a value that would only be
+     * thrown away.
+     */
+    public interface FilteringSink extends Sink {
+
+        /**
+         * @param key The unescaped key
+         * @return Whether to go on and hand the entry to {@link #property(String, String, int)}
+         */
+        boolean accepts(String key);
+    }
+
+    /**
+     * Parses the given file into a new snapshot.
+     */
+    public static ConfigSnapshot parse(File file) throws IOException {
+        ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder(16, null);
+        parse(file, into(builder));
+        return builder.build();
+    }
+
+    /**
+     * @return A sink putting every entry into the given builder, with its line if the builder keeps them, later entries
+     *         replacing earlier ones
+     */
+    static Sink into(final ConfigSnapshot.Builder builder) {
+        return new Sink() {
+
+            public void property(String key, String value, int line) {
+                builder.put(key, value, 0, line);
+            }
+        };
+    }
+
+    /**
+     * Parses the given file, mapping it into memory if it is large.
+     *
+     * @return The number of bytes parsed
+     */
+    public static long parse(File file, Sink sink) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), sink);
+                return size;
+            } else {
+                byte[] buffer = buffer((int) size);
+                ByteBuffer target = ByteBuffer.wrap(buffer, 0, (int) size);
+                while (target.hasRemaining() && channel.read(target) >= 0) {
+                    // keep reading
+                }
+                parse(ByteBuffer.wrap(buffer, 0, target.position()), sink);
+                return target.position();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Parses the given classpath resource, reading it directly from the file system when it isn't packaged in a jar.
+     *
+     * @return The number of bytes parsed
+     */
+    public static long parse(URL resource, Sink sink) throws IOException {
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                return parse(new File(resource.toURI()), sink);
+            } catch (URISyntaxException e) {
+                // read it as a stream instead
+            } catch (IllegalArgumentException e) {
+                // read it as a stream instead
+            }
+        }
+
+        InputStream in = resource.openStream();
+        try {
+            return parse(in, sink);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Parses the given stream into a pooled buffer, the stream is not closed.
+     *
+     * @return The number of bytes parsed
+     */
+    public static long parse(InputStream in, Sink sink) throws IOException {
+        byte[] buffer = BUFFERS.get();
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) >= 0) {
+            length += read;
+            if (length == buffer.length) {
+                byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, length);
+                buffer = larger;
+                if (buffer.length <= MAX_POOLED_BUFFER) {
+                    BUFFERS.set(buffer);
+                }
+            }
+        }
+        parse(ByteBuffer.wrap(buffer, 0, length), sink);
+        return length;
+    }
+
+    /**
+     * Parses the bytes between the buffer's position and limit, leaving the buffer's position untouched. Follows the
+     * line reading of Properties.load in Java 9 onwards, which unlike Java 8 also treats a <code>#</code> or
+     * <code>!</code> as a comment when it starts a line continuing a blank one.
+     */
+    public static void parse(ByteBuffer in, Sink sink) {
+        char[] line = LINES.get();
+        Bytes bytes = new Bytes(in);
+        final int end = in.limit();
+        int pos = in.position();
+        int len = 0;
+        int lineNumber = 1;
+        int startLine = 1;
+        boolean skipWhiteSpace = true;
+        boolean appendedLineBegin = false;
+        boolean precedingBackslash = false;
+
+        while (pos < end) {
+            char c = (char) (in.get(pos++) & 0xff);
+
+            if (skipWhiteSpace) {
+                if (c == ' ' || c == '\t' || c == '\f') {
+                    continue;
+                }
+                if (!appendedLineBegin && (c == '\r' || c == '\n')) {
+                    pos = skipLineFeed(in, c, pos, end);
+                    lineNumber++;
+                    continue;
+                }
+                skipWhiteSpace = false;
+                appendedLineBegin = false;
+            }
+
+            if (len == 0) {
+                if (c == '#' || c == '!') {
+                    // comments run to the end of the natural line, continuations don't apply
+                    while (pos < end) {
+                        c = (char) (in.get(pos++) & 0xff);
+                        if (c == '\r' || c == '\n') {
+                            pos = skipLineFeed(in, c, pos, end);
+                            lineNumber++;
+                            break;
+                        }
+                    }
+                    skipWhiteSpace = true;
+                    continue;
+                }
+                startLine = lineNumber;
+
+                // most lines have no escapes, their key and value are taken straight from the bytes
+                int lineEnd = (c == '\r' || c == '\n') ? -1 : plainLineEnd(in, pos - 1, end);
+                if (lineEnd >= 0) {
+                    plainEntry(bytes, pos - 1, lineEnd, lineNumber, sink);
+                    pos = lineEnd;
+                    skipWhiteSpace = true;
+                    continue;
+                }
+            }
+
+            if (c != '\n' && c != '\r') {
+                if (len == line.length) {
+                    line = grow(line);
+                }
+                line[len++] = c;
+                precedingBackslash = (c == '\\') ? !precedingBackslash : false;
+                continue;
+            }
+
+            // end of a natural line
+            if (len == 0) {
+                pos = skipLineFeed(in, c, pos, end);
+                lineNumber++;
+                skipWhiteSpace = true;
+                continue;
+            }
+            if (pos >= end) {
+                break;
+            }
+            pos = skipLineFeed(in, c, pos, end);
+            lineNumber++;
+
+            if (precedingBackslash) {
+                // the backslash joins the next line on, without its leading white space
+                len--;
+                skipWhiteSpace = true;
+                appendedLineBegin = true;
+                precedingBackslash = false;
+            } else {
+                entry(line, len, startLine, sink);
+                len = 0;
+                skipWhiteSpace = true;
+            }
+        }
+
+        if (len > 0) {
+            entry(line, precedingBackslash ? len - 1 : len, startLine, sink);
+        }
+
+        if (line.length <= MAX_POOLED_BUFFER) {
+            LINES.set(line);
+        }
+    }
+
+    /**
+     * @return The position after the line feed of a CR LF pair, if <code>c</code> was its CR
+     */
+    private static int skipLineFeed(ByteBuffer in, char c, int pos, int end) {
+        if (c == '\r' && pos < end && in.get(pos) == '\n') {
+            return pos + 1;
+        }
+        return pos;
+    }
+
+    /**
+     * @return The end of the natural line starting at the given position, or -1 if the line has a backslash in it
+     */
+    private static int plainLineEnd(ByteBuffer in, int pos, int end) {
+        while (pos < end) {
+            byte b = in.get(pos);
+            if (b == '\n' || b == '\r') {
+                return pos;
+            }
+            if (b == '\\') {
+                return -1;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Splits a line without escapes or continuations into its key and value, as {@link #entry} would.
+     */
+    private static void plainEntry(Bytes bytes, int start, int limit, int lineNumber, Sink sink) {
+        ByteBuffer in = bytes.buffer;
+        int keyEnd = start;
+        int valueStart = limit;
+        boolean hasSep = false;
+
+        while (keyEnd < limit) {
+            byte b = in.get(keyEnd);
+            if (b == '=' || b == ':') {
+                valueStart = keyEnd + 1;
+                hasSep = true;
+                break;
+            } else if (b == ' ' || b == '\t' || b == '\f') {
+                valueStart = keyEnd + 1;
+                break;
+            }
+            keyEnd++;
+        }
+
+        while (valueStart < limit) {
+            byte b = in.get(valueStart);
+            if (b != ' ' && b != '\t' && b != '\f') {
+                if (!hasSep && (b == '=' || b == ':')) {
+                    hasSep = true;
+                } else {
+                    break;
+                }
+            }
+            valueStart++;
+        }
+
+        String key = bytes.string(start, keyEnd - start);
+        if (accepts(sink, key)) {
+            sink.property(key, bytes.string(valueStart, limit - valueStart), lineNumber);
+        }
+    }
+
+    /**
+     * Splits a logical line into its key and value, as Properties.load0 does.
+     */
+    private static void entry(char[] line, int limit, int lineNumber, Sink sink) {
+        int keyLen = 0;
+        int valueStart = limit;
+        boolean hasSep = false;
+        boolean precedingBackslash = false;
+
+        while (keyLen < limit) {
+            char c = line[keyLen];
+            if ((c == '=' || c == ':') && !precedingBackslash) {
+                valueStart = keyLen + 1;
+                hasSep = true;
+                break;
+            } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+                valueStart = keyLen + 1;
+                break;
+            }
+            precedingBackslash = (c == '\\') ? !precedingBackslash : false;
+            keyLen++;
+        }
+
+        while (valueStart < limit) {
+            char c = line[valueStart];
+            if (c != ' ' && c != '\t' && c != '\f') {
+                if (!hasSep && (c == '=' || c == ':')) {
+                    hasSep = true;
+                } else {
+                    break;
+                }
+            }
+            valueStart++;
+        }
+
+        String key = unescape(line, 0, keyLen);
+        if (accepts(sink, key)) {
+            sink.property(key, unescape(line, valueStart, limit - valueStart), lineNumber);
+        }
+    }
+
+    private static boolean accepts(Sink sink, String key) {
+        return !(sink instanceof FilteringSink) || ((FilteringSink) sink).accepts(key);
+    }
+
+    /**
+     * Resolves the escapes in the given range, as Properties.loadConvert does.
+     */
+    private static String unescape(char[] in, int off, int len) {
+        int end = off + len;
+        int firstEscape = -1;
+        for (int i = off; i < end; i++) {
+            if (in[i] == '\\') {
+                firstEscape = i;
+                break;
+            }
+        }
+        if (firstEscape < 0) {
+            return new String(in, off, len);
+        }
+
+        char[] out = new char[len];
+        int outLen = firstEscape - off;
+        System.arraycopy(in, off, out, 0, outLen);
+        int i = firstEscape;
+
+        while (i < end) {
+            char c = in[i++];
+            if (c != '\\') {
+                out[outLen++] = c;
+                continue;
+            }
+            if (i == end) {
+                break;
+            }
+            c = in[i++];
+            if (c == 'u') {
+                int value = 0;
+                for (int j = 0; j < 4; j++) {
+                    if (i == end) {
+                        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                    }
+                    int digit = Character.digit(in[i++], 16);
+                    if (digit < 0) {
+                        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                    }
+                    value = (value << 4) + digit;
+                }
+                out[outLen++] = (char) value;
+            } else if (c == 't') {
+                out[outLen++] = '\t';
+            } else if (c == 'r') {
+                out[outLen++] = '\r';
+            } else if (c == 'n') {
+                out[outLen++] = '\n';
+            } else if (c == 'f') {
+                out[outLen++] = '\f';
+            } else {
+                out[outLen++] = c;
+            }
+        }
+        return new String(out, 0, outLen);
+    }
+
+    /**
+     * Decodes ranges of a buffer, straight from its array when it has one and otherwise through a scratch array.
+     */
+    private static final class Bytes {
+
+        private final ByteBuffer buffer;
+
+        private final byte[] array;
+
+        private final int offset;
+
+        private ByteBuffer view;
+
+        private byte[] scratch;
+
+        Bytes(ByteBuffer buffer) {
+            this.buffer = buffer;
+            if (buffer.hasArray()) {
+                this.array = buffer.array();
+                this.offset = buffer.arrayOffset();
+            } else {
+                this.array = null;
+                this.offset = 0;
+            }
+        }
+
+        String string(int start, int length) {
+            if (length == 0) {
+                return "";
+            }
+            if (array != null) {
+                return new String(array, offset + start, length, ISO_8859_1);
+            }
+            if (view == null) {
+                view = buffer.duplicate();
+                scratch = new byte[256];
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            // Buffer's position(int), as ByteBuffer's covariant override doesn't exist before Java 9
+            ((Buffer) view).position(start);
+            view.get(scratch, 0, length);
+            return new String(scratch, 0, length, ISO_8859_1);
+        }
+    }
+
+    private static char[] grow(char[] line) {
+        char[] larger = new char[line.length * 2];
+        System.arraycopy(line, 0, larger, 0, line.length);
+        return larger;
+    }
+
+    private static byte[] buffer(int size) {
+        byte[] buffer = BUFFERS.get();
+        if (buffer.length < size) {
+            buffer = new byte[size];
+            if (size <= MAX_POOLED_BUFFER) {
+                BUFFERS.set(buffer);
+            }
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,409 @@
+package com.akoolla.commons.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * PropertiesWatcher.
+ *
+ * <p> Watches the directories holding the global properties file, the profile and environment specific properties
+ * files and the app.datadir overrides, and re-munches them when any properties file in there changes. Bursts of
+ * events, e.g. an editor writing a file in several steps, are debounced into a single reload. </p>
+ *
+ * <p> When only files the current configuration was merged from have changed, only those files are read again and only
+ * the keys they had or now have are merged again, see {@link IncrementalMerge}. Any other change, including one that
+ * moves app.datadir, re-munches everything. A configuration that doesn't know the properties of each file, as a
+ * {@link PrecompiledSnapshot} or a munch streamed into a single table doesn't, is re-munched in full on its first
+ * change, keeping the table of each file from then on. </p>
+ *
+ * <p> Reloads run on the watcher's own daemon thread and publish their result through a
+ * {@link ConfigSnapshotHolder}, so readers never wait for them. A reload that fails, e.g. with an
+ * {@link UnmatchedPropertyException} because a key was added to an override file only, is logged and the previous
+ * snapshot stays live. </p>
+ *
+ * <p> Only directories that exist on the file system when the watcher starts, or after a reload, are watched.
+ * Properties files that are packaged inside a jar cannot change and are not watched. </p>
+ */
+public class PropertiesWatcher {
+
+    /** The logger for this class. **/
+    private static Log log = LogFactory.getLog(PropertiesWatcher.class);
+
+    private static final String PROPERTIES_SUFFIX = ".properties";
+
+    private final String parent;
+
+    private final boolean classpath;
+
+    private final String globalProps;
+
+    private final String globalPropsEnvDir;
+
+    private final ConfigSnapshotHolder holder;
+
+    private final long debounceMillis;
+
+    private final Map<Path, WatchKey> watched = new HashMap<Path, WatchKey>();
+
+    private WatchService watchService;
+
+    private Thread thread;
+
+    private volatile boolean running;
+
+    /** Whether events were lost since the last reload, so the files that changed aren't known. */
+    private boolean overflowed;
+
+    /**
+     * @param parent The parent path or package, as given to {@link PropertiesMuncher#munch(String, boolean, String,
+     *        String)}, or <code>null</code> to reload as {@link PropertiesMuncher#munch()} does
+     * @param classpath Whether the properties are obtained from the classpath or the file system
+     * @param globalProps The name of the global environment.properties
+     * @param globalPropsEnvDir The name of the directory containing the environment specific properties files
+     * @param holder The holder to publish reloaded snapshots through
+     * @param debounceMillis How long the watched directories must be quiet before a reload starts
+     */
+    public PropertiesWatcher(String parent, boolean classpath, String globalProps, String globalPropsEnvDir,
+                             ConfigSnapshotHolder holder, long debounceMillis) {
+        if (holder == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : holder");
+        }
+        this.parent = parent;
+        this.classpath = classpath;
+        this.globalProps = globalProps;
+        this.globalPropsEnvDir = globalPropsEnvDir;
+        this.holder = holder;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Starts watching, does nothing if the watcher is already running.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't create a watch service for the properties files", e);
+        }
+        running = true;
+        registerDirectories();
+
+        thread = new Thread(new Runnable() {
+
+            public void run() {
+                watch();
+            }
+        }, "PropertiesWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching and waits for a reload in progress to complete.
+     */
+    public void stop() {
+        Thread watcherThread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            watcherThread = thread;
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Couldn't close the properties watch service", e);
+            }
+            watched.clear();
+        }
+
+        if (watcherThread != null && watcherThread != Thread.currentThread()) {
+            try {
+                watcherThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Re-munches the properties files and publishes the result. Called by the watcher thread after a change, but can
+     * also be called directly.
+     *
+     * @return <code>true</code> if a new snapshot was published, <code>false</code> if the reload failed and the
+     *         previous snapshot is still being served
+     */
+    public boolean reload() {
+        ConfigSnapshot snapshot;
+        try {
+            if (parent == null) {
+                snapshot = PropertiesMuncher.munchUncached(true);
+            } else {
+                snapshot = PropertiesMuncher.munchUncached(parent, classpath, globalProps, globalPropsEnvDir, true);
+            }
+        } catch (UnmatchedPropertyException e) {
+            log.error("Reloaded properties are inconsistent, keeping the previous configuration", e);
+            return false;
+        } catch (RuntimeException e) {
+            log.error("Couldn't reload properties, keeping the previous configuration", e);
+            return false;
+        }
+
+        PropertiesMuncherCache.invalidate(parent, classpath);
+        Set<String> changed = holder.publish(snapshot);
+        if (log.isInfoEnabled()) {
+            log.info("Reloaded properties, " + changed.size() + " changed key(s)");
+        }
+
+        synchronized (this) {
+            if (running) {
+                registerDirectories();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reloads after the given files have changed. If they are all files the current configuration was merged from,
+     * only they are read again and merged into it, otherwise everything is re-munched as by {@link #reload()}.
+     *
+     * @return <code>true</code> if a new snapshot was published, <code>false</code> if the reload failed and the
+     *         previous snapshot is still being served
+     */
+    boolean reload(Set<Path> changedFiles) {
+        ConfigSnapshot previous = holder.get();
+        IncrementalMerge.Result result;
+        try {
+            result = remerge(previous, changedFiles);
+        } catch (UnmatchedPropertyException e) {
+            log.error("Reloaded properties are inconsistent, keeping the previous configuration", e);
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("Couldn't reload the changed properties files alone, reloading them all", e);
+            result = null;
+        }
+
+        if (result == null || !holder.publish(previous, result.getSnapshot(), result.getChangedKeys())) {
+            return reload();
+        }
+
+        if (result.getSnapshot() != previous) {
+            PropertiesMuncherCache.invalidate(parent, classpath);
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Reloaded " + changedFiles.size() + " properties file(s), " + result.getChangedKeys().size()
+                    + " changed key(s)");
+        }
+        return true;
+    }
+
+    /**
+     * @return The previous snapshot with the changed files merged into it, or <code>null</code> if a file isn't one
+     *         of the layers it was merged from, or the change would move app.datadir
+     */
+    private IncrementalMerge.Result remerge(ConfigSnapshot previous, Set<Path> changedFiles) {
+        PropertyLayer[] layers = previous.layers();
+        if (layers.length == 0) {
+            return null;
+        }
+
+        File root = rootDirectory();
+        Set<Path> unclaimed = new HashSet<Path>(changedFiles);
+        ConfigSnapshot[] replacements = new ConfigSnapshot[layers.length];
+        for (int i = 0; i < layers.length; i++) {
+            if (!layers[i].isLoaded()) {
+                return null;
+            }
+            Path file = layerFile(layers[i], root);
+            if (file != null && unclaimed.remove(file)) {
+                replacements[i] = PropertiesMuncher.rereadLayer(layers[i], parent, classpath, globalProps,
+                        globalPropsEnvDir);
+            }
+        }
+        if (!unclaimed.isEmpty()) {
+            return null;
+        }
+
+        IncrementalMerge.Result result = IncrementalMerge.merge(previous, replacements, true);
+        if (result.getChangedKeys().contains(PropertiesMuncher.getAppDataDirProperty())) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * @return The file the layer was read from, or <code>null</code> if it isn't on the file system
+     */
+    private static Path layerFile(PropertyLayer layer, File root) {
+        String source = layer.getSource();
+        File file;
+        if (source.startsWith(PropertiesMuncher.CLASSPATH_PREFIX)) {
+            if (root == null) {
+                return null;
+            }
+            file = new File(root, source.substring(PropertiesMuncher.CLASSPATH_PREFIX.length()));
+        } else {
+            file = new File(source);
+        }
+        return file.getAbsoluteFile().toPath().normalize();
+    }
+
+    private void watch() {
+        try {
+            while (running) {
+                WatchKey key = watchService.take();
+                Set<Path> changedFiles = new HashSet<Path>();
+                overflowed = false;
+                drain(key, changedFiles);
+
+                // wait for the directories to go quiet before reloading
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    drain(key, changedFiles);
+                }
+
+                if (running) {
+                    if (overflowed) {
+                        reload();
+                    } else if (!changedFiles.isEmpty()) {
+                        reload(changedFiles);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    /**
+     * Adds the properties files the key's events are about to the given set.
+     */
+    private void drain(WatchKey key, Set<Path> changedFiles) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowed = true;
+            } else if (event.context().toString().endsWith(PROPERTIES_SUFFIX)) {
+                changedFiles.add(dir.resolve((Path) event.context()));
+            }
+        }
+
+        if (!key.reset()) {
+            synchronized (this) {
+                watched.values().remove(key);
+            }
+        }
+    }
+
+    /**
+     * Brings the set of watched directories in line with the current configuration, the app.datadir directory may have
+     * been changed by the last reload.
+     */
+    private void registerDirectories() {
+        Set<Path> wanted = directoriesToWatch();
+
+        for (Iterator<Map.Entry<Path, WatchKey>> it = watched.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Path, WatchKey> entry = it.next();
+            if (!wanted.contains(entry.getKey())) {
+                entry.getValue().cancel();
+                it.remove();
+            }
+        }
+
+        for (Path dir : wanted) {
+            if (!watched.containsKey(dir)) {
+                try {
+                    watched.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+                    if (log.isInfoEnabled()) {
+                        log.info("Watching " + dir + " for properties changes");
+                    }
+                } catch (IOException e) {
+                    log.warn("Couldn't watch " + dir + " for properties changes", e);
+                }
+            }
+        }
+    }
+
+    private Set<Path> directoriesToWatch() {
+        Set<Path> dirs = new LinkedHashSet<Path>();
+
+        File root = rootDirectory();
+        if (root != null) {
+            addDirectory(dirs, new File(root, globalProps).getParentFile());
+            addDirectory(dirs, new File(root, PropertiesMuncher.getProfilesDir()));
+            addDirectory(dirs, new File(root, globalPropsEnvDir));
+        }
+
+        String appDataDir = holder.get().get(PropertiesMuncher.getAppDataDirProperty());
+        String dataDir = PropertiesMuncher.resolveAppDataDir(appDataDir);
+        if (dataDir != null) {
+            addDirectory(dirs, new File(dataDir, PropertiesMuncher.getGlobalProperties()).getParentFile());
+            addDirectory(dirs, new File(dataDir, PropertiesMuncher.getGlobalPropertiesDir()));
+        }
+        return dirs;
+    }
+
+    private static void addDirectory(Set<Path> dirs, File dir) {
+        if (dir != null && dir.isDirectory()) {
+            dirs.add(dir.getAbsoluteFile().toPath().normalize());
+        }
+    }
+
+    /**
+     * @return The directory the global properties file name is relative to, or <code>null</code> if it isn't on the
+     *         file system
+     */
+    private File rootDirectory() {
+        if (!classpath) {
+            return new File(parent);
+        }
+
+        String prefix = (parent == null) ? "" : parent;
+        URL url = PropertiesMuncher.class.getClassLoader().getResource(prefix + globalProps);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+
+        try {
+            File dir = new File(url.toURI());
+            for (String segment : (prefix + globalProps).split("/")) {
+                if (segment.length() > 0) {
+                    dir = dir.getParentFile();
+                }
+            }
+            return dir;
+        } catch (URISyntaxException e) {
+            log.warn("Couldn't locate " + url + " on the file system", e);
+            return null;
+        }
+    }
+}
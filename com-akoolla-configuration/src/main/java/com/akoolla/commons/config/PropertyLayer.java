@@ -0,0 +1,110 @@
+package com.akoolla.commons.config;
+
+/**
+ * PropertyLayer.
+ *
+ * <p> The properties read from one of the files making up a munched configuration, along with where they came from.
+ * The properties are held in a {@link ConfigSnapshot} of their own, which is what the file was parsed into. </p>
+ */
+final class PropertyLayer {
+
+    private final ConfigLayer layer;
+
+    private final String source;
+
+    private final ConfigSnapshot entries;
+
+    private final boolean loaded;
+
+    /** The hash of the entries, 0 until first asked for. */
+    private long hash;
+
+    /**
+     * @param entries The properties read from the file, or <code>null</code> if they are not known, as for a layer
+     *        described by a {@link PrecompiledSnapshot}
+     */
+    PropertyLayer(ConfigLayer layer, String source, ConfigSnapshot entries) {
+        this.layer = layer;
+        this.source = source;
+        this.entries = (entries == null) ? ConfigSnapshot.empty() : entries;
+        this.loaded = entries != null;
+    }
+
+    ConfigLayer getLayer() {
+        return layer;
+    }
+
+    /**
+     * @return The file or classpath resource the properties were read from
+     */
+    String getSource() {
+        return source;
+    }
+
+    /**
+     * @return The properties read from the file alone, without their layer
+     */
+    ConfigSnapshot getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return Whether the properties read from the file are known, rather than just where they came from
+     */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return Whether the given properties are the same as this layer's, each on the same line, comparing hashes
+     *         before entries
+     */
+    boolean hasEntries(ConfigSnapshot other) {
+        if (other.size() != entries.size() || hash(other) != getHash()) {
+            return false;
+        }
+        for (int slot = 0; slot < other.capacity(); slot++) {
+            String key = other.keyAt(slot);
+            if (key != null) {
+                int index = entries.indexOf(key);
+                if (index < 0 || !entries.valueAt(index).equals(other.valueAt(slot))
+                        || entries.lineAt(index) != other.lineAt(slot)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return A hash of the layer's properties that doesn't depend on their order in the file
+     */
+    long getHash() {
+        long h = hash;
+        if (h == 0) {
+            h = hash(entries);
+            hash = h;
+        }
+        return h;
+    }
+
+    private static long hash(ConfigSnapshot entries) {
+        long h = 1;
+        for (int slot = 0; slot < entries.capacity(); slot++) {
+            String key = entries.keyAt(slot);
+            if (key != null) {
+                long entry = key.hashCode() * 0x9e3779b97f4a7c15L + entries.valueAt(slot).hashCode();
+                entry ^= entry >>> 33;
+                entry *= 0xff51afd7ed558ccdL;
+                entry ^= entry >>> 33;
+                h += entry;
+            }
+        }
+        return (h == 0) ? 1 : h;
+    }
+
+    @Override
+    public String toString() {
+        return layer.getDescription() + " file " + source;
+    }
+}
@@ -0,0 +1,198 @@
+package com.akoolla.commons.config;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * ReadOnlyProperties.
+ *
+ * <p> A {@link Properties} that is populated once on construction and rejects every mutation afterwards. Instances are
+ * the {@link ConfigSnapshot#toProperties()} view of a snapshot, shared between all callers of the cached muncher
+ * methods so nobody can corrupt the configuration seen by anybody else. Use {@link #clone()} to obtain a private,
+ * mutable copy. </p>
+ */
+final class ReadOnlyProperties extends Properties {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean sealed;
+
+    private final transient ConfigSnapshot snapshot;
+
+    ReadOnlyProperties(ConfigSnapshot snapshot) {
+        super();
+        for (int i = 0; i < snapshot.capacity(); i++) {
+            String key = snapshot.keyAt(i);
+            if (key != null) {
+                super.put(key, snapshot.valueAt(i));
+            }
+        }
+        this.snapshot = snapshot;
+        this.sealed = true;
+    }
+
+    /**
+     * @return The snapshot these properties were built from
+     */
+    ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Munched properties are shared and cannot be modified, "
+                + "clone() them to obtain a private copy");
+    }
+
+    @Override
+    public synchronized Object put(Object key, Object value) {
+        if (sealed) {
+            throw readOnly();
+        }
+        return super.put(key, value);
+    }
+
+    @Override
+    public synchronized Object setProperty(String key, String value) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized void putAll(Map<?, ?> t) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized Object remove(Object key) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized boolean remove(Object key, Object value) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized void clear() {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized Object putIfAbsent(Object key, Object value) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized Object replace(Object key, Object value) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized boolean replace(Object key, Object oldValue, Object newValue) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized void replaceAll(BiFunction<? super Object, ? super Object, ?> function) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized Object computeIfAbsent(Object key, Function<? super Object, ?> mappingFunction) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized Object computeIfPresent(Object key,
+                                                BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized Object compute(Object key, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized Object merge(Object key, Object value,
+                                     BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized void load(InputStream inStream) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized void load(Reader reader) {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized void loadFromXML(InputStream in) {
+        throw readOnly();
+    }
+
+    @Override
+    public Set<Object> keySet() {
+        return Collections.unmodifiableSet(super.keySet());
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        final Set<Map.Entry<Object, Object>> entries = super.entrySet();
+        return new AbstractSet<Map.Entry<Object, Object>>() {
+
+            @Override
+            public Iterator<Map.Entry<Object, Object>> iterator() {
+                final Iterator<Map.Entry<Object, Object>> it = entries.iterator();
+                return new Iterator<Map.Entry<Object, Object>>() {
+
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    public Map.Entry<Object, Object> next() {
+                        return new AbstractMap.SimpleImmutableEntry<Object, Object>(it.next());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return Collections.unmodifiableCollection(super.values());
+    }
+
+    /**
+     * @return a plain, mutable {@link Properties} holding a copy of these properties
+     */
+    @Override
+    public synchronized Object clone() {
+        Properties copy = new Properties();
+        for (Map.Entry<Object, Object> entry : super.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        return copy;
+    }
+
+    private Object writeReplace() {
+        return clone();
+    }
+}
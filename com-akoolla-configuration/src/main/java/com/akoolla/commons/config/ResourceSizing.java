@@ -0,0 +1,196 @@
+package com.akoolla.commons.config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+import com.akoolla.commons.config.EnvironmentSettings.Profile;
+
+/**
+ * ResourceSizing.
+ *
+ * <p> Thread pool, queue and cache defaults derived from the SERVER_PROFILE a JVM runs under and the machine it runs
+ * on, so services stop copying the same hand tuned numbers between properties files. The defaults are not part of any
+ * munch, so a configuration only has the keys its files declare: a service that wants them asks for them, passing its
+ * configuration to e.g. {@link #getThreads(ConfigSnapshot)} to take the value a file sets for
+ * <code>sizing.threads</code>, if any does, or the default otherwise. {@link #origin(ConfigSnapshot, String)} says
+ * which it was, the file and line as {@link ConfigProvenance} reports them or the profile, processors and heap the
+ * default was derived from. </p>
+ *
+ * <pre>
+ *                SMALL           MEDIUM          LARGE
+ * threads        processors      processors x 2  processors x 4
+ * queue          threads x 64    threads x 128   threads x 256
+ * cache          max heap / 20   max heap / 10   max heap / 5
+ * </pre>
+ *
+ * <p> An unrecognised profile is sized as SMALL, see {@link #effectiveProfile(Profile)}. There are always at least 2
+ * threads. </p>
+ */
+public final class ResourceSizing {
+
+    /** The number of threads a worker pool should have. */
+    public static final String THREADS = "sizing.threads";
+
+    /** The number of tasks a worker pool's queue should hold. */
+    public static final String QUEUE_CAPACITY = "sizing.queue-capacity";
+
+    /** The number of bytes of heap caches should keep to between them. */
+    public static final String CACHE_BYTES = "sizing.cache-bytes";
+
+    private static final int MIN_THREADS = 2;
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final Profile profile;
+
+    private final int processors;
+
+    private final long maxHeap;
+
+    /**
+     * @param profile The profile to size for, <code>null</code> or UKNOWN for SMALL
+     * @param processors The number of processors available
+     * @param maxHeap The most heap the JVM will use, in bytes
+     */
+    public ResourceSizing(Profile profile, int processors, long maxHeap) {
+        if (processors < 1) {
+            throw new IllegalArgumentException("Cannot supply fewer than 1 processors : " + processors);
+        }
+        if (maxHeap < 1) {
+            throw new IllegalArgumentException("Cannot supply a max heap of less than 1 byte : " + maxHeap);
+        }
+        this.profile = effectiveProfile(profile);
+        this.processors = processors;
+        this.maxHeap = maxHeap;
+    }
+
+    /**
+     * @return The sizing for the given environment's profile on this machine
+     */
+    public static ResourceSizing of(EnvironmentSettings settings) {
+        if (settings == null) {
+            throw new IllegalArgumentException("Cannot supply null parameter : settings");
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long maxHeap = runtime.maxMemory();
+        if (maxHeap == Long.MAX_VALUE) {
+            maxHeap = unlimitedHeap(runtime);
+        }
+        return new ResourceSizing(settings.getProfile(), runtime.availableProcessors(), maxHeap);
+    }
+
+    /**
+     * @return The heap to size for when no limit was set: a quarter of the machine's memory, as the JVM picks by
+     *         default, so the sizing is the same from one run to the next, or what the JVM has so far if the machine's
+     *         memory isn't known
+     */
+    // getTotalMemorySize() replaces it from Java 14 only, and the build targets Java 8
+    @SuppressWarnings("deprecation")
+    private static long unlimitedHeap(Runtime runtime) {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            long physical = ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize();
+            if (physical > 0) {
+                return physical / 4;
+            }
+        }
+        return runtime.totalMemory();
+    }
+
+    /**
+     * The profile a JVM is both sized and configured for, whose config/profiles/ file {@link PropertiesMuncher} reads.
+     *
+     * @return The given SERVER_PROFILE, SMALL if it isn't set or wasn't recognised
+     */
+    public static Profile effectiveProfile(Profile profile) {
+        return ((profile == null) || (profile == Profile.UKNOWN)) ? Profile.SMALL : profile;
+    }
+
+    /**
+     * @return The profile sized for, SMALL if the environment's wasn't recognised
+     */
+    public Profile getProfile() {
+        return profile;
+    }
+
+    public int getProcessors() {
+        return processors;
+    }
+
+    public long getMaxHeap() {
+        return maxHeap;
+    }
+
+    public int getThreads() {
+        return Math.max(MIN_THREADS, processors * scale());
+    }
+
+    public int getQueueCapacity() {
+        return getThreads() * 64 * scale();
+    }
+
+    public long getCacheBytes() {
+        switch (profile) {
+            case LARGE:
+                return maxHeap / 5;
+            case MEDIUM:
+                return maxHeap / 10;
+            default:
+                return maxHeap / 20;
+        }
+    }
+
+    /**
+     * @return The number of threads the given configuration sets with {@link #THREADS}, or the default if it doesn't
+     */
+    public int getThreads(ConfigSnapshot config) {
+        return config.typed().getInt(THREADS, getThreads());
+    }
+
+    /**
+     * @return The queue capacity the given configuration sets with {@link #QUEUE_CAPACITY}, or the default if it
+     *         doesn't
+     */
+    public int getQueueCapacity(ConfigSnapshot config) {
+        return config.typed().getInt(QUEUE_CAPACITY, getQueueCapacity());
+    }
+
+    /**
+     * @return The cache size the given configuration sets with {@link #CACHE_BYTES}, e.g. "512MB", or the default if
+     *         it doesn't
+     */
+    public long getCacheBytes(ConfigSnapshot config) {
+        return config.typed().getBytes(CACHE_BYTES, getCacheBytes());
+    }
+
+    /**
+     * @return Where the value of the given key the accessors taking a configuration return comes from, the file and
+     *         line setting it or, if none does, what the default was derived from
+     */
+    public String origin(ConfigSnapshot config, String key) {
+        String origin = ConfigProvenance.origin(config, key);
+        return (origin == null) ? "sizing defaults for " + this : origin;
+    }
+
+    /**
+     * @return The factor SMALL is scaled by for the profile
+     */
+    private int scale() {
+        switch (profile) {
+            case LARGE:
+                return 4;
+            case MEDIUM:
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * @return What the defaults were derived from
+     */
+    @Override
+    public String toString() {
+        return "profile " + profile + ", " + processors + " processors, " + (maxHeap / MEGABYTE) + "MB max heap";
+    }
+}
@@ -0,0 +1,146 @@
+package com.akoolla.commons.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * StreamingMerge.
+ *
+ * <p> Merges property layers as their files are parsed, rather than once each has been parsed into a table of its own
+ * as {@link LayeredMerge} does. The layers are started one after another, from the lowest precedence to the highest,
+ * and every entry parsed goes straight into the merged table, overriding the value of a lower layer in place. So the
+ * merged table is the only one a munch fills and peak memory is close to the size of the snapshot it ends up as. </p>
+ *
+ * <p> Within a layer, the entries of a file on the file system win over those of its classpath copy, which are
+ * turned down on the key alone before their values are unescaped, and otherwise the last occurrence of a key wins, as
+ * when the layer is parsed into a table of its own. When strict, a layer may only override keys that exist in a lower
+ * layer, and every offending key, from every layer, is reported in a single {@link UnmatchedPropertyException} once
+ * the last layer is in. </p>
+ *
+ * <p> The snapshot built remembers the layer and line of each value, but not the properties each layer had, which are
+ * gone once merged. Like a {@link PrecompiledSnapshot} its layers are not {@link PropertyLayer#isLoaded() loaded}, so
+ * it can't be merged again incrementally, see {@link IncrementalMerge}. Not reusable once built. </p>
+ */
+final class StreamingMerge implements PropertiesParser.Sink {
+
+    private final boolean strict;
+
+    private final PropertyLayer[] layers = new PropertyLayer[ConfigLayer.values().length];
+
+    private final ConfigSnapshot.Builder builder;
+
+    private final LayeredMerge.Unmatched unmatched = new LayeredMerge.Unmatched();
+
+    /** The number of layers started, the last being the one entries are merged into. */
+    private int count;
+
+    /** The number of entries the current layer has supplied. */
+    private int entries;
+
+    /** The current layer's keys that override nothing, <code>null</code> if there are none. */
+    private Set<String> layerUnmatched;
+
+    private final PropertiesParser.FilteringSink copy = new PropertiesParser.FilteringSink() {
+
+        public boolean accepts(String key) {
+            // the file's entries all have a line, a key repeated in the copy replaces the copy's own
+            return builder.layerOf(key) != count - 1 || builder.lineOf(key) <= 0;
+        }
+
+        public void property(String key, String value, int line) {
+            merge(key, value, 0);
+        }
+    };
+
+    /**
+     * @param strict Whether keys must exist in a lower layer to be overridden
+     */
+    StreamingMerge(boolean strict) {
+        this.strict = strict;
+        this.builder = new ConfigSnapshot.Builder(16, layers);
+    }
+
+    /**
+     * Starts the next layer, of higher precedence than every layer started before it.
+     *
+     * @param source The file or classpath resource the layer is read from
+     */
+    void startLayer(ConfigLayer layer, String source) {
+        if (count == layers.length) {
+            throw new IllegalStateException("Cannot merge more than " + layers.length + " layers");
+        }
+        endLayer();
+        layers[count++] = new PropertyLayer(layer, source, null);
+    }
+
+    /**
+     * Merges an entry of the current layer, read from the given line.
+     */
+    public void property(String key, String value, int line) {
+        merge(key, value, line);
+    }
+
+    /**
+     * @return A sink merging the entries of the current layer's classpath copy, turning down those of keys the layer's
+     *         file has and leaving the rest without a line, the copy's lines not being the file's
+     */
+    PropertiesParser.FilteringSink copy() {
+        return copy;
+    }
+
+    /**
+     * @return The value the layers merged so far give the key, or <code>null</code> if none has it
+     */
+    String get(String key) {
+        return builder.get(key);
+    }
+
+    /**
+     * @return The number of entries the current layer has supplied so far
+     */
+    int getLayerEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The merged snapshot, remembering the layer each value came from
+     * @throws UnmatchedPropertyException if strict and any layer has keys that override nothing
+     */
+    ConfigSnapshot build() {
+        boolean timed = ConfigMetrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        endLayer();
+        unmatched.check();
+        ConfigSnapshot merged = builder.build(Arrays.copyOf(layers, count));
+        if (timed) {
+            ConfigMetrics.merged(count, merged.size(), System.nanoTime() - start);
+        }
+        return merged;
+    }
+
+    private void merge(String key, String value, int line) {
+        if (count == 0) {
+            throw new IllegalStateException("No layer has been started");
+        }
+        int layer = count - 1;
+        entries++;
+        if (layer == 0 || !strict) {
+            builder.put(key, value, layer, line);
+        } else if (!builder.replace(key, value, layer, line)) {
+            if (layerUnmatched == null) {
+                layerUnmatched = new LinkedHashSet<String>();
+            }
+            layerUnmatched.add(key);
+        }
+    }
+
+    private void endLayer() {
+        if (layerUnmatched != null) {
+            unmatched.add(layers[count - 1], new ArrayList<String>(layerUnmatched));
+            layerUnmatched = null;
+        }
+        entries = 0;
+    }
+}
@@ -0,0 +1,237 @@
+package com.akoolla.commons.config;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SubscriptionTrie.
+ *
+ * <p> The {@link ConfigSubscription}s of a {@link ConfigSnapshotHolder}, in a trie of the characters of their keys.
+ * Each node holds the subscriptions to its exact key and those to every key it starts, so finding the subscribers to a
+ * changed key walks one path, as long as the key, and looks at nothing but the subscriptions that match. Dispatching a
+ * change costs the same however many subscriptions there are to other keys. </p>
+ *
+ * <p> A node's children are kept in a small array searched in order; the keys of a configuration branch at dots and
+ * dashes, so most nodes have one child. Subscribing, cancelling and matching are synchronized, matching runs once per
+ * changed key on the dispatcher thread. </p>
+ */
+final class SubscriptionTrie {
+
+    private static final ConfigSubscription[] NO_SUBSCRIPTIONS = new ConfigSubscription[0];
+
+    private static final char[] NO_LABELS = new char[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node();
+
+    private volatile int size;
+
+    synchronized void add(ConfigSubscription subscription) {
+        String key = subscription.getKey();
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childFor(key.charAt(i));
+        }
+        if (subscription.isPrefix()) {
+            node.prefixed = append(node.prefixed, subscription);
+        } else {
+            node.exact = append(node.exact, subscription);
+        }
+        size++;
+    }
+
+    /**
+     * Removes the subscription and any nodes left with neither subscriptions nor children.
+     *
+     * @return <code>false</code> if it wasn't there
+     */
+    synchronized boolean remove(ConfigSubscription subscription) {
+        String key = subscription.getKey();
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+            if (path[i + 1] == null) {
+                return false;
+            }
+        }
+
+        Node node = path[key.length()];
+        ConfigSubscription[] from = subscription.isPrefix() ? node.prefixed : node.exact;
+        ConfigSubscription[] removed = without(from, subscription);
+        if (removed == from) {
+            return false;
+        }
+        if (subscription.isPrefix()) {
+            node.prefixed = removed;
+        } else {
+            node.exact = removed;
+        }
+        size--;
+
+        for (int i = key.length(); i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(key.charAt(i - 1));
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether there are no subscriptions, without locking
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of nodes below the root, which cancelling every subscription brings back to none
+     */
+    synchronized int nodes() {
+        return root.count() - 1;
+    }
+
+    /**
+     * Adds the change to the changes of every listener subscribed to its key, once per listener however many of its
+     * subscriptions match.
+     */
+    synchronized void collect(ConfigChange change, Map<ConfigKeyListener, List<ConfigChange>> changes) {
+        String key = change.getKey();
+        Node node = root;
+        collect(node.prefixed, change, changes);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.child(key.charAt(i));
+            if (node == null) {
+                return;
+            }
+            collect(node.prefixed, change, changes);
+        }
+        collect(node.exact, change, changes);
+    }
+
+    /**
+     * @return An empty map to collect changes in, keyed by listener identity
+     */
+    static Map<ConfigKeyListener, List<ConfigChange>> newChanges() {
+        return new IdentityHashMap<ConfigKeyListener, List<ConfigChange>>();
+    }
+
+    private static void collect(ConfigSubscription[] subscriptions, ConfigChange change,
+                                Map<ConfigKeyListener, List<ConfigChange>> changes) {
+        for (ConfigSubscription subscription : subscriptions) {
+            List<ConfigChange> listenerChanges = changes.get(subscription.getListener());
+            if (listenerChanges == null) {
+                listenerChanges = new ArrayList<ConfigChange>();
+                changes.put(subscription.getListener(), listenerChanges);
+            } else if (listenerChanges.get(listenerChanges.size() - 1) == change) {
+                // another of the listener's subscriptions already matched this key
+                continue;
+            }
+            listenerChanges.add(change);
+        }
+    }
+
+    private static ConfigSubscription[] append(ConfigSubscription[] subscriptions, ConfigSubscription subscription) {
+        ConfigSubscription[] grown = new ConfigSubscription[subscriptions.length + 1];
+        System.arraycopy(subscriptions, 0, grown, 0, subscriptions.length);
+        grown[subscriptions.length] = subscription;
+        return grown;
+    }
+
+    /**
+     * @return The subscriptions without the given one, the same array if it isn't in there
+     */
+    private static ConfigSubscription[] without(ConfigSubscription[] subscriptions, ConfigSubscription subscription) {
+        for (int i = 0; i < subscriptions.length; i++) {
+            if (subscriptions[i] == subscription) {
+                if (subscriptions.length == 1) {
+                    return NO_SUBSCRIPTIONS;
+                }
+                ConfigSubscription[] shrunk = new ConfigSubscription[subscriptions.length - 1];
+                System.arraycopy(subscriptions, 0, shrunk, 0, i);
+                System.arraycopy(subscriptions, i + 1, shrunk, i, shrunk.length - i);
+                return shrunk;
+            }
+        }
+        return subscriptions;
+    }
+
+    /**
+     * A character of the keys subscribed to.
+     */
+    private static final class Node {
+
+        private char[] labels = NO_LABELS;
+
+        private Node[] children = NO_CHILDREN;
+
+        /** The subscriptions to the key ending here. */
+        private ConfigSubscription[] exact = NO_SUBSCRIPTIONS;
+
+        /** The subscriptions to the keys starting with the key ending here. */
+        private ConfigSubscription[] prefixed = NO_SUBSCRIPTIONS;
+
+        Node child(char label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == label) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childFor(char label) {
+            Node child = child(label);
+            if (child == null) {
+                child = new Node();
+                int n = labels.length;
+                char[] grownLabels = new char[n + 1];
+                Node[] grownChildren = new Node[n + 1];
+                System.arraycopy(labels, 0, grownLabels, 0, n);
+                System.arraycopy(children, 0, grownChildren, 0, n);
+                grownLabels[n] = label;
+                grownChildren[n] = child;
+                labels = grownLabels;
+                children = grownChildren;
+            }
+            return child;
+        }
+
+        void removeChild(char label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == label) {
+                    int n = labels.length - 1;
+                    char[] shrunkLabels = new char[n];
+                    Node[] shrunkChildren = new Node[n];
+                    System.arraycopy(labels, 0, shrunkLabels, 0, i);
+                    System.arraycopy(labels, i + 1, shrunkLabels, i, n - i);
+                    System.arraycopy(children, 0, shrunkChildren, 0, i);
+                    System.arraycopy(children, i + 1, shrunkChildren, i, n - i);
+                    labels = shrunkLabels;
+                    children = shrunkChildren;
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return labels.length == 0 && exact.length == 0 && prefixed.length == 0;
+        }
+
+        /**
+         * @return The number of nodes from this one down
+         */
+        int count() {
+            int count = 1;
+            for (Node child : children) {
+                count += child.count();
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.akoolla.commons.config;
+
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * TypedConfig.
+ *
+ * <p> Typed accessors over a {@link ConfigSnapshot}. Each value is parsed the first time it is read and the result is
+ * kept in a primitive slot alongside the snapshot's table, so repeat reads of a key neither re-parse, allocate nor box.
+ * A typed view belongs to one snapshot, after a reload obtain the new snapshot's view with
+ * {@link ConfigSnapshot#typed()}. </p>
+ *
+ * <p> Each slot caches one kind of value, the kind it was first read as. A key read as another kind as well, say as an
+ * int by one caller and as a long by another, is parsed again on every read of that other kind, since keeping a slot
+ * per kind would multiply the size of every view for the sake of an unusual pattern. Keep to one accessor per key on
+ * hot paths. </p>
+ *
+ * <p> Values are trimmed before being parsed. Durations are a whole number followed by one of <code>ns</code>,
+ * <code>us</code>, <code>ms</code>, <code>s</code>, <code>m</code>, <code>h</code> or <code>d</code>, milliseconds if
+ * no unit is given, e.g. "250ms" or "5s". Sizes are a whole number followed by one of <code>B</code>, <code>KB</code>,
+ * <code>MB</code>, <code>GB</code> or <code>TB</code> (powers of 1024, the B is optional and case is ignored), bytes if
+ * no unit is given, e.g. "64MB". Booleans are true/false, yes/no or on/off. </p>
+ *
+ * <p> A value that cannot be parsed raises an {@link InvalidPropertyValueException} naming the key and the file that
+ * supplied it. </p>
+ */
+public final class TypedConfig {
+
+    private static final int UNPARSED = 0;
+
+    private static final int WRITING = 1;
+
+    private static final int INT = 2;
+
+    private static final int LONG = 3;
+
+    private static final int BOOLEAN = 4;
+
+    private static final int DURATION = 5;
+
+    private static final int BYTES = 6;
+
+    private final ConfigSnapshot snapshot;
+
+    /** The parsed value of each slot, valid once the slot's kind is set. */
+    private final long[] parsed;
+
+    private final Duration[] durations;
+
+    /** The kind of value parsed into each slot; written after the value so a reader seeing a kind sees its value. */
+    private final AtomicIntegerArray kinds;
+
+    TypedConfig(ConfigSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.parsed = new long[snapshot.capacity()];
+        this.durations = new Duration[snapshot.capacity()];
+        this.kinds = new AtomicIntegerArray(snapshot.capacity());
+    }
+
+    /**
+     * @return The typed view of the given properties, e.g. as returned by {@link PropertiesMuncher#munch()}
+     */
+    public static TypedConfig of(Properties properties) {
+        return ConfigSnapshot.of(properties).typed();
+    }
+
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        int slot = snapshot.lookup(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        if (kinds.get(slot) == INT) {
+            return (int) parsed[slot];
+        }
+        return (int) parse(slot, INT);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        int slot = snapshot.lookup(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        if (kinds.get(slot) == LONG) {
+            return parsed[slot];
+        }
+        return parse(slot, LONG);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        int slot = snapshot.lookup(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        if (kinds.get(slot) == BOOLEAN) {
+            return parsed[slot] != 0;
+        }
+        return parse(slot, BOOLEAN) != 0;
+    }
+
+    public Duration getDuration(String key, Duration defaultValue) {
+        int slot = snapshot.lookup(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        if (kinds.get(slot) == DURATION) {
+            return durations[slot];
+        }
+        long nanos = parse(slot, DURATION);
+        return (kinds.get(slot) == DURATION) ? durations[slot] : Duration.ofNanos(nanos);
+    }
+
+    /**
+     * @return The size in bytes
+     */
+    public long getBytes(String key, long defaultValue) {
+        int slot = snapshot.lookup(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        if (kinds.get(slot) == BYTES) {
+            return parsed[slot];
+        }
+        return parse(slot, BYTES);
+    }
+
+    /**
+     * Parses the value in the given slot, caching the result unless the slot already caches a value of another kind,
+     * in which case the value is parsed again on every read of this kind.
+     */
+    private long parse(int slot, int kind) {
+        String raw = snapshot.valueAt(slot);
+        String value = raw.trim();
+        long result;
+
+        try {
+            switch (kind) {
+                case INT:
+                    result = Integer.parseInt(value);
+                    break;
+                case LONG:
+                    result = Long.parseLong(value);
+                    break;
+                case BOOLEAN:
+                    result = parseBoolean(value) ? 1 : 0;
+                    break;
+                case DURATION:
+                    result = parseDurationNanos(value);
+                    break;
+                default:
+                    result = parseBytes(value);
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            throw invalid(slot, raw, kind, e);
+        } catch (ArithmeticException e) {
+            throw invalid(slot, raw, kind, e);
+        }
+
+        if (kinds.compareAndSet(slot, UNPARSED, WRITING)) {
+            parsed[slot] = result;
+            if (kind == DURATION) {
+                durations[slot] = Duration.ofNanos(result);
+            }
+            kinds.set(slot, kind);
+        }
+        return result;
+    }
+
+    private InvalidPropertyValueException invalid(int slot, String value, int kind, Throwable cause) {
+        String expected;
+        switch (kind) {
+            case INT:
+                expected = "an int";
+                break;
+            case LONG:
+                expected = "a long";
+                break;
+            case BOOLEAN:
+                expected = "a boolean";
+                break;
+            case DURATION:
+                expected = "a duration such as 250ms or 5s";
+                break;
+            default:
+                expected = "a size such as 512KB or 64MB";
+                break;
+        }
+        PropertyLayer layer = snapshot.layerAt(slot);
+        return new InvalidPropertyValueException(snapshot.keyAt(slot), value, expected,
+                (layer == null) ? null : layer.toString(), cause);
+    }
+
+    static boolean parseBoolean(String value) {
+        if ("true".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value) || "on".equalsIgnoreCase(value)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(value) || "no".equalsIgnoreCase(value) || "off".equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Not a boolean : " + value);
+    }
+
+    static long parseDurationNanos(String value) {
+        int split = unitStart(value);
+        long amount = Long.parseLong(value.substring(0, split).trim());
+        String unit = value.substring(split).trim().toLowerCase();
+
+        TimeUnit timeUnit;
+        if (unit.length() == 0 || unit.equals("ms")) {
+            timeUnit = TimeUnit.MILLISECONDS;
+        } else if (unit.equals("ns")) {
+            timeUnit = TimeUnit.NANOSECONDS;
+        } else if (unit.equals("us")) {
+            timeUnit = TimeUnit.MICROSECONDS;
+        } else if (unit.equals("s")) {
+            timeUnit = TimeUnit.SECONDS;
+        } else if (unit.equals("m")) {
+            timeUnit = TimeUnit.MINUTES;
+        } else if (unit.equals("h")) {
+            timeUnit = TimeUnit.HOURS;
+        } else if (unit.equals("d")) {
+            timeUnit = TimeUnit.DAYS;
+        } else {
+            throw new IllegalArgumentException("Unknown duration unit : " + unit);
+        }
+        return Math.multiplyExact(amount, timeUnit.toNanos(1));
+    }
+
+    static long parseBytes(String value) {
+        int split = unitStart(value);
+        long amount = Long.parseLong(value.substring(0, split).trim());
+        String unit = value.substring(split).trim().toLowerCase();
+        if (unit.endsWith("ib")) {
+            unit = unit.substring(0, unit.length() - 2);
+        } else if (unit.endsWith("b")) {
+            unit = unit.substring(0, unit.length() - 1);
+        }
+
+        int shift;
+        if (unit.length() == 0) {
+            shift = 0;
+        } else if (unit.equals("k")) {
+            shift = 10;
+        } else if (unit.equals("m")) {
+            shift = 20;
+        } else if (unit.equals("g")) {
+            shift = 30;
+        } else if (unit.equals("t")) {
+            shift = 40;
+        } else {
+            throw new IllegalArgumentException("Unknown size unit : " + unit);
+        }
+        return Math.multiplyExact(amount, 1L << shift);
+    }
+
+    private static int unitStart(String value) {
+        int i = 0;
+        if (i < value.length() && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        while (i < value.length() && Character.isDigit(value.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -1,5 +1,9 @@
 package com.akoolla.commons.config;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * UnmatchedPropertyException.
  * 
@@ -10,23 +14,45 @@ public class UnmatchedPropertyException extends RuntimeException {
 
     private static final long serialVersionUID = 1L;
 
+    private final List<String> unmatchedKeys;
+
     public UnmatchedPropertyException() {
         super();
+        this.unmatchedKeys = Collections.emptyList();
 
     }
 
     public UnmatchedPropertyException(String message, Throwable cause) {
         super(message, cause);
+        this.unmatchedKeys = Collections.emptyList();
 
     }
 
     public UnmatchedPropertyException(String message) {
         super(message);
+        this.unmatchedKeys = Collections.emptyList();
 
     }
 
     public UnmatchedPropertyException(Throwable cause) {
         super(cause);
+        this.unmatchedKeys = Collections.emptyList();
+
+    }
+
+    /**
+     * @param message The description of the failure
+     * @param unmatchedKeys Every key that had nothing to override
+     */
+    public UnmatchedPropertyException(String message, List<String> unmatchedKeys) {
+        super(message);
+        this.unmatchedKeys = Collections.unmodifiableList(new ArrayList<String>(unmatchedKeys));
+    }
 
+    /**
+     * @return Every key that had nothing to override, empty if the keys were not collected
+     */
+    public List<String> getUnmatchedKeys() {
+        return unmatchedKeys;
     }
 }
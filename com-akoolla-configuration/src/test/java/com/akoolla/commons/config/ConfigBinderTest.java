@@ -0,0 +1,184 @@
+package com.akoolla.commons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * ConfigBinderTest.
+ *
+ * <p> Binds the keys under a prefix onto interfaces and classes, checking the values each property is given, that
+ * nested types are bound to the keys under their own prefix, that a key under the prefix with no property fails the
+ * bind, and that binding a snapshot again gives the object bound the first time. </p>
+ */
+public class ConfigBinderTest {
+
+    enum Mode {
+        READ_WRITE, READ_ONLY
+    }
+
+    interface Pool {
+
+        int getMin();
+
+        long getMax();
+
+        @ConfigKey(value = "idle-timeout", defaultValue = "30s")
+        Duration getIdleTimeout();
+    }
+
+    interface Database {
+
+        String getUrl();
+
+        boolean isReadOnly();
+
+        double getWeight();
+
+        Mode mode();
+
+        Pool getPool();
+    }
+
+    public static class Server {
+
+        private String host = "localhost";
+
+        private int port;
+
+        private Integer backlog;
+
+        private Pool pool;
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        @ConfigKey("accept.backlog")
+        public void setBacklog(Integer backlog) {
+            this.backlog = backlog;
+        }
+
+        public void setPool(Pool pool) {
+            this.pool = pool;
+        }
+    }
+
+    @Test
+    public void interfaceTarget() {
+        ConfigSnapshot snapshot = ConfigSnapshot.of(map("db.primary.url", "jdbc:h2:mem:primary",
+                "db.primary.readOnly", "yes", "db.primary.weight", "0.5", "db.primary.mode", "read_only",
+                "db.primary.pool.min", "2", "db.primary.pool.max", "5000000000", "db.other", "ignored"));
+
+        Database database = ConfigBinder.bind(snapshot, "db.primary.", Database.class);
+
+        assertEquals("jdbc:h2:mem:primary", database.getUrl());
+        assertTrue(database.isReadOnly());
+        assertEquals(0.5, database.getWeight(), 0);
+        assertEquals(Mode.READ_ONLY, database.mode());
+        assertEquals("Database[db.primary.*]", database.toString());
+        assertFalse(Proxy.isProxyClass(database.getClass()));
+    }
+
+    @Test
+    public void nestedPrefixes() {
+        ConfigSnapshot snapshot = ConfigSnapshot.of(map("db.primary.url", "jdbc:h2:mem:primary",
+                "db.primary.readOnly", "false", "db.primary.weight", "1", "db.primary.mode", "READ_WRITE",
+                "db.primary.pool.min", "2", "db.primary.pool.max", "5000000000", "db.primary.pool.idle-timeout",
+                "250ms"));
+
+        Pool pool = ConfigBinder.bind(snapshot, "db.primary.", Database.class).getPool();
+
+        assertEquals(2, pool.getMin());
+        assertEquals(5000000000L, pool.getMax());
+        assertEquals(Duration.ofMillis(250), pool.getIdleTimeout());
+        assertEquals("Pool[db.primary.pool.*]", pool.toString());
+        assertEquals(Duration.ofSeconds(30), ConfigBinder.bind(ConfigSnapshot.of(map("min", "1", "max", "2")), "",
+                Pool.class).getIdleTimeout());
+    }
+
+    @Test
+    public void classTarget() {
+        ConfigSnapshot snapshot = ConfigSnapshot.of(map("server.port", " 8080", "server.accept.backlog", "50",
+                "server.pool.min", "1", "server.pool.max", "4"));
+
+        Server server = ConfigBinder.bind(snapshot, "server.", Server.class);
+
+        assertEquals("localhost", server.host);
+        assertEquals(8080, server.port);
+        assertEquals(Integer.valueOf(50), server.backlog);
+        assertEquals(4L, server.pool.getMax());
+        assertEquals(Duration.ofSeconds(30), server.pool.getIdleTimeout());
+    }
+
+    @Test
+    public void unknownKeyUnderPrefixFails() {
+        ConfigSnapshot snapshot = ConfigSnapshot.of(map("server.port", "8080", "server.prot", "8081",
+                "server.pool.min", "1", "server.pool.max", "4", "server.pool.maximum", "5"));
+
+        try {
+            ConfigBinder.bind(snapshot, "server.", Server.class);
+            fail("Bound a misspelt key");
+        } catch (ConfigBindingException e) {
+            assertEquals(Arrays.asList("server.prot", "server.pool.maximum"), e.getUnknownKeys());
+            assertTrue(e.getMissingKeys().isEmpty());
+        }
+    }
+
+    @Test
+    public void missingInterfaceKeyFails() {
+        try {
+            ConfigBinder.bind(ConfigSnapshot.of(map("min", "1")), "", Pool.class);
+            fail("Bound an interface without all its keys");
+        } catch (ConfigBindingException e) {
+            assertEquals(Arrays.asList("max"), e.getMissingKeys());
+        }
+    }
+
+    @Test
+    public void invalidValueNamesKey() {
+        try {
+            ConfigBinder.bind(ConfigSnapshot.of(map("pool.min", "one", "pool.max", "2")), "pool.", Pool.class);
+            fail("Bound a value that isn't an int");
+        } catch (InvalidPropertyValueException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("pool.min"));
+        }
+    }
+
+    @Test
+    public void sameInstanceForRepeatBinds() {
+        Map<String, String> values = map("server.port", "8080", "server.pool.min", "1", "server.pool.max", "4");
+        ConfigSnapshot snapshot = ConfigSnapshot.of(values);
+
+        Server server = ConfigBinder.bind(snapshot, "server.", Server.class);
+        Pool pool = ConfigBinder.bind(snapshot, "server.pool.", Pool.class);
+
+        assertSame(server, ConfigBinder.bind(snapshot, "server.", Server.class));
+        assertSame(server, snapshot.subset("server.").bind(Server.class));
+        assertSame(pool, ConfigBinder.bind(snapshot, "server.pool.", Pool.class));
+        assertNotSame(server, ConfigBinder.bind(ConfigSnapshot.of(values), "server.", Server.class));
+    }
+
+    private static Map<String, String> map(String... keysAndValues) {
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,179 @@
+package com.akoolla.commons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * ConfigChangeDispatcherTest.
+ *
+ * <p> Publishes snapshots to a dispatcher whose dispatches are queued and run on the test's own thread, checking which
+ * subscriptions an exact key and a prefix match, that a listener is told about a key once however many of its
+ * subscriptions match it, that publishes made while a dispatch is pending are coalesced into it and leave out keys
+ * changed back, and that cancelling subscriptions prunes the trie they were kept in. </p>
+ */
+public class ConfigChangeDispatcherTest {
+
+    private QueuedExecutor executor;
+
+    private ConfigChangeDispatcher dispatcher;
+
+    private ConfigSnapshot current;
+
+    @Before
+    public void setUp() {
+        executor = new QueuedExecutor();
+        dispatcher = new ConfigChangeDispatcher(executor);
+        current = ConfigSnapshot.of(map("db.url", "jdbc:one", "db.pool.max", "10", "dbx", "1", "other", "1"));
+    }
+
+    @Test
+    public void exactAndPrefixMatching() {
+        RecordingListener exact = new RecordingListener();
+        RecordingListener shorter = new RecordingListener();
+        RecordingListener prefix = new RecordingListener();
+        RecordingListener everything = new RecordingListener();
+        dispatcher.subscribe("db.url", false, exact);
+        dispatcher.subscribe("db.ur", false, shorter);
+        dispatcher.subscribe("db.", true, prefix);
+        dispatcher.subscribe("", true, everything);
+
+        publish(map("db.url", "jdbc:two", "db.pool.max", "20", "dbx", "2", "other", "2"));
+        executor.runPending();
+
+        assertEquals("[[db.url: jdbc:one -> jdbc:two]]", exact.calls.toString());
+        assertEquals("[]", shorter.calls.toString());
+        assertEquals("[[db.pool.max: 10 -> 20, db.url: jdbc:one -> jdbc:two]]", prefix.calls.toString());
+        assertEquals(1, everything.calls.size());
+        assertEquals(4, everything.calls.get(0).size());
+    }
+
+    @Test
+    public void listenerToldOncePerKey() {
+        RecordingListener listener = new RecordingListener();
+        dispatcher.subscribe("db.url", false, listener);
+        dispatcher.subscribe("db.", true, listener);
+
+        publish(map("db.url", "jdbc:two", "db.pool.max", "10", "dbx", "1", "other", "1"));
+        executor.runPending();
+
+        assertEquals("[[db.url: jdbc:one -> jdbc:two]]", listener.calls.toString());
+    }
+
+    @Test
+    public void publishesCoalesce() {
+        RecordingListener listener = new RecordingListener();
+        dispatcher.subscribe("db.url", false, listener);
+
+        publish(map("db.url", "jdbc:two", "db.pool.max", "10", "dbx", "1", "other", "1"));
+        publish(map("db.url", "jdbc:three", "db.pool.max", "10", "dbx", "1", "other", "1"));
+        assertEquals(1, executor.tasks.size());
+        executor.runPending();
+
+        assertEquals("[[db.url: jdbc:one -> jdbc:three]]", listener.calls.toString());
+    }
+
+    @Test
+    public void keyChangedBackIsNotReported() {
+        RecordingListener listener = new RecordingListener();
+        dispatcher.subscribe("db.", true, listener);
+
+        publish(map("db.url", "jdbc:two", "db.pool.max", "20", "dbx", "1", "other", "1"));
+        publish(map("db.url", "jdbc:one", "db.pool.max", "30", "dbx", "1", "other", "1"));
+        executor.runPending();
+
+        assertEquals("[[db.pool.max: 10 -> 30]]", listener.calls.toString());
+
+        publish(map("db.url", "jdbc:two", "db.pool.max", "30", "dbx", "1", "other", "1"));
+        publish(map("db.url", "jdbc:one", "db.pool.max", "30", "dbx", "1", "other", "1"));
+        executor.runPending();
+
+        assertEquals(1, listener.calls.size());
+    }
+
+    @Test
+    public void cancelPrunesTrie() {
+        RecordingListener listener = new RecordingListener();
+        ConfigSubscription max = dispatcher.subscribe("db.pool.max", false, listener);
+        ConfigSubscription pool = dispatcher.subscribe("db.pool.", true, listener);
+        ConfigSubscription url = dispatcher.subscribe("db.url", false, listener);
+        SubscriptionTrie trie = dispatcher.getSubscriptions();
+        assertEquals(3, trie.size());
+        assertEquals("db.pool.max".length() + "url".length(), trie.nodes());
+
+        pool.cancel();
+        assertEquals("db.pool.max".length() + "url".length(), trie.nodes());
+        max.cancel();
+        assertEquals("db.url".length(), trie.nodes());
+        max.cancel();
+        assertEquals(1, trie.size());
+        url.cancel();
+        assertEquals(0, trie.nodes());
+        assertTrue(trie.isEmpty());
+        assertTrue(url.isCancelled());
+
+        publish(map("db.url", "jdbc:two", "db.pool.max", "20", "dbx", "1", "other", "1"));
+        executor.runPending();
+
+        assertTrue(executor.tasks.isEmpty());
+        assertEquals("[]", listener.calls.toString());
+    }
+
+    private void publish(Map<String, String> values) {
+        ConfigSnapshot previous = current;
+        current = ConfigSnapshot.of(values);
+        dispatcher.published(previous, current, ConfigSnapshot.diff(previous, current));
+    }
+
+    private static Map<String, String> map(String... keysAndValues) {
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    /**
+     * Queues dispatches for the test to run on its own thread.
+     */
+    private static final class QueuedExecutor implements Executor {
+
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runPending() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    /**
+     * Records the changes of each call, sorted as the order of the keys of a snapshot's diff isn't defined.
+     */
+    private static final class RecordingListener implements ConfigKeyListener {
+
+        private final List<List<String>> calls = new ArrayList<List<String>>();
+
+        public void keysChanged(List<ConfigChange> changes) {
+            List<String> call = new ArrayList<String>();
+            for (ConfigChange change : changes) {
+                call.add(change.toString());
+            }
+            Collections.sort(call);
+            calls.add(call);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.akoolla.commons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * IncrementalMergeTest.
+ *
+ * <p> Edits the layers of a merged configuration at random, from a fixed seed, and checks merging just the edited
+ * layers again gives what merging every layer from scratch gives: the same values, layers and lines, the same keys
+ * reported as changed, and an {@link UnmatchedPropertyException} exactly when the full strict merge throws one. Keys
+ * are drawn from a small set so removals often move back keys that probed past the removed one. </p>
+ */
+public class IncrementalMergeTest {
+
+    private static final ConfigLayer[] LAYERS = ConfigLayer.values();
+
+    private static final int CONFIGURATIONS = 400;
+
+    private static final int EDITS = 5;
+
+    @Test
+    public void strictMatchesFullMerge() {
+        check(new Random(0x1dcL), true);
+    }
+
+    @Test
+    public void lenientMatchesFullMerge() {
+        check(new Random(0x2dcL), false);
+    }
+
+    @Test
+    public void unchangedLayersReturnPrevious() {
+        List<Map<String, String>> maps = new ArrayList<Map<String, String>>();
+        maps.add(map("a", "1", "b", "2"));
+        maps.add(map("a", "3"));
+        ConfigSnapshot merged = LayeredMerge.merge(layers(maps), true);
+
+        ConfigSnapshot[] replacements = new ConfigSnapshot[2];
+        replacements[1] = entries(map("a", "3"));
+        IncrementalMerge.Result result = IncrementalMerge.merge(merged, replacements, true);
+
+        assertSame(merged, result.getSnapshot());
+        assertEquals(0, result.getChangedKeys().size());
+    }
+
+    @Test
+    public void shiftedLinesUpdateProvenance() {
+        List<Map<String, String>> maps = new ArrayList<Map<String, String>>();
+        maps.add(map("a", "1", "b", "2", "c", "3"));
+        maps.add(map("a", "4", "b", "5"));
+        List<PropertyLayer> layers = layers(maps);
+        ConfigSnapshot merged = LayeredMerge.merge(layers, true);
+        assertEquals(1, merged.lineAt(merged.indexOf("a")));
+
+        // the same values, each a line further down, as after adding a comment at the top of the file
+        ConfigSnapshot.Builder shifted = new ConfigSnapshot.Builder(2, null, true);
+        shifted.put("a", "4", 0, 2);
+        shifted.put("b", "5", 0, 3);
+        ConfigSnapshot[] replacements = new ConfigSnapshot[2];
+        replacements[1] = shifted.build();
+        IncrementalMerge.Result result = IncrementalMerge.merge(merged, replacements, true);
+
+        ConfigSnapshot remerged = result.getSnapshot();
+        assertEquals(0, result.getChangedKeys().size());
+        assertEquals(2, remerged.lineAt(remerged.indexOf("a")));
+        assertEquals(3, remerged.lineAt(remerged.indexOf("b")));
+        assertEquals(3, remerged.lineAt(remerged.indexOf("c")));
+        assertEquals("4", remerged.get("a"));
+        assertEquals("profile file layer1 line 2", ConfigProvenance.origin(remerged, "a"));
+        assertEquals("profile file layer1 line 1", ConfigProvenance.origin(merged, "a"));
+    }
+
+    private static void check(Random random, boolean strict) {
+        for (int configuration = 0; configuration < CONFIGURATIONS; configuration++) {
+            int keySpace = 1 + random.nextInt((configuration % 4 == 0) ? 2000 : 60);
+            List<Map<String, String>> maps = randomLayers(random, keySpace);
+            ConfigSnapshot merged = LayeredMerge.merge(layers(maps), strict);
+
+            for (int edit = 0; edit < EDITS; edit++) {
+                int which = random.nextInt(maps.size());
+                List<Map<String, String>> next = new ArrayList<Map<String, String>>(maps);
+                next.set(which, edited(random, maps, which, keySpace));
+
+                ConfigSnapshot expected;
+                try {
+                    expected = LayeredMerge.merge(layers(next), strict);
+                } catch (UnmatchedPropertyException e) {
+                    expected = null;
+                }
+
+                ConfigSnapshot[] replacements = new ConfigSnapshot[maps.size()];
+                replacements[which] = entries(next.get(which));
+                Map<String, String> before = values(merged);
+                IncrementalMerge.Result result;
+                try {
+                    result = IncrementalMerge.merge(merged, replacements, strict);
+                } catch (UnmatchedPropertyException e) {
+                    assertNull("Incremental merge failed where a full merge didn't : " + e.getMessage(), expected);
+                    assertEquals("The previous snapshot changed", before, values(merged));
+                    continue;
+                }
+                if (expected == null) {
+                    fail("Incremental merge succeeded where a full merge failed, editing layer " + which + " of "
+                            + next);
+                }
+
+                assertSameMerge(expected, result.getSnapshot());
+                assertEquals("The previous snapshot changed", before, values(merged));
+                assertEquals(changedKeys(before, values(result.getSnapshot())), result.getChangedKeys());
+
+                merged = result.getSnapshot();
+                maps = next;
+            }
+        }
+    }
+
+    private static void assertSameMerge(ConfigSnapshot expected, ConfigSnapshot actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(values(expected), values(actual));
+        for (String key : expected.keys()) {
+            int expectedSlot = expected.indexOf(key);
+            int actualSlot = actual.indexOf(key);
+            assertEquals(key, expected.layerAt(expectedSlot).getLayer(), actual.layerAt(actualSlot).getLayer());
+            assertEquals(key, expected.lineAt(expectedSlot), actual.lineAt(actualSlot));
+        }
+        assertEquals(expected.keys().length, actual.keys().length);
+        assertEquals(expected.subset("").size(), actual.subset("").size());
+    }
+
+    /**
+     * @return Between one and four layers, every key of a layer above the lowest in the lowest most of the time
+     */
+    private static List<Map<String, String>> randomLayers(Random random, int keySpace) {
+        List<Map<String, String>> maps = new ArrayList<Map<String, String>>();
+        Map<String, String> lowest = new HashMap<String, String>();
+        for (int i = random.nextInt(keySpace + 1); i > 0; i--) {
+            lowest.put(key(random, keySpace), "base" + random.nextInt(9));
+        }
+        maps.add(lowest);
+
+        List<String> lowestKeys = new ArrayList<String>(lowest.keySet());
+        for (int layer = 1 + random.nextInt(4); layer > 1; layer--) {
+            Map<String, String> map = new HashMap<String, String>();
+            for (int i = random.nextInt(Math.min(40, lowestKeys.size()) + 1); i > 0; i--) {
+                map.put(lowestKeys.get(random.nextInt(lowestKeys.size())), "layer" + maps.size() + random.nextInt(9));
+            }
+            maps.add(map);
+        }
+        return maps;
+    }
+
+    /**
+     * @return The given layer with keys removed, values changed and keys added, now and then keys no lower layer has
+     */
+    private static Map<String, String> edited(Random random, List<Map<String, String>> maps, int which,
+                                              int keySpace) {
+        Map<String, String> map = new HashMap<String, String>(maps.get(which));
+        List<String> keys = new ArrayList<String>(map.keySet());
+        for (int i = random.nextInt(20); i > 0 && !keys.isEmpty(); i--) {
+            map.remove(keys.remove(random.nextInt(keys.size())));
+        }
+        for (int i = random.nextInt(5); i > 0 && !keys.isEmpty(); i--) {
+            map.put(keys.get(random.nextInt(keys.size())), "changed" + random.nextInt(9));
+        }
+        List<String> lowestKeys = new ArrayList<String>(maps.get(0).keySet());
+        for (int i = random.nextInt(10); i > 0; i--) {
+            if ((which == 0) || lowestKeys.isEmpty() || (random.nextInt(8) == 0)) {
+                map.put(key(random, keySpace), "added" + random.nextInt(9));
+            } else {
+                map.put(lowestKeys.get(random.nextInt(lowestKeys.size())), "added" + random.nextInt(9));
+            }
+        }
+        return map;
+    }
+
+    private static String key(Random random, int keySpace) {
+        return "k" + random.nextInt(keySpace);
+    }
+
+    private static List<PropertyLayer> layers(List<Map<String, String>> maps) {
+        List<PropertyLayer> layers = new ArrayList<PropertyLayer>();
+        for (int i = 0; i < maps.size(); i++) {
+            layers.add(new PropertyLayer(LAYERS[i], "layer" + i, entries(maps.get(i))));
+        }
+        return layers;
+    }
+
+    /**
+     * @return The map as a layer's table, each key on a line of its own in sorted order
+     */
+    private static ConfigSnapshot entries(Map<String, String> map) {
+        String[] keys = map.keySet().toArray(new String[map.size()]);
+        Arrays.sort(keys);
+        ConfigSnapshot.Builder builder = new ConfigSnapshot.Builder(keys.length, null, true);
+        for (int i = 0; i < keys.length; i++) {
+            builder.put(keys[i], map.get(keys[i]), 0, i + 1);
+        }
+        return builder.build();
+    }
+
+    private static Map<String, String> values(ConfigSnapshot snapshot) {
+        Map<String, String> values = new HashMap<String, String>();
+        for (String key : snapshot.keys()) {
+            values.put(key, snapshot.get(key));
+        }
+        return values;
+    }
+
+    private static Set<String> changedKeys(Map<String, String> before, Map<String, String> after) {
+        Set<String> changed = new HashSet<String>();
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            if (!entry.getValue().equals(after.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String key : after.keySet()) {
+            if (!before.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    private static Map<String, String> map(String... keysAndValues) {
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,146 @@
+package com.akoolla.commons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.akoolla.commons.config.EnvironmentSettings.Platform;
+import com.akoolla.commons.config.EnvironmentSettings.Profile;
+
+/**
+ * LazyConfigTest.
+ *
+ * <p> Looks keys up in a tree of properties files with app.datadir overrides, checking which files a lookup reads:
+ * finding the data directory scans the files below it for app.datadir without loading them, and a key the data
+ * directory's environment specific file supplies leaves every other file unread. </p>
+ */
+public class LazyConfigTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File parent;
+
+    private File dataDir;
+
+    @Before
+    public void setUp() {
+        Environment.setOverride(new EnvironmentSettings(Platform.INT, Profile.MEDIUM, "int"));
+    }
+
+    @After
+    public void tearDown() {
+        Environment.setOverride(null);
+    }
+
+    @Test
+    public void dataDirLookupReadsNoOtherFile() throws IOException {
+        createTree();
+        environment("app.datadir=" + path(dataDir) + "\nname=environment\n");
+        LazyConfig config = lazy();
+
+        assertEquals("override.example.com", config.get("host"));
+        assertEquals(ConfigLayer.DATA_DIR_ENVIRONMENT, config.getLayer("host"));
+
+        assertTrue(config.isLoaded(ConfigLayer.DATA_DIR_ENVIRONMENT));
+        assertFalse(config.isLoaded(ConfigLayer.DATA_DIR_GLOBAL));
+        assertFalse(config.isLoaded(ConfigLayer.ENVIRONMENT));
+        assertFalse(config.isLoaded(ConfigLayer.PROFILE));
+        assertFalse(config.isLoaded(ConfigLayer.GLOBAL));
+    }
+
+    @Test
+    public void dataDirSetInGlobalFileLoadsNoBaseFile() throws IOException {
+        createTree();
+        write(new File(parent, PropertiesMuncher.getGlobalProperties()),
+                "app.datadir=" + path(dataDir) + "\nhost=localhost\nport=8080\nname=global\n");
+        environment("name=environment\n");
+        LazyConfig config = lazy();
+
+        assertEquals("override.example.com", config.get("host"));
+        assertFalse(config.isLoaded(ConfigLayer.GLOBAL));
+        assertFalse(config.isLoaded(ConfigLayer.PROFILE));
+        assertFalse(config.isLoaded(ConfigLayer.ENVIRONMENT));
+
+        assertEquals("9090", config.get("port"));
+        assertTrue(config.isLoaded(ConfigLayer.PROFILE));
+        assertFalse(config.isLoaded(ConfigLayer.GLOBAL));
+    }
+
+    @Test
+    public void lookupsMatchMunch() throws IOException {
+        createTree();
+        environment("app.datadir=" + path(dataDir) + "\nname=environment\n");
+        LazyConfig config = lazy();
+
+        assertEquals("environment", config.get("name"));
+        assertEquals("9090", config.get("port"));
+        assertEquals(ConfigLayer.ENVIRONMENT, config.getLayer("name"));
+        assertNull(config.get("missing"));
+
+        ConfigSnapshot merged = config.validate();
+        assertEquals("override.example.com", merged.get("host"));
+        assertEquals("environment", merged.get("name"));
+        assertEquals("9090", merged.get("port"));
+    }
+
+    @Test
+    public void missingDataDirIsIgnored() throws IOException {
+        createTree();
+        environment("app.datadir=" + path(new File(folder.getRoot(), "nowhere")) + "\n");
+        LazyConfig config = lazy();
+
+        assertEquals("localhost", config.get("host"));
+        assertEquals(ConfigLayer.GLOBAL, config.getLayer("host"));
+    }
+
+    /**
+     * Writes the tree of files, from the test itself since JUnit 4.7 applies rules, so creates the folder, after
+     * running the befores.
+     */
+    private void createTree() throws IOException {
+        parent = folder.newFolder("parent");
+        dataDir = folder.newFolder("datadir");
+
+        write(new File(parent, PropertiesMuncher.getGlobalProperties()),
+                "app.datadir=\nhost=localhost\nport=8080\nname=global\n");
+        write(new File(parent, PropertiesMuncher.getProfilesDir() + "medium.properties"), "port=9090\n");
+        write(new File(dataDir, PropertiesMuncher.getGlobalPropertiesDir() + "int.properties"),
+                "host=override.example.com\n");
+    }
+
+    private LazyConfig lazy() {
+        return PropertiesMuncher.munchLazy(parent.getPath(), false, PropertiesMuncher.getGlobalProperties(),
+                PropertiesMuncher.getGlobalPropertiesDir());
+    }
+
+    private void environment(String content) throws IOException {
+        write(new File(parent, PropertiesMuncher.getGlobalPropertiesDir() + "int.properties"), content);
+    }
+
+    private static String path(File file) {
+        return file.getPath().replace('\\', '/');
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("ISO-8859-1"));
+        } finally {
+            out.close();
+        }
+    }
+}
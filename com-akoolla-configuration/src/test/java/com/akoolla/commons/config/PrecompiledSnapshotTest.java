@@ -0,0 +1,142 @@
+package com.akoolla.commons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.akoolla.commons.config.EnvironmentSettings.Platform;
+import com.akoolla.commons.config.EnvironmentSettings.Profile;
+
+/**
+ * PrecompiledSnapshotTest.
+ *
+ * <p> Writes the snapshot of a munch of a tree of properties files and reads it back, checking every value, layer and
+ * line survives, and that once one of the files changes the snapshot is turned down on its hash and the munch parses
+ * the files instead. </p>
+ */
+public class PrecompiledSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File parent;
+
+    private File output;
+
+    @Before
+    public void setUp() {
+        Environment.setOverride(new EnvironmentSettings(Platform.INT, Profile.MEDIUM, "int"));
+    }
+
+    @After
+    public void tearDown() {
+        PropertiesMuncher.setPrecompiledSnapshot(null);
+        Environment.setOverride(null);
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        createTree();
+        ConfigSnapshot written = PrecompiledSnapshot.write(output, parent.getPath(), false,
+                PropertiesMuncher.getGlobalProperties(), PropertiesMuncher.getGlobalPropertiesDir());
+
+        ConfigSnapshot read = PrecompiledSnapshot.read(output, key());
+
+        assertNotNull(read);
+        assertEquals(written.size(), read.size());
+        for (String key : written.keys()) {
+            int expected = written.indexOf(key);
+            int actual = read.indexOf(key);
+            assertEquals(key, written.valueAt(expected), read.valueAt(actual));
+            assertEquals(key, written.lineAt(expected), read.lineAt(actual));
+            assertEquals(key, written.layerAt(expected).getLayer(), read.layerAt(actual).getLayer());
+            assertEquals(key, written.layerAt(expected).getSource(), read.layerAt(actual).getSource());
+        }
+        assertEquals("int.example.com", read.get("host"));
+        assertEquals(3, read.lineAt(read.indexOf("host")));
+        assertEquals(ConfigLayer.PROFILE, read.layerAt(read.indexOf("port")).getLayer());
+        assertEquals("caf\u00e9", read.get("name"));
+        assertEquals("", read.get("empty"));
+        for (PropertyLayer layer : read.layers()) {
+            assertFalse(layer.isLoaded());
+        }
+    }
+
+    @Test
+    public void changedFileFallsBackToParsing() throws IOException {
+        createTree();
+        PrecompiledSnapshot.write(output, parent.getPath(), false, PropertiesMuncher.getGlobalProperties(),
+                PropertiesMuncher.getGlobalPropertiesDir());
+        PropertiesMuncher.setPrecompiledSnapshot(output);
+
+        ConfigSnapshot served = munch();
+        assertFalse("Expected the precompiled snapshot", served.layers()[0].isLoaded());
+
+        write(new File(parent, PropertiesMuncher.getGlobalPropertiesDir() + "int.properties"),
+                "# int\n\nhost=changed.example.com\n");
+
+        assertNull(PrecompiledSnapshot.read(output, key()));
+        ConfigSnapshot parsed = munch();
+        assertTrue("Expected the files to be parsed", parsed.layers()[0].isLoaded());
+        assertEquals("changed.example.com", parsed.get("host"));
+    }
+
+    @Test
+    public void otherEnvironmentIsIgnored() throws IOException {
+        createTree();
+        PrecompiledSnapshot.write(output, parent.getPath(), false, PropertiesMuncher.getGlobalProperties(),
+                PropertiesMuncher.getGlobalPropertiesDir());
+
+        Environment.setOverride(new EnvironmentSettings(Platform.PROD, Profile.MEDIUM, "prod"));
+
+        assertNull(PrecompiledSnapshot.read(output, key()));
+    }
+
+    /**
+     * Writes the tree of files, from the test itself since JUnit 4.7 applies rules, so creates the folder, after
+     * running the befores.
+     */
+    private void createTree() throws IOException {
+        parent = folder.newFolder("parent");
+        output = new File(folder.getRoot(), "snapshot.bin");
+
+        write(new File(parent, PropertiesMuncher.getGlobalProperties()),
+                "# global\nhost=localhost\nport=8080\nname=caf\\u00e9\nempty=\n");
+        write(new File(parent, PropertiesMuncher.getProfilesDir() + "medium.properties"), "\nport=9090\n");
+        write(new File(parent, PropertiesMuncher.getGlobalPropertiesDir() + "int.properties"),
+                "# int\n\nhost=int.example.com\n");
+    }
+
+    private ConfigSnapshot munch() {
+        return PropertiesMuncher.munchUncached(parent.getPath(), false, PropertiesMuncher.getGlobalProperties(),
+                PropertiesMuncher.getGlobalPropertiesDir(), true);
+    }
+
+    private PropertiesMuncherCache.Key key() {
+        return PropertiesMuncher.cacheKey(parent.getPath(), false, PropertiesMuncher.getGlobalProperties(),
+                PropertiesMuncher.getGlobalPropertiesDir());
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("ISO-8859-1"));
+        } finally {
+            out.close();
+        }
+    }
+}
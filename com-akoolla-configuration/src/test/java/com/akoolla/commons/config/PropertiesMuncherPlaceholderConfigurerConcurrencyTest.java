@@ -0,0 +1,129 @@
+package com.akoolla.commons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * PropertiesMuncherPlaceholderConfigurerConcurrencyTest.
+ *
+ * <p> Releases many threads at once into a configurer that has not loaded yet and checks the properties are munched
+ * exactly once, every thread seeing the one load. The munch is counted by a {@link PropertiesMuncher} that stands in
+ * for the files and takes long enough that every thread arrives while it runs. </p>
+ */
+public class PropertiesMuncherPlaceholderConfigurerConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ROUNDS = 20;
+
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void resolvePlaceholderMunchesOnce() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            CountingMuncher muncher = new CountingMuncher();
+            final PropertiesMuncherPlaceholderConfigurer configurer = configurer(muncher);
+            final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+
+            List<String> values = runAll(new Callable<String>() {
+
+                public String call() throws Exception {
+                    barrier.await();
+                    return configurer.resolvePlaceholder("db.url", new Properties());
+                }
+            });
+
+            assertEquals(1, muncher.munches.get());
+            assertEquals(Collections.nCopies(THREADS, "jdbc:test"), values);
+        }
+    }
+
+    @Test
+    public void loadSnapshotHolderMunchesOnce() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            CountingMuncher muncher = new CountingMuncher();
+            final PropertiesMuncherPlaceholderConfigurer configurer = configurer(muncher);
+            final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+
+            List<ConfigSnapshotHolder> holders = runAll(new Callable<ConfigSnapshotHolder>() {
+
+                public ConfigSnapshotHolder call() throws Exception {
+                    barrier.await();
+                    return configurer.loadSnapshotHolder();
+                }
+            });
+
+            assertEquals(1, muncher.munches.get());
+            for (ConfigSnapshotHolder holder : holders) {
+                assertSame(configurer.getSnapshotHolder(), holder);
+            }
+        }
+    }
+
+    private static PropertiesMuncherPlaceholderConfigurer configurer(PropertiesMuncher muncher) {
+        PropertiesMuncherPlaceholderConfigurer configurer = new PropertiesMuncherPlaceholderConfigurer();
+        configurer.setPropertiesMuncher(muncher);
+        return configurer;
+    }
+
+    private <T> List<T> runAll(Callable<T> task) throws Exception {
+        List<Future<T>> futures = new ArrayList<Future<T>>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(pool.submit(task));
+        }
+        List<T> results = new ArrayList<T>();
+        for (Future<T> future : futures) {
+            results.add(future.get(30, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    /**
+     * Counts its munches rather than reading any files.
+     */
+    private static final class CountingMuncher extends PropertiesMuncher {
+
+        private final AtomicInteger munches = new AtomicInteger();
+
+        CountingMuncher() {
+            setParentPackage("test");
+        }
+
+        @Override
+        public ConfigSnapshot munchClassPathBasedSnapshot() {
+            munches.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ConfigSnapshot.of(Collections.singletonMap("db.url", "jdbc:test"));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.akoolla.commons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * PropertiesParserConformanceTest.
+ *
+ * <p> Checks {@link PropertiesParser} reads awkward inputs exactly as {@link Properties#load(java.io.InputStream)}
+ * does, from a buffer, a stream, a small file read into the pooled buffer and a file large enough to be mapped. </p>
+ */
+public class PropertiesParserConformanceTest {
+
+    /** Comfortably past the size from which files are mapped rather than read. */
+    private static final int MAPPED_SIZE = 96 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void separators() throws IOException {
+        check("a=1\nb = 2\nc:3\nd 4\ne\tf\n==\n::x\nempty=\nnovalue\n");
+    }
+
+    @Test
+    public void comments() throws IOException {
+        check("# comment\n! comment\n  #not=a comment? no\nk=v\n  ! indented comment\n");
+    }
+
+    @Test
+    public void escapes() throws IOException {
+        check("key\\ with\\ spaces = value\na=b\\\\\nc=d\nt=\\t\\n\\r\\f\\q\ncolon\\:key\\=x = y\n");
+    }
+
+    @Test
+    public void unicodeEscapes() throws IOException {
+        check("u=\\u0041\\u00e9\\u20ac\n\\u006b\\u0065\\u0079=v\n\u00ff=\u00e9\n");
+    }
+
+    @Test
+    public void lineContinuations() throws IOException {
+        check("k = multi \\\n    line \\\n\tvalue\nlast=one\n");
+    }
+
+    @Test
+    public void commentFollowingContinuation() throws IOException {
+        check("a=\\\n\n#c\nb=1\n");
+        check("\\\n!not\n");
+        check("a=\\\n  #not a comment\nb=2\n");
+    }
+
+    @Test
+    public void lineEndings() throws IOException {
+        check("cr=1\rcrlf=2\r\nlf=3\n");
+        check("k = v \\\r\n  w\r\nx=\\\r  y\rz=\\\n  z\n");
+    }
+
+    @Test
+    public void noFinalNewline() throws IOException {
+        check("last=line");
+        check("last=line\\");
+        check("k=v\n# comment");
+    }
+
+    @Test
+    public void mappedFile() throws IOException {
+        String awkward = "k = multi \\\r\n  line\r\n# c\ru=\\u0041\\\n  \\u00e9\nkey\\ x:\\t y\n\u00ff=\u00e9\n";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < MAPPED_SIZE; i++) {
+            sb.append("key").append(i).append(" = value ").append(i).append('\n').append(awkward);
+        }
+        sb.append("final=no newline");
+        byte[] bytes = sb.toString().getBytes("ISO-8859-1");
+        assertTrue(bytes.length >= MAPPED_SIZE);
+
+        File file = write(bytes);
+        assertEquals(load(bytes), parse(file));
+    }
+
+    /**
+     * Checks the input is parsed as Properties.load parses it by every route into the parser.
+     */
+    private void check(String input) throws IOException {
+        byte[] bytes = input.getBytes("ISO-8859-1");
+        Map<String, String> expected = load(bytes);
+
+        final Map<String, String> fromBuffer = new HashMap<String, String>();
+        PropertiesParser.parse(ByteBuffer.wrap(bytes), into(fromBuffer));
+        assertEquals(input, expected, fromBuffer);
+
+        final Map<String, String> fromStream = new HashMap<String, String>();
+        PropertiesParser.parse(new ByteArrayInputStream(bytes), into(fromStream));
+        assertEquals(input, expected, fromStream);
+
+        assertEquals(input, expected, parse(write(bytes)));
+    }
+
+    private static Map<String, String> load(byte[] bytes) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(bytes));
+        Map<String, String> map = new HashMap<String, String>();
+        for (String key : properties.stringPropertyNames()) {
+            map.put(key, properties.getProperty(key));
+        }
+        return map;
+    }
+
+    private static Map<String, String> parse(File file) throws IOException {
+        Map<String, String> map = new HashMap<String, String>();
+        PropertiesParser.parse(file, into(map));
+        return map;
+    }
+
+    private static PropertiesParser.Sink into(final Map<String, String> map) {
+        return new PropertiesParser.Sink() {
+
+            public void property(String key, String value, int line) {
+                map.put(key, value);
+            }
+        };
+    }
+
+    private File write(byte[] bytes) throws IOException {
+        File file = folder.newFile("test" + System.nanoTime() + ".properties");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,99 @@
+package com.akoolla.commons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.akoolla.commons.config.EnvironmentSettings.Platform;
+import com.akoolla.commons.config.EnvironmentSettings.Profile;
+
+/**
+ * ResourceSizingTest.
+ *
+ * <p> Pins the SMALL, MEDIUM and LARGE defaults for a fixed number of processors and heap, the minimum number of
+ * threads, the sizing of an unrecognised profile, and the values a configuration sets taking over from the defaults.
+ * </p>
+ */
+public class ResourceSizingTest {
+
+    private static final long HEAP = 2000L * 1024 * 1024;
+
+    @Test
+    public void small() {
+        ResourceSizing sizing = new ResourceSizing(Profile.SMALL, 4, HEAP);
+
+        assertEquals(4, sizing.getThreads());
+        assertEquals(4 * 64, sizing.getQueueCapacity());
+        assertEquals(HEAP / 20, sizing.getCacheBytes());
+    }
+
+    @Test
+    public void medium() {
+        ResourceSizing sizing = new ResourceSizing(Profile.MEDIUM, 4, HEAP);
+
+        assertEquals(8, sizing.getThreads());
+        assertEquals(8 * 128, sizing.getQueueCapacity());
+        assertEquals(HEAP / 10, sizing.getCacheBytes());
+    }
+
+    @Test
+    public void large() {
+        ResourceSizing sizing = new ResourceSizing(Profile.LARGE, 4, HEAP);
+
+        assertEquals(16, sizing.getThreads());
+        assertEquals(16 * 256, sizing.getQueueCapacity());
+        assertEquals(HEAP / 5, sizing.getCacheBytes());
+    }
+
+    @Test
+    public void atLeastTwoThreads() {
+        ResourceSizing sizing = new ResourceSizing(Profile.SMALL, 1, HEAP);
+
+        assertEquals(2, sizing.getThreads());
+        assertEquals(2 * 64, sizing.getQueueCapacity());
+        assertEquals(4, new ResourceSizing(Profile.LARGE, 1, HEAP).getThreads());
+    }
+
+    @Test
+    public void unknownProfileIsSmall() {
+        ResourceSizing unknown = new ResourceSizing(Profile.UKNOWN, 4, HEAP);
+        ResourceSizing unset = new ResourceSizing(null, 4, HEAP);
+
+        assertSame(Profile.SMALL, unknown.getProfile());
+        assertSame(Profile.SMALL, unset.getProfile());
+        assertEquals(4, unknown.getThreads());
+        assertEquals(4 * 64, unknown.getQueueCapacity());
+        assertEquals(HEAP / 20, unknown.getCacheBytes());
+        assertSame(Profile.SMALL, ResourceSizing.effectiveProfile(Profile.UKNOWN));
+        assertSame(Profile.LARGE, ResourceSizing.effectiveProfile(Profile.LARGE));
+    }
+
+    @Test
+    public void configurationOverridesDefaults() {
+        ResourceSizing sizing = new ResourceSizing(Profile.MEDIUM, 4, HEAP);
+        Map<String, String> map = new HashMap<String, String>();
+        map.put(ResourceSizing.THREADS, "3");
+        map.put(ResourceSizing.CACHE_BYTES, "64MB");
+        ConfigSnapshot config = ConfigSnapshot.of(map);
+
+        assertEquals(3, sizing.getThreads(config));
+        assertEquals(64L << 20, sizing.getCacheBytes(config));
+        assertEquals(8 * 128, sizing.getQueueCapacity(config));
+        assertEquals("sizing defaults for profile MEDIUM, 4 processors, 2000MB max heap",
+                sizing.origin(config, ResourceSizing.QUEUE_CAPACITY));
+    }
+
+    @Test
+    public void sizesThisMachine() {
+        ResourceSizing sizing = ResourceSizing.of(new EnvironmentSettings(Platform.DEV, Profile.UKNOWN, "dev"));
+
+        assertSame(Profile.SMALL, sizing.getProfile());
+        assertEquals(Runtime.getRuntime().availableProcessors(), sizing.getProcessors());
+        assertTrue(sizing.getMaxHeap() > 0);
+    }
+}
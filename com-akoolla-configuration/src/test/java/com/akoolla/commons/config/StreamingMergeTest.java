@@ -0,0 +1,213 @@
+package com.akoolla.commons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.akoolla.commons.config.EnvironmentSettings.Platform;
+import com.akoolla.commons.config.EnvironmentSettings.Profile;
+
+/**
+ * StreamingMergeTest.
+ *
+ * <p> Munches a tree of properties files, with profile, environment and app.datadir overrides and a classpath copy of
+ * the global file, by streaming every file into one table and checks the snapshot is the one merging a table of each
+ * file gives, strict failures included. A munch of 100k keys then has the bytes it allocates counted by
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} and bounded by the size of the snapshot it
+ * ends up as. </p>
+ */
+public class StreamingMergeTest {
+
+    private static final String GLOBAL = "streamingmerge/environment.properties";
+
+    private static final String ENVIRONMENTS = "config/environments/";
+
+    private static final EnvironmentSettings SETTINGS = new EnvironmentSettings(Platform.INT, Profile.MEDIUM, "int");
+
+    private static final int KEYS = 100000;
+
+    /** How many times the size of the snapshot a streamed munch may allocate, parsing included. */
+    private static final double ALLOCATION_BOUND = 1.6;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void matchesLayeredMerge() throws IOException {
+        File parent = tree(200, false);
+
+        ConfigSnapshot streamed = stream(parent);
+        ConfigSnapshot layered = layered(parent);
+
+        assertSameMerge(layered, streamed);
+        assertEquals("profile", streamed.get("key.1"));
+        assertEquals("data dir environment", streamed.get("key.2"));
+        assertEquals("from the file", streamed.get("shared"));
+        assertEquals("from the classpath copy", streamed.get("copy.only"));
+        assertEquals(ConfigLayer.values().length, streamed.layers().length);
+        for (PropertyLayer layer : streamed.layers()) {
+            assertFalse(layer.isLoaded());
+        }
+    }
+
+    @Test
+    public void unmatchedKeysMatchLayeredMerge() throws IOException {
+        File parent = tree(200, true);
+
+        UnmatchedPropertyException expected = null;
+        try {
+            layered(parent);
+            fail("The layered merge accepted keys that override nothing");
+        } catch (UnmatchedPropertyException e) {
+            expected = e;
+        }
+        try {
+            stream(parent);
+            fail("The streamed merge accepted keys that override nothing");
+        } catch (UnmatchedPropertyException e) {
+            assertEquals(expected.getUnmatchedKeys(), e.getUnmatchedKeys());
+            assertEquals(expected.getMessage(), e.getMessage());
+        }
+    }
+
+    @Test
+    public void allocatesCloseToSnapshotSize() throws IOException {
+        File parent = tree(KEYS, false);
+
+        long streamed = allocated(parent, true);
+        long layered = allocated(parent, false);
+
+        long size = estimatedSize(stream(parent));
+        assertTrue("Allocated " + streamed + " bytes munching a snapshot of about " + size + " bytes",
+                streamed < ALLOCATION_BOUND * size);
+        assertTrue("Allocated " + streamed + " bytes streaming but " + layered + " merging a table of each file",
+                streamed < layered);
+    }
+
+    /**
+     * @return The bytes the calling thread allocates munching the tree, once the code is loaded and compiled
+     */
+    private static long allocated(File parent, boolean streamed) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 3; i++) {
+            munch(parent, streamed);
+        }
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        munch(parent, streamed);
+        return threads.getThreadAllocatedBytes(thread) - before;
+    }
+
+    private static ConfigSnapshot munch(File parent, boolean streamed) {
+        return streamed ? stream(parent) : layered(parent);
+    }
+
+    private static ConfigSnapshot stream(File parent) {
+        return PropertiesMuncher.streamAndMerge(SETTINGS, false, parent.getPath(), false, GLOBAL, ENVIRONMENTS);
+    }
+
+    private static ConfigSnapshot layered(File parent) {
+        return PropertiesMuncher.parseAndMerge(SETTINGS, false, parent.getPath(), false, GLOBAL, ENVIRONMENTS, null,
+                null);
+    }
+
+    /**
+     * @param unmatched Whether the override files have keys the global file doesn't
+     * @return The parent of a tree of every layer, the global file having the given number of keys
+     */
+    private File tree(int keys, boolean unmatched) throws IOException {
+        File parent = folder.newFolder("parent");
+        File dataDir = folder.newFolder("datadir");
+
+        StringBuilder global = new StringBuilder("# the global file\n");
+        global.append("app.datadir=").append(dataDir.getPath().replace('\\', '/')).append('\n');
+        global.append("shared=from the file\n");
+        for (int i = 0; i < keys; i++) {
+            global.append("key.").append(i).append("=global value ").append(i).append('\n');
+        }
+        write(new File(parent, GLOBAL), global);
+
+        write(new File(parent, PropertiesMuncher.getProfilesDir() + "medium.properties"),
+                overrides(keys, "profile", 1, unmatched ? "profile.only" : null));
+        write(new File(parent, ENVIRONMENTS + "int.properties"), overrides(keys, "environment", 2, null));
+        write(new File(dataDir, PropertiesMuncher.getGlobalProperties()), overrides(keys, "data dir global", 3,
+                unmatched ? "data.dir.only" : null));
+        write(new File(dataDir, PropertiesMuncher.getGlobalPropertiesDir() + "int.properties"),
+                overrides(keys, "data dir environment", 2, null));
+        return parent;
+    }
+
+    /**
+     * @return An override file setting every tenth multiple of the given key, the first of them twice over
+     */
+    private static StringBuilder overrides(int keys, String value, int first, String unmatched) {
+        StringBuilder file = new StringBuilder("# overrides\n");
+        file.append("key.").append(first).append('=').append("replaced\n");
+        for (int i = first; i < keys; i += first * 10) {
+            file.append("key.").append(i).append(" = ").append(value).append('\n');
+        }
+        if (unmatched != null) {
+            file.append(unmatched).append('=').append(value).append('\n');
+        }
+        return file;
+    }
+
+    private static void assertSameMerge(ConfigSnapshot expected, ConfigSnapshot actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int slot = 0; slot < expected.capacity(); slot++) {
+            String key = expected.keyAt(slot);
+            if (key == null) {
+                continue;
+            }
+            int actualSlot = actual.indexOf(key);
+            assertTrue(key, actualSlot >= 0);
+            assertEquals(key, expected.valueAt(slot), actual.valueAt(actualSlot));
+            assertEquals(key, expected.lineAt(slot), actual.lineAt(actualSlot));
+            assertEquals(key, expected.layerAt(slot).getLayer(), actual.layerAt(actualSlot).getLayer());
+            assertEquals(key, expected.layerAt(slot).getSource(), actual.layerAt(actualSlot).getSource());
+        }
+        assertNull(actual.get("profile.only"));
+    }
+
+    /**
+     * @return A lower bound on the heap the snapshot takes, assuming compressed references and compact strings: each
+     *         slot's key, value, layer and line and each key and value string with its bytes
+     */
+    private static long estimatedSize(ConfigSnapshot snapshot) {
+        long size = snapshot.capacity() * (4L + 4L + 1L + 4L);
+        for (int slot = 0; slot < snapshot.capacity(); slot++) {
+            String key = snapshot.keyAt(slot);
+            if (key != null) {
+                size += stringSize(key) + stringSize(snapshot.valueAt(slot));
+            }
+        }
+        return size;
+    }
+
+    private static long stringSize(String string) {
+        return 24 + ((16 + string.length() + 7) & ~7);
+    }
+
+    private static void write(File file, CharSequence content) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.toString().getBytes("ISO-8859-1"));
+        } finally {
+            out.close();
+        }
+    }
+}
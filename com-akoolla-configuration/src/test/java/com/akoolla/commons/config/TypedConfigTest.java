@@ -0,0 +1,154 @@
+package com.akoolla.commons.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * TypedConfigTest.
+ *
+ * <p> Reads durations, sizes, numbers and booleans through the typed view of a munched snapshot, checking the units
+ * accepted, the defaults for missing keys, the key and file named when a value can't be parsed, and that a value is
+ * parsed once however often it is read. </p>
+ */
+public class TypedConfigTest {
+
+    @Test
+    public void durations() {
+        TypedConfig typed = typed(map("timeout", "250ms", "interval", " 5s ", "plain", "40", "long", "2h",
+                "tiny", "10us"));
+
+        assertEquals(Duration.ofMillis(250), typed.getDuration("timeout", null));
+        assertEquals(Duration.ofSeconds(5), typed.getDuration("interval", null));
+        assertEquals(Duration.ofMillis(40), typed.getDuration("plain", null));
+        assertEquals(Duration.ofHours(2), typed.getDuration("long", null));
+        assertEquals(Duration.ofNanos(10000), typed.getDuration("tiny", null));
+    }
+
+    @Test
+    public void sizes() {
+        TypedConfig typed = typed(map("cache", "64MB", "buffer", "512kb", "plain", "100", "disk", "2G",
+                "binary", "1MiB"));
+
+        assertEquals(64L << 20, typed.getBytes("cache", 0));
+        assertEquals(512L << 10, typed.getBytes("buffer", 0));
+        assertEquals(100L, typed.getBytes("plain", 0));
+        assertEquals(2L << 30, typed.getBytes("disk", 0));
+        assertEquals(1L << 20, typed.getBytes("binary", 0));
+    }
+
+    @Test
+    public void numbersAndBooleans() {
+        TypedConfig typed = typed(map("threads", " 8", "big", "5000000000", "on", "yes", "off", "Off"));
+
+        assertEquals(8, typed.getInt("threads", 0));
+        assertEquals(5000000000L, typed.getLong("big", 0));
+        assertTrue(typed.getBoolean("on", false));
+        assertFalse(typed.getBoolean("off", true));
+    }
+
+    @Test
+    public void defaultsForMissingKeys() {
+        TypedConfig typed = typed(map("present", "1"));
+        Duration fallback = Duration.ofSeconds(30);
+
+        assertSame(fallback, typed.getDuration("missing", fallback));
+        assertNull(typed.getDuration("missing", null));
+        assertEquals(7L, typed.getBytes("missing", 7));
+        assertEquals(3, typed.getInt("missing", 3));
+        assertEquals(4L, typed.getLong("missing", 4));
+        assertTrue(typed.getBoolean("missing", true));
+    }
+
+    @Test
+    public void invalidValueNamesKeyAndLayer() {
+        List<Map<String, String>> maps = new ArrayList<Map<String, String>>();
+        maps.add(map("timeout", "250ms", "cache", "64MB"));
+        maps.add(map("timeout", "soon"));
+        TypedConfig typed = LayeredMerge.merge(layers(maps), true).typed();
+
+        try {
+            typed.getDuration("timeout", null);
+            fail("Parsed a duration of soon");
+        } catch (InvalidPropertyValueException e) {
+            assertEquals("timeout", e.getKey());
+            assertEquals("soon", e.getValue());
+            assertEquals("profile file layer1", e.getSource());
+            assertTrue(e.getMessage(), e.getMessage().contains("timeout"));
+            assertTrue(e.getMessage(), e.getMessage().contains("profile file layer1"));
+        }
+
+        try {
+            typed.getInt("cache", 0);
+            fail("Parsed an int of 64MB");
+        } catch (InvalidPropertyValueException e) {
+            assertEquals("cache", e.getKey());
+            assertEquals("global file layer0", e.getSource());
+        }
+    }
+
+    @Test
+    public void invalidValueOfUnlayeredSnapshotHasNoSource() {
+        try {
+            typed(map("size", "lots")).getBytes("size", 0);
+            fail("Parsed a size of lots");
+        } catch (InvalidPropertyValueException e) {
+            assertEquals("size", e.getKey());
+            assertNull(e.getSource());
+        }
+    }
+
+    @Test
+    public void secondReadIsCached() {
+        TypedConfig typed = typed(map("timeout", "250ms", "cache", "64MB"));
+
+        Duration first = typed.getDuration("timeout", null);
+        assertSame(first, typed.getDuration("timeout", null));
+
+        assertEquals(64L << 20, typed.getBytes("cache", 0));
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long sum = 0;
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 10000; i++) {
+            sum += typed.getBytes("cache", 0);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals(10000L * (64L << 20), sum);
+        // parsing "64MB" again would allocate its substrings on every read
+        assertTrue("Allocated " + allocated + " bytes reading a cached size", allocated < 10000);
+    }
+
+    private static TypedConfig typed(Map<String, String> map) {
+        return ConfigSnapshot.of(map).typed();
+    }
+
+    private static List<PropertyLayer> layers(List<Map<String, String>> maps) {
+        List<PropertyLayer> layers = new ArrayList<PropertyLayer>();
+        for (int i = 0; i < maps.size(); i++) {
+            layers.add(new PropertyLayer(ConfigLayer.values()[i], "layer" + i, ConfigSnapshot.of(maps.get(i))));
+        }
+        return layers;
+    }
+
+    private static Map<String, String> map(String... keysAndValues) {
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}